@@ -0,0 +1,48 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import org.yb.Opid;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Durable record of how far a CDC stream has been consumed, so a restarted connector resumes
+ * from the last committed checkpoint of each tablet instead of from the start of the WAL.
+ */
+public interface CheckpointStore {
+  /**
+   * @return the stream the stored checkpoints belong to, or null if nothing was committed yet.
+   */
+  public String getStreamId();
+
+  /**
+   * @param tabletId the tablet to look up.
+   * @return the last committed checkpoint of the tablet, or null if there is none.
+   */
+  public Opid.OpIdPB getCheckpoint(String tabletId);
+
+  /**
+   * Durably records the given checkpoints. Tablets not in {@code checkpoints} keep their last
+   * committed checkpoint, unless {@code streamId} differs from the stored stream, in which case
+   * the previous checkpoints are dropped.
+   *
+   * @param streamId the stream the checkpoints belong to.
+   * @param checkpoints the last applied OpId per tablet.
+   */
+  public void commit(String streamId, Map<String, Opid.OpIdPB> checkpoints) throws IOException;
+
+  public void close() throws IOException;
+}
@@ -0,0 +1,124 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import org.apache.log4j.Logger;
+import org.yb.Opid;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the last applied checkpoint of every tablet and commits them to a
+ * {@link CheckpointStore} off the apply path, once {@code commitRecords} records were applied
+ * since the last commit or every {@code commitIntervalMs}, whichever comes first. The sink is
+ * flushed before each commit so a committed checkpoint never gets ahead of the sink's output.
+ */
+public class CheckpointTracker {
+  private static final Logger LOG = Logger.getLogger(CheckpointTracker.class);
+
+  private final CheckpointStore store;
+  private final OutputClient outputClient;
+  private final String streamId;
+  private final long commitRecords;
+  private final long commitIntervalMs;
+
+  private final Map<String, Opid.OpIdPB> applied = new ConcurrentHashMap<>();
+  private final AtomicLong recordsSinceCommit = new AtomicLong(0);
+  private final AtomicBoolean commitScheduled = new AtomicBoolean(false);
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cdc-checkpoint-committer");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  // Last committed checkpoint per tablet, only touched by commit(), which never runs concurrently.
+  private final Map<String, Opid.OpIdPB> committed = new HashMap<>();
+
+  public CheckpointTracker(CheckpointStore store, OutputClient outputClient, String streamId,
+                           long commitRecords, long commitIntervalMs) {
+    this.store = store;
+    this.outputClient = outputClient;
+    this.streamId = streamId;
+    this.commitRecords = commitRecords;
+    this.commitIntervalMs = commitIntervalMs;
+  }
+
+  public void start() {
+    scheduler.scheduleWithFixedDelay(this::commit, commitIntervalMs, commitIntervalMs,
+                                     TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @return the checkpoint the given tablet should resume from, or null to start from the
+   * beginning.
+   */
+  public Opid.OpIdPB getStartCheckpoint(String tabletId) {
+    if (!streamId.equals(store.getStreamId())) {
+      return null;
+    }
+    return store.getCheckpoint(tabletId);
+  }
+
+  /**
+   * Records that all changes of the tablet up to {@code opId} were handed to the sink.
+   */
+  public void markApplied(String tabletId, Opid.OpIdPB opId, int numRecords) {
+    applied.put(tabletId, opId);
+    if (recordsSinceCommit.addAndGet(numRecords) >= commitRecords &&
+        commitScheduled.compareAndSet(false, true)) {
+      scheduler.submit(this::commit);
+    }
+  }
+
+  private void commit() {
+    commitScheduled.set(false);
+    recordsSinceCommit.set(0);
+
+    Map<String, Opid.OpIdPB> changed = new HashMap<>();
+    for (Map.Entry<String, Opid.OpIdPB> entry : applied.entrySet()) {
+      if (!entry.getValue().equals(committed.get(entry.getKey()))) {
+        changed.put(entry.getKey(), entry.getValue());
+      }
+    }
+    if (changed.isEmpty()) {
+      return;
+    }
+
+    try {
+      outputClient.flush();
+      store.commit(streamId, changed);
+      committed.putAll(changed);
+    } catch (Exception e) {
+      LOG.error("Failed to commit CDC checkpoints", e);
+    }
+  }
+
+  /**
+   * Stops the periodic commits and commits whatever was applied since the last one.
+   */
+  public void close() throws Exception {
+    scheduler.shutdown();
+    scheduler.awaitTermination(commitIntervalMs, TimeUnit.MILLISECONDS);
+    commit();
+    store.close();
+  }
+}
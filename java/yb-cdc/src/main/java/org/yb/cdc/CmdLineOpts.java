@@ -23,6 +23,10 @@ import org.apache.log4j.Logger;
 public class CmdLineOpts {
 
   private static final String DEFAULT_MASTER_ADDRS = "127.0.0.1:7100";
+  private static final int DEFAULT_POLL_WINDOW = 2;
+  private static final long DEFAULT_CHECKPOINT_RECORDS = 10000;
+  private static final long DEFAULT_CHECKPOINT_INTERVAL_MS = 1000;
+  private static final long DEFAULT_TABLET_REFRESH_INTERVAL_MS = 10000;
 
   private static final Logger LOG = Logger.getLogger(CmdLineOpts.class);
 
@@ -30,6 +34,12 @@ public class CmdLineOpts {
   public String namespaceName;
   public String masterAddrs = DEFAULT_MASTER_ADDRS;
   public String streamId = "";
+  public int pollWindow = DEFAULT_POLL_WINDOW;
+  public String outputFile = "";
+  public String checkpointDir = "";
+  public long checkpointRecords = DEFAULT_CHECKPOINT_RECORDS;
+  public long checkpointIntervalMs = DEFAULT_CHECKPOINT_INTERVAL_MS;
+  public long tabletRefreshIntervalMs = DEFAULT_TABLET_REFRESH_INTERVAL_MS;
 
   public static CmdLineOpts createFromArgs(String[] args) throws Exception {
     Options options = new Options();
@@ -39,6 +49,20 @@ public class CmdLineOpts {
             "Table to get change capture from in format <namespace>.<table>");
     options.addOption("stream_id", true,
             "Optional stream ID. Use this if you already have a CDC stream set up on the table");
+    options.addOption("output_file", true,
+            "Optional file to append changes to as length-prefixed CDCRecordPB messages, " +
+            "instead of logging them");
+    options.addOption("checkpoint_dir", true,
+            "Optional directory to persist consumed checkpoints in, so a restart resumes from " +
+            "where the previous run stopped");
+    options.addOption("checkpoint_records", true,
+            "Commit checkpoints after this many records were applied");
+    options.addOption("checkpoint_interval_ms", true,
+            "Commit checkpoints at least this often");
+    options.addOption("tablet_refresh_interval_ms", true,
+            "How often to look for new or removed tablets and refresh the per-tablet lag metrics");
+    options.addOption("poll_window", true,
+            "Maximum number of change batches per tablet fetched ahead of the ones being applied");
 
     // Do the actual arg parsing.
     CommandLineParser parser = new BasicParser();
@@ -85,5 +109,33 @@ public class CmdLineOpts {
       streamId = commandLine.getOptionValue("stream_id");
     }
 
+    if (commandLine.hasOption("output_file")) {
+      outputFile = commandLine.getOptionValue("output_file");
+    }
+
+    if (commandLine.hasOption("checkpoint_dir")) {
+      checkpointDir = commandLine.getOptionValue("checkpoint_dir");
+    }
+
+    if (commandLine.hasOption("checkpoint_records")) {
+      checkpointRecords = Long.parseLong(commandLine.getOptionValue("checkpoint_records"));
+    }
+
+    if (commandLine.hasOption("checkpoint_interval_ms")) {
+      checkpointIntervalMs = Long.parseLong(commandLine.getOptionValue("checkpoint_interval_ms"));
+    }
+
+    if (commandLine.hasOption("tablet_refresh_interval_ms")) {
+      tabletRefreshIntervalMs =
+          Long.parseLong(commandLine.getOptionValue("tablet_refresh_interval_ms"));
+    }
+
+    if (commandLine.hasOption("poll_window")) {
+      pollWindow = Integer.parseInt(commandLine.getOptionValue("poll_window"));
+      if (pollWindow < 1) {
+        throw new Exception("Expected --poll_window to be at least 1");
+      }
+    }
+
   }
 }
@@ -0,0 +1,192 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import com.google.protobuf.CodedOutputStream;
+import org.apache.log4j.Logger;
+import org.yb.client.YBTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends changes to a file as varint length-prefixed CDCRecordPB messages, the same framing
+ * {@code CDCRecordPB.parseDelimitedFrom} reads back.
+ *
+ * Batches are handed to a single writer thread through a bounded queue, so {@link #applyBatch}
+ * blocks once {@code queueCapacity} batches are waiting. The writer coalesces everything queued
+ * into one write and forces the file to disk at most once every {@code syncIntervalMs}, so a crash
+ * can lose up to that much of the acknowledged output unless {@link #flush} is called.
+ * {@link #close} writes and syncs the rest.
+ */
+public class FileClient implements OutputClient {
+  private static final Logger LOG = Logger.getLogger(FileClient.class);
+
+  private static final int DEFAULT_QUEUE_CAPACITY = 64;
+  private static final long DEFAULT_SYNC_INTERVAL_MS = 100;
+
+  private final FileChannel channel;
+  private final BlockingQueue<List<CdcService.CDCRecordPB>> pendingBatches;
+  private final long syncIntervalMs;
+  private final Thread writer;
+
+  // Batches accepted by applyBatch and batches the writer has written and forced to disk.
+  private final AtomicLong enqueuedBatches = new AtomicLong(0);
+  private long syncedBatches = 0;
+  private volatile boolean syncRequested = false;
+
+  private volatile boolean closed = false;
+  // First error the writer ran into. Once set, no more batches are accepted.
+  private volatile IOException writeError = null;
+
+  public FileClient(String path) throws IOException {
+    this(path, DEFAULT_QUEUE_CAPACITY, DEFAULT_SYNC_INTERVAL_MS);
+  }
+
+  public FileClient(String path, int queueCapacity, long syncIntervalMs) throws IOException {
+    this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    this.pendingBatches = new ArrayBlockingQueue<>(queueCapacity);
+    this.syncIntervalMs = syncIntervalMs;
+    this.writer = new Thread(this::writeLoop, "cdc-file-writer");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  @Override
+  public void applyChange(YBTable table, CdcService.CDCRecordPB changeRecord) throws Exception {
+    enqueue(Collections.singletonList(changeRecord));
+  }
+
+  @Override
+  public void applyBatch(YBTable table, String tabletId, List<CdcService.CDCRecordPB> records,
+                         CdcService.CDCCheckpointPB checkpoint) throws Exception {
+    if (!records.isEmpty()) {
+      enqueue(records);
+    }
+  }
+
+  private void enqueue(List<CdcService.CDCRecordPB> records) throws Exception {
+    while (!pendingBatches.offer(records, syncIntervalMs, TimeUnit.MILLISECONDS)) {
+      checkWritable();
+    }
+    enqueuedBatches.incrementAndGet();
+    checkWritable();
+  }
+
+  @Override
+  public void flush() throws Exception {
+    long target = enqueuedBatches.get();
+    synchronized (this) {
+      while (syncedBatches < target) {
+        checkWritable();
+        syncRequested = true;
+        wait(syncIntervalMs);
+      }
+    }
+  }
+
+  private void checkWritable() throws IOException {
+    if (writeError != null) {
+      throw new IOException("CDC output file is no longer writable", writeError);
+    }
+    if (closed) {
+      throw new IOException("CDC output file is closed");
+    }
+  }
+
+  private void writeLoop() {
+    List<List<CdcService.CDCRecordPB>> batches = new ArrayList<>();
+    long writtenBatches = 0;
+    long lastSyncMs = System.currentTimeMillis();
+    try {
+      while (!closed || !pendingBatches.isEmpty()) {
+        List<CdcService.CDCRecordPB> first =
+            pendingBatches.poll(syncIntervalMs, TimeUnit.MILLISECONDS);
+        if (first != null) {
+          batches.add(first);
+          pendingBatches.drainTo(batches);
+          write(batches);
+          writtenBatches += batches.size();
+          batches.clear();
+        }
+        long nowMs = System.currentTimeMillis();
+        if (syncRequested || nowMs - lastSyncMs >= syncIntervalMs) {
+          sync(writtenBatches);
+          lastSyncMs = nowMs;
+        }
+      }
+      sync(writtenBatches);
+    } catch (IOException e) {
+      LOG.error("Failed to write to CDC output file", e);
+      writeError = e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void sync(long writtenBatches) throws IOException {
+    if (writtenBatches == syncedBatches && !syncRequested) {
+      return;
+    }
+    channel.force(false);
+    synchronized (this) {
+      syncedBatches = writtenBatches;
+      syncRequested = false;
+      notifyAll();
+    }
+  }
+
+  private void write(List<List<CdcService.CDCRecordPB>> batches) throws IOException {
+    int size = 0;
+    for (List<CdcService.CDCRecordPB> batch : batches) {
+      for (CdcService.CDCRecordPB record : batch) {
+        int recordSize = record.getSerializedSize();
+        size += CodedOutputStream.computeUInt32SizeNoTag(recordSize) + recordSize;
+      }
+    }
+
+    byte[] buf = new byte[size];
+    CodedOutputStream out = CodedOutputStream.newInstance(buf);
+    for (List<CdcService.CDCRecordPB> batch : batches) {
+      for (CdcService.CDCRecordPB record : batch) {
+        out.writeUInt32NoTag(record.getSerializedSize());
+        record.writeTo(out);
+      }
+    }
+    out.checkNoSpaceLeft();
+
+    ByteBuffer buffer = ByteBuffer.wrap(buf);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    closed = true;
+    writer.join();
+    channel.close();
+  }
+}
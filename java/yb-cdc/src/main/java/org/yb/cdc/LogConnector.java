@@ -14,6 +14,8 @@
 package org.yb.cdc;
 
 import com.google.common.net.HostAndPort;
+import com.stumbleupon.async.Callback;
+import org.yb.client.GetLatestEntryOpIdResponse;
 import org.yb.client.YBTable;
 import org.yb.client.AsyncYBClient;
 import org.yb.client.YBClient;
@@ -22,8 +24,11 @@ import org.yb.client.ListTabletServersResponse;
 import org.yb.client.LocatedTablet;
 
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.*;
 import org.apache.log4j.Logger;
 import org.yb.master.Master;
@@ -42,7 +47,16 @@ class LogConnector {
 
   private YBTable table;
 
-  private List<Poller> pollers = new ArrayList<>();
+  // Active pollers by tablet id, only modified on the reconciler thread.
+  private final Map<String, Poller> pollers = new ConcurrentHashMap<>();
+  private final Map<String, TabletLagMetrics> lagMetrics = new ConcurrentHashMap<>();
+
+  private final ScheduledExecutorService reconciler = Executors.newSingleThreadScheduledExecutor();
+  // Delays the retries of failed GetChanges, kept off the reconciler so slow passes don't hold
+  // them back.
+  private final ScheduledExecutorService retryScheduler =
+      Executors.newSingleThreadScheduledExecutor();
+  private long tabletRefreshIntervalMs;
 
   List<HostAndPort> hps = new ArrayList<>();
 
@@ -50,6 +64,14 @@ class LogConnector {
 
   private String streamId;
 
+  private int pollWindow;
+
+  // Only set when --checkpoint_dir is given.
+  private CheckpointStore checkpointStore;
+  private volatile CheckpointTracker checkpointTracker;
+  private long checkpointRecords;
+  private long checkpointIntervalMs;
+
   public LogConnector(CmdLineOpts opts) throws Exception {
     LOG.info("Creating new YB client...");
     client = new AsyncYBClient.AsyncYBClientBuilder(opts.masterAddrs)
@@ -84,9 +106,37 @@ class LogConnector {
       hps.add(HostAndPort.fromParts(serverInfo.getHost(), serverInfo.getPort()));
     }
 
-    outputClient = new LogClient();
+    if (opts.outputFile.isEmpty()) {
+      outputClient = new LogClient();
+    } else {
+      LOG.info(String.format("Writing changes to %s", opts.outputFile));
+      outputClient = new FileClient(opts.outputFile);
+    }
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        // Commit the last checkpoints before the sink goes away.
+        if (checkpointTracker != null) {
+          checkpointTracker.close();
+        }
+        outputClient.close();
+      } catch (Exception e) {
+        LOG.error("Failed to close output client", e);
+      }
+    }));
 
     streamId = opts.streamId;
+    pollWindow = opts.pollWindow;
+    tabletRefreshIntervalMs = opts.tabletRefreshIntervalMs;
+
+    if (!opts.checkpointDir.isEmpty()) {
+      checkpointStore = new MappedFileCheckpointStore(opts.checkpointDir, tableId);
+      checkpointRecords = opts.checkpointRecords;
+      checkpointIntervalMs = opts.checkpointIntervalMs;
+      if (streamId.isEmpty() && checkpointStore.getStreamId() != null) {
+        streamId = checkpointStore.getStreamId();
+        LOG.info(String.format("Resuming stream %s from %s", streamId, opts.checkpointDir));
+      }
+    }
   }
 
   public void run() throws Exception {
@@ -98,14 +148,89 @@ class LogConnector {
       LOG.info(String.format("Created new stream with id %s", streamId));
     }
 
-    List<LocatedTablet> tabletLocations = table.getTabletsLocations(DEFAULT_TIMEOUT);
+    if (checkpointStore != null) {
+      checkpointTracker = new CheckpointTracker(checkpointStore, outputClient, streamId,
+                                                checkpointRecords, checkpointIntervalMs);
+      checkpointTracker.start();
+    }
+
+    // The first pass runs inline so that a table that can't be located fails the run.
+    reconcileTablets(table.getTabletsLocations(DEFAULT_TIMEOUT));
+    reconciler.scheduleWithFixedDelay(() -> {
+      try {
+        reconcileTablets(table.getTabletsLocations(DEFAULT_TIMEOUT));
+        refreshLagMetrics();
+      } catch (Exception e) {
+        LOG.warn("Failed to refresh the tablets of the table, will retry", e);
+      }
+    }, tabletRefreshIntervalMs, tabletRefreshIntervalMs, TimeUnit.MILLISECONDS);
+  }
 
+  /**
+   * Starts pollers for tablets that appeared since the last pass, e.g. after a tablet split, and
+   * retires the pollers of tablets that are no longer part of the table.
+   */
+  private void reconcileTablets(List<LocatedTablet> tabletLocations) throws Exception {
+    Set<String> liveTablets = new HashSet<>();
     for (LocatedTablet tablet : tabletLocations) {
       String tabletId = new String(tablet.getTabletId());
+      liveTablets.add(tabletId);
+      if (pollers.containsKey(tabletId)) {
+        continue;
+      }
       LOG.info(String.format("Polling for new tablet %s", tabletId));
-      Poller poller = new Poller(outputClient, hps, table, streamId, tabletId, executor, client);
-      pollers.add(poller);
+      Poller poller = new Poller(outputClient, table, streamId, tabletId,
+                                 tablet.getPartition().getPartitionKeyStart(), executor,
+                                 retryScheduler, client, pollWindow, checkpointTracker);
+      TabletLagMetrics metrics = new TabletLagMetrics(table.getTableId(), tabletId);
+      metrics.register();
+      lagMetrics.put(tabletId, metrics);
+      pollers.put(tabletId, poller);
       poller.poll();
     }
+
+    for (Iterator<Map.Entry<String, Poller>> it = pollers.entrySet().iterator(); it.hasNext();) {
+      Map.Entry<String, Poller> entry = it.next();
+      if (liveTablets.contains(entry.getKey())) {
+        continue;
+      }
+      LOG.info(String.format("Tablet %s is gone, retiring its poller", entry.getKey()));
+      entry.getValue().stop();
+      it.remove();
+      TabletLagMetrics metrics = lagMetrics.remove(entry.getKey());
+      if (metrics != null) {
+        metrics.unregister();
+      }
+    }
+  }
+
+  /**
+   * Asks each tablet's leader for its latest OpId and updates the lag metrics with it.
+   */
+  private void refreshLagMetrics() {
+    for (Poller poller : pollers.values()) {
+      TabletLagMetrics metrics = lagMetrics.get(poller.getTabletId());
+      if (metrics == null) {
+        continue;
+      }
+      metrics.setConsumedIndex(poller.getAppliedIndex());
+      client.getLatestEntryOpId(table, poller.getTabletId(), poller.getPartitionKey())
+          .addCallbacks(new Callback<Void, GetLatestEntryOpIdResponse>() {
+            @Override
+            public Void call(GetLatestEntryOpIdResponse response) {
+              if (!response.getResp().hasError()) {
+                metrics.setLatestIndex(response.getResp().getOpId().getIndex());
+              }
+              return null;
+            }
+          }, new Callback<Void, Exception>() {
+            @Override
+            public Void call(Exception e) {
+              LOG.debug(String.format("Failed to get the latest OpId of tablet %s",
+                                      poller.getTabletId()), e);
+              return null;
+            }
+          });
+    }
   }
 }
@@ -0,0 +1,229 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import org.apache.log4j.Logger;
+import org.yb.Opid;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the checkpoints of one table in a memory-mapped file, {@code <dir>/<table id>.checkpoint}.
+ *
+ * The file holds two slots after a small header. Each commit overwrites the older slot with the
+ * full set of checkpoints, a sequence number and a CRC, then forces the mapping, so a crash in the
+ * middle of a commit leaves the other slot intact. Sequence number N always goes to slot N % 2. On open the valid slot with the highest
+ * sequence number wins. When the checkpoints outgrow a slot, the file is rewritten with larger
+ * slots through a temporary file and an atomic rename.
+ */
+public class MappedFileCheckpointStore implements CheckpointStore {
+  private static final Logger LOG = Logger.getLogger(MappedFileCheckpointStore.class);
+
+  private static final int MAGIC = 0x59424350;
+  // Magic and slot size.
+  private static final int HEADER_SIZE = 8;
+  // Sequence number, payload length and payload CRC.
+  private static final int SLOT_HEADER_SIZE = 16;
+  private static final int MIN_SLOT_SIZE = 4096;
+
+  private final Path path;
+  private FileChannel channel;
+  private MappedByteBuffer buffer;
+  private int slotSize;
+  private long seqNum = 0;
+
+  private String streamId = null;
+  private final Map<String, Opid.OpIdPB> checkpoints = new HashMap<>();
+
+  public MappedFileCheckpointStore(String dir, String tableId) throws IOException {
+    Files.createDirectories(Paths.get(dir));
+    path = Paths.get(dir, tableId + ".checkpoint");
+    if (Files.exists(path) && Files.size(path) > HEADER_SIZE) {
+      map();
+      load();
+    } else {
+      rewrite(new byte[0], MIN_SLOT_SIZE);
+    }
+  }
+
+  @Override
+  public synchronized String getStreamId() {
+    return streamId;
+  }
+
+  @Override
+  public synchronized Opid.OpIdPB getCheckpoint(String tabletId) {
+    return checkpoints.get(tabletId);
+  }
+
+  @Override
+  public synchronized void commit(String streamId, Map<String, Opid.OpIdPB> checkpoints)
+      throws IOException {
+    if (!streamId.equals(this.streamId)) {
+      this.checkpoints.clear();
+      this.streamId = streamId;
+    }
+    this.checkpoints.putAll(checkpoints);
+
+    byte[] payload = encode();
+    if (SLOT_HEADER_SIZE + payload.length > slotSize) {
+      int newSlotSize = slotSize;
+      while (SLOT_HEADER_SIZE + payload.length > newSlotSize) {
+        newSlotSize *= 2;
+      }
+      rewrite(payload, newSlotSize);
+      return;
+    }
+    writeSlot(buffer, slotOf(seqNum + 1), seqNum + 1, payload);
+    buffer.force();
+    seqNum++;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  private void map() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+    channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    channel.read(header, 0);
+    header.flip();
+    if (header.getInt() != MAGIC) {
+      throw new IOException(String.format("%s is not a CDC checkpoint file", path));
+    }
+    slotSize = header.getInt();
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + 2L * slotSize);
+  }
+
+  private void load() throws IOException {
+    byte[] latest = null;
+    for (int slot = 0; slot < 2; slot++) {
+      int offset = HEADER_SIZE + slot * slotSize;
+      long slotSeqNum = buffer.getLong(offset);
+      int length = buffer.getInt(offset + 8);
+      int crc = buffer.getInt(offset + 12);
+      if (length < 0 || length > slotSize - SLOT_HEADER_SIZE) {
+        continue;
+      }
+      byte[] payload = new byte[length];
+      ByteBuffer slice = buffer.duplicate();
+      slice.position(offset + SLOT_HEADER_SIZE);
+      slice.get(payload);
+      if (checksum(slotSeqNum, payload) != crc) {
+        continue;
+      }
+      if (latest == null || slotSeqNum > seqNum) {
+        latest = payload;
+        seqNum = slotSeqNum;
+      }
+    }
+    if (latest == null) {
+      LOG.warn(String.format("No valid checkpoint in %s, starting from the beginning", path));
+      return;
+    }
+    // An empty payload is what a freshly created file starts with.
+    if (latest.length > 0) {
+      decode(latest);
+    }
+  }
+
+  private void rewrite(byte[] payload, int newSlotSize) throws IOException {
+    Path tmpPath = Paths.get(path.toString() + ".tmp");
+    try (FileChannel tmp = FileChannel.open(tmpPath, StandardOpenOption.CREATE,
+                                            StandardOpenOption.TRUNCATE_EXISTING,
+                                            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      MappedByteBuffer tmpBuffer =
+          tmp.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + 2L * newSlotSize);
+      tmpBuffer.putInt(0, MAGIC);
+      tmpBuffer.putInt(4, newSlotSize);
+      // The next commit must not overwrite this slot, it is the only valid one of the new file.
+      writeSlot(tmpBuffer, slotOf(seqNum + 1), seqNum + 1, payload);
+      tmpBuffer.force();
+    }
+    Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING,
+               StandardCopyOption.ATOMIC_MOVE);
+    seqNum++;
+    map();
+  }
+
+  private void writeSlot(ByteBuffer target, int slot, long slotSeqNum, byte[] payload) {
+    int offset = HEADER_SIZE + slot * slotSizeOf(target);
+    ByteBuffer slice = target.duplicate();
+    slice.position(offset + SLOT_HEADER_SIZE);
+    slice.put(payload);
+    target.putLong(offset, slotSeqNum);
+    target.putInt(offset + 8, payload.length);
+    target.putInt(offset + 12, checksum(slotSeqNum, payload));
+  }
+
+  private static int slotOf(long slotSeqNum) {
+    return (int) (slotSeqNum % 2);
+  }
+
+  private static int slotSizeOf(ByteBuffer target) {
+    return target.getInt(4);
+  }
+
+  private static int checksum(long slotSeqNum, byte[] payload) {
+    CRC32 crc = new CRC32();
+    crc.update(ByteBuffer.allocate(8).putLong(0, slotSeqNum).array());
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+
+  private byte[] encode() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeUTF(streamId);
+    out.writeInt(checkpoints.size());
+    for (Map.Entry<String, Opid.OpIdPB> entry : checkpoints.entrySet()) {
+      out.writeUTF(entry.getKey());
+      out.writeLong(entry.getValue().getTerm());
+      out.writeLong(entry.getValue().getIndex());
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private void decode(byte[] payload) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+    streamId = in.readUTF();
+    int numTablets = in.readInt();
+    for (int i = 0; i < numTablets; i++) {
+      String tabletId = in.readUTF();
+      long term = in.readLong();
+      long index = in.readLong();
+      checkpoints.put(tabletId, Opid.OpIdPB.newBuilder().setTerm(term).setIndex(index).build());
+    }
+  }
+}
@@ -15,6 +15,41 @@ package org.yb.cdc;
 
 import org.yb.client.YBTable;
 
+import java.util.List;
+
 public interface OutputClient {
   public void applyChange(YBTable table, CdcService.CDCRecordPB changeRecord) throws Exception;
+
+  /**
+   * Applies the changes a single GetChanges call returned for a tablet. Batches of a tablet are
+   * handed over one at a time and in checkpoint order.
+   *
+   * A sink with bounded capacity should block here until it can accept the batch. The poller
+   * applies batches off its fetch path, so a blocked sink fills the tablet's poll window and
+   * stops further GetChanges calls until it catches up.
+   *
+   * @param table the table the changes belong to.
+   * @param tabletId the tablet the changes were read from.
+   * @param records the changes, in commit order. May be empty.
+   * @param checkpoint the checkpoint right after the last record of the batch.
+   */
+  default void applyBatch(YBTable table, String tabletId, List<CdcService.CDCRecordPB> records,
+                          CdcService.CDCCheckpointPB checkpoint) throws Exception {
+    for (CdcService.CDCRecordPB record : records) {
+      applyChange(table, record);
+    }
+  }
+
+  /**
+   * Blocks until every change applied so far is durable in the sink. Called before checkpoints
+   * are committed.
+   */
+  default void flush() throws Exception {
+  }
+
+  /**
+   * Flushes anything the sink buffered and releases its resources.
+   */
+  default void close() throws Exception {
+  }
 }
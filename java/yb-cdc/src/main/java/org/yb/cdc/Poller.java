@@ -15,45 +15,120 @@ package org.yb.cdc;
 
 import com.stumbleupon.async.Callback;
 import org.apache.log4j.Logger;
+import org.yb.Opid;
 import org.yb.client.AsyncYBClient;
 import org.yb.client.GetChangesResponse;
 import org.yb.client.YBTable;
 
-import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.List;
-
-import com.google.common.net.HostAndPort;
-
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Consumes the changes of a single tablet.
+ *
+ * Fetching and applying are decoupled: as soon as a GetChanges response arrives its records are
+ * queued for the apply stage and the next GetChanges is issued from the returned checkpoint, so
+ * up to {@code pollWindow} batches are fetched ahead of the sink. The apply stage runs on the
+ * shared executor, but at most one task drains a given tablet's queue at a time, so the changes of
+ * a tablet are always applied in order. A sink that blocks in {@link OutputClient#applyBatch}
+ * fills the window and so holds back fetching for the tablet.
+ *
+ * A failed GetChanges is retried after a delay that doubles with each consecutive failure, up to
+ * {@link #MAX_RETRY_DELAY_MS}, so that a tablet that can't be read doesn't spin.
+ */
 public class Poller {
   private static final Logger LOG = Logger.getLogger(Poller.class);
 
+  static final long MIN_RETRY_DELAY_MS = 100;
+  static final long MAX_RETRY_DELAY_MS = 10000;
+
+  // Checkpoint the next GetChanges starts from.
   private long term;
   private long index;
   private String streamId;
   private String tabletId;
+  // Start of the tablet's partition, used to route GetChanges to the tablet's leader.
+  private byte[] partitionKey;
   private ExecutorService executor;
+  // Runs the delayed retries of failed GetChanges.
+  private ScheduledExecutorService retryScheduler;
   private YBTable table;
   private AsyncYBClient client;
-  private List<HostAndPort> hps;
   private OutputClient outputClient;
 
-  public Poller(OutputClient outputClient, List<HostAndPort> hps, YBTable table, String streamId,
-                String tabletId, ExecutorService executor, AsyncYBClient client) {
+  // Batches fetched but not yet applied, in checkpoint order.
+  private final BlockingQueue<GetChangesResponse> pendingBatches;
+  // Set while a task on the executor is draining pendingBatches.
+  private final AtomicBoolean applying = new AtomicBoolean(false);
+  // Set when fetching stopped because pendingBatches was full.
+  private final AtomicBoolean fetchPaused = new AtomicBoolean(false);
+
+  // Null when checkpoints are not persisted.
+  private final CheckpointTracker checkpointTracker;
+
+  // Log index of the last batch handed to the sink.
+  private volatile long appliedIndex;
+  // Set once the tablet is retired. No GetChanges are issued after that.
+  private volatile boolean stopped = false;
+  // Delay before retrying the next failed GetChanges. Only one GetChanges is in flight at a time.
+  private volatile long retryDelayMs = MIN_RETRY_DELAY_MS;
+
+  public Poller(OutputClient outputClient, YBTable table, String streamId, String tabletId,
+                byte[] partitionKey, ExecutorService executor,
+                ScheduledExecutorService retryScheduler, AsyncYBClient client,
+                int pollWindow, CheckpointTracker checkpointTracker) {
     this.streamId = streamId;
     this.tabletId = tabletId;
+    this.partitionKey = partitionKey;
     this.term = 0;
     this.index = 0;
+    this.checkpointTracker = checkpointTracker;
+    if (checkpointTracker != null) {
+      Opid.OpIdPB checkpoint = checkpointTracker.getStartCheckpoint(tabletId);
+      if (checkpoint != null) {
+        LOG.info(String.format("Resuming tablet %s from %d.%d", tabletId,
+                               checkpoint.getTerm(), checkpoint.getIndex()));
+        this.term = checkpoint.getTerm();
+        this.index = checkpoint.getIndex();
+      }
+    }
+    this.appliedIndex = this.index;
     this.executor = executor;
+    this.retryScheduler = retryScheduler;
     this.client = client;
     this.table = table;
-    this.hps = hps;
     this.outputClient = outputClient;
+    this.pendingBatches = new ArrayBlockingQueue<>(Math.max(1, pollWindow));
+  }
+
+  public String getTabletId() {
+    return tabletId;
+  }
+
+  public byte[] getPartitionKey() {
+    return partitionKey;
+  }
+
+  public long getAppliedIndex() {
+    return appliedIndex;
+  }
+
+  /**
+   * Stops fetching changes for the tablet. Batches that were already fetched are still applied.
+   */
+  public void stop() {
+    stopped = true;
   }
 
   public Void poll() {
+    if (stopped) {
+      return null;
+    }
     executor.submit(new Callable<Void>() {
       @Override
       public Void call() throws Exception {
@@ -64,48 +139,118 @@ public class Poller {
   }
 
   private Void doPoll() {
-    Random rand = new Random();
-    HostAndPort hp = hps.get(rand.nextInt(hps.size()));
-
-    client.getChanges(hp, table, streamId, tabletId, term, index,
+    client.getChanges(table, streamId, tabletId, partitionKey, term, index,
                       new Callback<Void, GetChangesResponse>() {
       @Override
       public Void call(GetChangesResponse getChangesResponse) throws Exception {
         return handlePoll(getChangesResponse);
       }
+    }).addErrback(new Callback<Void, Exception>() {
+      @Override
+      public Void call(Exception e) throws Exception {
+        LOG.warn(String.format("GetChanges failed for tablet %s, retrying in %d ms",
+                               tabletId, retryDelayMs), e);
+        return retryPoll();
+      }
     });
     return null;
   }
 
-  private Void handlePoll(GetChangesResponse getChangesResponse) {
-    executor.submit(new Callable<Void>() {
+  private Void retryPoll() {
+    if (stopped) {
+      return null;
+    }
+    final long delayMs = retryDelayMs;
+    retryDelayMs = Math.min(delayMs * 2, MAX_RETRY_DELAY_MS);
+    retryScheduler.schedule(new Callable<Void>() {
       @Override
       public Void call() throws Exception {
-        return doHandlePoll(getChangesResponse);
+        return poll();
       }
-    });
+    }, delayMs, TimeUnit.MILLISECONDS);
     return null;
   }
 
-  private Void doHandlePoll(GetChangesResponse getChangesResponse) throws Exception {
-    // Handle the poll
+  private Void handlePoll(GetChangesResponse getChangesResponse) {
+    if (stopped) {
+      return null;
+    }
     if (getChangesResponse.getResp().hasError()) {
       if (getChangesResponse.getResp().getError().getCode() ==
               CdcService.CDCErrorPB.Code.INVALID_REQUEST) {
         LOG.error("Invalid Request");
         System.exit(0);
       }
+      LOG.warn(String.format("GetChanges returned an error for tablet %s, retrying in %d ms: %s",
+                             tabletId, retryDelayMs, getChangesResponse.getResp().getError()));
+      return retryPoll();
+    }
+    retryDelayMs = MIN_RETRY_DELAY_MS;
+
+    // The next fetch can start right away from the returned checkpoint, independently of when
+    // these records get applied.
+    this.term = getChangesResponse.getResp().getCheckpoint().getOpId().getTerm();
+    this.index = getChangesResponse.getResp().getCheckpoint().getOpId().getIndex();
+
+    // Only this tablet's fetch loop adds to the queue, so there is room for the batch.
+    pendingBatches.add(getChangesResponse);
+    scheduleApply();
+
+    if (pendingBatches.remainingCapacity() > 0) {
       return poll();
     }
+    fetchPaused.set(true);
+    // The apply stage may have drained the queue before the flag was set.
+    if (pendingBatches.remainingCapacity() > 0) {
+      resumeFetch();
+    }
+    return null;
+  }
 
-    for (org.yb.cdc.CdcService.CDCRecordPB record : getChangesResponse.getResp().getRecordsList()) {
-      outputClient.applyChange(table, record);
+  private void resumeFetch() {
+    if (fetchPaused.compareAndSet(true, false)) {
+      poll();
     }
+  }
 
-    this.term = getChangesResponse.getResp().getCheckpoint().getOpId().getTerm();
-    this.index = getChangesResponse.getResp().getCheckpoint().getOpId().getIndex();
+  private void scheduleApply() {
+    if (applying.compareAndSet(false, true)) {
+      executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          return doApply();
+        }
+      });
+    }
+  }
 
-    return poll();
+  private Void doApply() throws Exception {
+    try {
+      GetChangesResponse batch;
+      while ((batch = pendingBatches.poll()) != null) {
+        resumeFetch();
+        outputClient.applyBatch(table, tabletId, batch.getResp().getRecordsList(),
+                                batch.getResp().getCheckpoint());
+        appliedIndex = batch.getResp().getCheckpoint().getOpId().getIndex();
+        if (checkpointTracker != null) {
+          checkpointTracker.markApplied(tabletId, batch.getResp().getCheckpoint().getOpId(),
+                                        batch.getResp().getRecordsCount());
+        }
+      }
+    } catch (Exception e) {
+      LOG.error(String.format("Failed to apply changes for tablet %s", tabletId), e);
+      // The changes that weren't applied must not be skipped, so stop with an error status for
+      // the supervisor to restart from the last checkpoint.
+      stopped = true;
+      System.exit(1);
+    } finally {
+      applying.set(false);
+    }
+    // A batch may have been queued after the last poll() returned null.
+    if (!pendingBatches.isEmpty()) {
+      scheduleApply();
+    }
+    return null;
   }
 
 }
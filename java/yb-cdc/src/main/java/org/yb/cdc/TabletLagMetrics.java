@@ -0,0 +1,96 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import org.apache.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Per-tablet consumer lag, registered as {@code org.yb.cdc:type=TabletLag,table=..,tablet=..}
+ * on the platform MBean server.
+ */
+public class TabletLagMetrics implements TabletLagMetricsMXBean {
+  private static final Logger LOG = Logger.getLogger(TabletLagMetrics.class);
+
+  private final String tabletId;
+  private final ObjectName name;
+  private volatile long consumedIndex = 0;
+  private volatile long latestIndex = 0;
+  private volatile long lastRefreshTimeMs = 0;
+
+  public TabletLagMetrics(String tableId, String tabletId) throws Exception {
+    this.tabletId = tabletId;
+    this.name = new ObjectName(
+        String.format("org.yb.cdc:type=TabletLag,table=%s,tablet=%s", tableId, tabletId));
+  }
+
+  public void register() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (!server.isRegistered(name)) {
+        server.registerMBean(this, name);
+      }
+    } catch (Exception e) {
+      LOG.warn(String.format("Failed to register lag metrics for tablet %s", tabletId), e);
+    }
+  }
+
+  public void unregister() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    } catch (Exception e) {
+      LOG.warn(String.format("Failed to unregister lag metrics for tablet %s", tabletId), e);
+    }
+  }
+
+  public void setConsumedIndex(long consumedIndex) {
+    this.consumedIndex = consumedIndex;
+  }
+
+  public void setLatestIndex(long latestIndex) {
+    this.latestIndex = latestIndex;
+    this.lastRefreshTimeMs = System.currentTimeMillis();
+  }
+
+  @Override
+  public String getTabletId() {
+    return tabletId;
+  }
+
+  @Override
+  public long getConsumedIndex() {
+    return consumedIndex;
+  }
+
+  @Override
+  public long getLatestIndex() {
+    return latestIndex;
+  }
+
+  @Override
+  public long getLagOps() {
+    return Math.max(0, latestIndex - consumedIndex);
+  }
+
+  @Override
+  public long getLastRefreshTimeMs() {
+    return lastRefreshTimeMs;
+  }
+}
@@ -0,0 +1,41 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+/**
+ * JMX view of how far the connector is behind on a single tablet.
+ */
+public interface TabletLagMetricsMXBean {
+  public String getTabletId();
+
+  /**
+   * @return the log index of the last change handed to the sink.
+   */
+  public long getConsumedIndex();
+
+  /**
+   * @return the log index of the latest entry on the tablet's leader, as of the last refresh.
+   */
+  public long getLatestIndex();
+
+  /**
+   * @return the number of log entries between the consumed and the latest index.
+   */
+  public long getLagOps();
+
+  /**
+   * @return when the latest index was last refreshed, in milliseconds since the epoch.
+   */
+  public long getLastRefreshTimeMs();
+}
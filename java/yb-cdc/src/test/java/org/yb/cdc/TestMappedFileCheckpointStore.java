@@ -0,0 +1,142 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import static org.yb.AssertionWrappers.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.yb.Opid;
+import org.yb.YBTestRunner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+@RunWith(value=YBTestRunner.class)
+public class TestMappedFileCheckpointStore {
+
+  private static final String TABLE_ID = "table";
+
+  private Path dir;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("cdc-checkpoints");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(dir);
+  }
+
+  private static Opid.OpIdPB opId(long term, long index) {
+    return Opid.OpIdPB.newBuilder().setTerm(term).setIndex(index).build();
+  }
+
+  private MappedFileCheckpointStore open() throws IOException {
+    return new MappedFileCheckpointStore(dir.toString(), TABLE_ID);
+  }
+
+  private long[] slotSeqNums() throws IOException {
+    try (FileChannel channel = FileChannel.open(dir.resolve(TABLE_ID + ".checkpoint"),
+                                                StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(8);
+      channel.read(header, 0);
+      int slotSize = header.getInt(4);
+      long[] seqNums = new long[2];
+      for (int slot = 0; slot < 2; slot++) {
+        ByteBuffer seqNum = ByteBuffer.allocate(8);
+        channel.read(seqNum, 8 + slot * (long) slotSize);
+        seqNums[slot] = seqNum.getLong(0);
+      }
+      return seqNums;
+    }
+  }
+
+  /**
+   * Breaks the CRC of the slot with the highest sequence number, as a torn write would.
+   */
+  private void corruptNewestSlot() throws IOException {
+    long[] seqNums = slotSeqNums();
+    int newest = seqNums[0] > seqNums[1] ? 0 : 1;
+    try (FileChannel channel = FileChannel.open(dir.resolve(TABLE_ID + ".checkpoint"),
+                                                StandardOpenOption.READ,
+                                                StandardOpenOption.WRITE)) {
+      ByteBuffer header = ByteBuffer.allocate(8);
+      channel.read(header, 0);
+      long crcOffset = 8 + newest * (long) header.getInt(4) + 12;
+      ByteBuffer crc = ByteBuffer.allocate(4);
+      channel.read(crc, crcOffset);
+      crc.putInt(0, ~crc.getInt(0));
+      crc.rewind();
+      channel.write(crc, crcOffset);
+    }
+  }
+
+  @Test
+  public void testCommitAfterCreateKeepsOlderSlot() throws IOException {
+    MappedFileCheckpointStore store = open();
+    store.commit("stream", Collections.singletonMap("tablet", opId(1, 10)));
+    store.close();
+
+    // The commit went to the other slot than the one written on create.
+    long[] seqNums = slotSeqNums();
+    assertEquals(2L, Math.max(seqNums[0], seqNums[1]));
+    assertEquals(1L, Math.min(seqNums[0], seqNums[1]));
+
+    corruptNewestSlot();
+    store = open();
+    assertNull(store.getStreamId());
+    assertNull(store.getCheckpoint("tablet"));
+    store.close();
+  }
+
+  @Test
+  public void testTornCommitAfterRewriteFallsBackToRewrite() throws IOException {
+    MappedFileCheckpointStore store = open();
+    store.commit("stream", Collections.singletonMap("tablet", opId(1, 10)));
+    // Outgrows the slots, so the file gets rewritten.
+    Map<String, Opid.OpIdPB> many = new HashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      many.put("tablet" + i, opId(1, i));
+    }
+    store.commit("stream", many);
+    store.commit("stream", Collections.singletonMap("tablet0", opId(2, 100)));
+    store.close();
+
+    corruptNewestSlot();
+    store = open();
+    assertEquals("stream", store.getStreamId());
+    assertEquals(opId(1, 0), store.getCheckpoint("tablet0"));
+    assertEquals(opId(1, 999), store.getCheckpoint("tablet999"));
+    assertEquals(opId(1, 10), store.getCheckpoint("tablet"));
+    store.close();
+  }
+}
@@ -104,10 +104,9 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
@@ -168,18 +167,17 @@ public class AsyncYBClient implements AutoCloseable {
   /**
    * This map and the next 2 maps contain the same data, but indexed
    * differently. There is no consistency guarantee across the maps.
-   * They are not updated all at the same time atomically.  This map
-   * is always the first to be updated, because that's the map from
-   * which all the lookups are done in the fast-path of the requests
-   * that need to locate a tablet. The second map to be updated is
-   * tablet2client, because it comes second in the fast-path
-   * of every requests that need to locate a tablet. The third map
-   * is only used to handle TabletServer disconnections gracefully.
+   * This map is where all the lookups are done in the fast-path of the
+   * requests that need to locate a tablet. Its indexes are immutable, the
+   * index of a table is replaced at once with the tablets of each
+   * GetTableLocations response, after they were added to tablet2client.
+   * The third map is only used to handle TabletServer disconnections
+   * gracefully.
    *
    * This map is keyed by table ID.
    */
-  private final ConcurrentHashMap<String, ConcurrentSkipListMap<byte[],
-      RemoteTablet>> tabletsCache = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, TabletIntervalIndex> tabletsCache =
+      new ConcurrentHashMap<>();
 
   /**
    * Maps a tablet ID to the RemoteTablet that knows where all the replicas are served.
@@ -217,6 +215,9 @@ public class AsyncYBClient implements AutoCloseable {
    * us because we want to purge disconnected clients from the cache as
    * quickly as possible after the disconnection, to avoid handing out clients
    * that are going to cause unnecessary errors.
+   * <p>
+   * With several connections per server, only the primary connection is in
+   * this map and the others are reached through {@link ServerConnections}.
    * @see TabletClientPipeline#handleDisconnect
    */
   private final HashMap<String, TabletClient> ip2client =
@@ -227,6 +228,7 @@ public class AsyncYBClient implements AutoCloseable {
   // handling.
   static final String MASTER_TABLE_NAME_PLACEHOLDER =  "YB Master";
   final YBTable masterTable;
+  // Updated in place by master config changes while other threads look up the master leader.
   private final List<HostAndPort> masterAddresses;
 
   private final HashedWheelTimer timer = new HashedWheelTimer(20, MILLISECONDS);
@@ -252,7 +254,25 @@ public class AsyncYBClient implements AutoCloseable {
    */
   private final Semaphore masterLookups = new Semaphore(50);
 
-  private final Random sleepRandomizer = new Random();
+  /**
+   * Tablet lookups in flight, by table ID. While the master is looked up for a table, the
+   * partition keys of the table that miss the cache are queued, then looked up all at once.
+   * Access to this map must be synchronized by locking it.
+   * @see #locateTablet
+   */
+  private final HashMap<String, TabletLookup> tabletLookups = new HashMap<>();
+
+  /**
+   * The most tablets asked to the master at once when looking up several partition keys of a
+   * table or warming up its cache.
+   */
+  static final int MAX_RETURNED_TABLE_LOCATIONS = 100;
+
+  /**
+   * Number of ranges of a table that are looked up in parallel when warming up its cache.
+   * @see #warmUpTable
+   */
+  static final int WARM_UP_PARALLELISM = 8;
 
   private final long defaultOperationTimeoutMs;
 
@@ -260,19 +280,50 @@ public class AsyncYBClient implements AutoCloseable {
 
   private final long defaultSocketReadTimeoutMs;
 
+  private final boolean coalesceWrites;
+
+  private final int connectionsPerServer;
+
+  private final ConnectionSelection connectionSelection;
+
+  private final RetryPolicy retryPolicy;
+
+  // Latencies of the idempotent reads, from which the delay before hedging them is derived.
+  private final RpcLatencyTracker readLatencies = new RpcLatencyTracker();
+
+  private final ReplicaSelector replicaSelector;
+
+  // Latencies of the RPCs to each tablet server, from which replicas are ranked.
+  private final ServerLatencyTracker serverLatencies = new ServerLatencyTracker();
+
   private final String certFile;
 
   private volatile boolean closed;
 
   private AsyncYBClient(AsyncYBClientBuilder b) {
     this.channelFactory = b.createChannelFactory();
-    this.masterAddresses = b.masterAddresses;
+    this.masterAddresses = new CopyOnWriteArrayList<HostAndPort>(b.masterAddresses);
     this.masterTable = new YBTable(this, MASTER_TABLE_NAME_PLACEHOLDER,
         MASTER_TABLE_NAME_PLACEHOLDER, null, null);
     this.defaultOperationTimeoutMs = b.defaultOperationTimeoutMs;
     this.defaultAdminOperationTimeoutMs = b.defaultAdminOperationTimeoutMs;
     this.certFile = b.certFile;
     this.defaultSocketReadTimeoutMs = b.defaultSocketReadTimeoutMs;
+    this.coalesceWrites = b.coalesceWrites;
+    this.connectionsPerServer = b.connectionsPerServer;
+    this.connectionSelection = b.connectionSelection;
+    this.retryPolicy = b.retryPolicy;
+    this.replicaSelector = b.replicaSelector;
+  }
+
+  /**
+   * How RPCs to a server are spread over its connections when there are several of them.
+   */
+  public enum ConnectionSelection {
+    /** Each connection in turn. */
+    ROUND_ROBIN,
+    /** The connection with the fewest RPCs waiting for a response. */
+    LEAST_IN_FLIGHT
   }
 
   /**
@@ -388,6 +439,44 @@ public class AsyncYBClient implements AutoCloseable {
     return d.addCallback(cb);
   }
 
+  /**
+   * Get changes for a given tablet and stream from the tablet's leader. The leader is found
+   * through the tablet locations cache, and a server that turns out not to be the leader is
+   * demoted in that cache before the request is retried.
+   * @param table the table to get changes for.
+   * @param streamId the stream to get changes for.
+   * @param tabletId the tablet to get changes for.
+   * @param partitionKey the start key of the tablet's partition.
+   * @param term the leader term to start getting changes for.
+   * @param index the log index to start get changes for.
+   * @param cb the callback to call once the RPC returns.
+   * @return a deferred object for the response from server.
+   */
+  public Deferred<Void> getChanges(
+          YBTable table, String streamId, String tabletId, byte[] partitionKey, long term,
+          long index, Callback<Void, GetChangesResponse> cb) {
+    checkIsClosed();
+    GetChangesRequest rpc =
+        new GetChangesRequest(table, streamId, tabletId, partitionKey, term, index);
+    rpc.setTimeoutMillis(defaultAdminOperationTimeoutMs);
+    return sendRpcToTablet(rpc).addCallback(cb);
+  }
+
+  /**
+   * Get the OpId of the latest entry in the log of a tablet's leader.
+   * @param table the table the tablet belongs to.
+   * @param tabletId the tablet to look up.
+   * @param partitionKey the start key of the tablet's partition.
+   * @return a deferred object for the response from server.
+   */
+  public Deferred<GetLatestEntryOpIdResponse> getLatestEntryOpId(
+          YBTable table, String tabletId, byte[] partitionKey) {
+    checkIsClosed();
+    GetLatestEntryOpIdRequest rpc = new GetLatestEntryOpIdRequest(table, tabletId, partitionKey);
+    rpc.setTimeoutMillis(defaultAdminOperationTimeoutMs);
+    return sendRpcToTablet(rpc);
+  }
+
   /**
    * Check if the server is ready to serve requests.
    * @param hp host port of the server.
@@ -1066,7 +1155,35 @@ public class AsyncYBClient implements AutoCloseable {
     return defaultSocketReadTimeoutMs;
   }
 
+  /**
+   * Whether RPCs sent to a tablet server while a write to it is pending get written together.
+   * @return true if writes are coalesced
+   */
+  public boolean isCoalesceWrites() {
+    return coalesceWrites;
+  }
+
+  /**
+   * Returns the policy that decides how RPCs are retried.
+   * @return the retry policy
+   */
+  public RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  /**
+   * Returns the selector that decides which addresses and replicas RPCs are sent to.
+   * @return the replica selector
+   */
+  public ReplicaSelector getReplicaSelector() {
+    return replicaSelector;
+  }
+
   <R> Deferred<R> sendRpcToTablet(final YRpc<R> request) {
+    if (request.isHedgeLoser()) {
+      // The other copy of this RPC was answered first, there's nothing left to do.
+      return Deferred.fromResult(null);
+    }
     if (cannotRetryRequest(request)) {
       return tooManyAttemptsOrTimeout(request, null);
     }
@@ -1086,11 +1203,14 @@ public class AsyncYBClient implements AutoCloseable {
     }
 
     if (tablet != null) {
-      TabletClient tabletClient = clientFor(tablet);
+      TabletClient tabletClient = clientFor(tablet, request);
       if (tabletClient != null) {
         request.setTablet(tablet);
         final Deferred<R> d = request.getDeferred();
         tabletClient.sendRpc(request);
+        if (request.attempt == 1 && request.isIdempotentRead() && !request.isRetrySameServer()) {
+          scheduleHedge(request);
+        }
         return d;
       }
     }
@@ -1112,6 +1232,88 @@ public class AsyncYBClient implements AutoCloseable {
     return AsyncUtil.addCallbacksDeferring(returnedD, cb, eb);
   }
 
+  /**
+   * Sends a second copy of an idempotent read if it isn't answered within the delay given by the
+   * retry policy. The copy goes to another replica if the RPC allows follower reads, else on
+   * another connection to the same server, so that it doesn't queue up behind the first copy.
+   * RPCs that have nowhere else to go aren't hedged. The copy doesn't count as an attempt, and
+   * the first answer completes the RPC, later ones are ignored. A copy answered with an error
+   * while the other one is still in flight is dropped, only the last error gets retried.
+   */
+  private <R> void scheduleHedge(final YRpc<R> rpc) {
+    if (connectionsPerServer < 2 && !rpc.isFollowerReadAllowed()) {
+      return;
+    }
+    final long delayMs = retryPolicy.getHedgeDelayMs(readLatencies.getPercentileMs(0.99));
+    if (delayMs < 0 || rpc.deadlineTracker.wouldSleepingTimeout(delayMs)) {
+      return;
+    }
+    final class HedgeTimer implements TimerTask {
+      public void run(final Timeout timeout) {
+        if (rpc.hedged || rpc.attempt != 1) {
+          // Answered already, or failed and is being retried anyway.
+          return;
+        }
+        final TabletClient target = hedgeTargetFor(rpc);
+        if (target == null) {
+          return;
+        }
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("No answer after " + delayMs + "ms, sending a second copy of " + rpc +
+                    " to " + target);
+        }
+        rpc.hedgeCopiesInFlight.set(2);
+        rpc.hedged = true;
+        target.sendRpcOnConnection(rpc);
+      }
+    }
+    newTimeout(new HedgeTimer(), delayMs);
+  }
+
+  /**
+   * Returns the connection to send the second copy of an RPC on: one to the replica picked by
+   * the replica selector among the ones the first copy didn't go to if the RPC allows follower
+   * reads, else another connection to the same server, or null if there is none.
+   */
+  TabletClient hedgeTargetFor(YRpc<?> rpc) {
+    final TabletClient first = rpc.lastConnection;
+    if (first == null) {
+      return null;
+    }
+    final TabletClient server = first.getServerClient();
+    final RemoteTablet tablet = rpc.getTablet();
+    if (tablet != null && rpc.isFollowerReadAllowed()) {
+      synchronized (tablet.tabletServers) {
+        final int index = selectReplica(tablet, server);
+        if (index >= 0) {
+          return tablet.tabletServers.get(index);
+        }
+      }
+    }
+    final ServerConnections connections = server.getConnections();
+    return connections == null ? null : connections.pickOther(first);
+  }
+
+  /**
+   * Records how long a successful RPC took, for the server that answered it and, if it is one
+   * that may get hedged, for the reads.
+   */
+  void recordRpcLatency(YRpc<?> rpc, TabletClient server) {
+    if (rpc.isHedgeLoser()) {
+      return;
+    }
+    final long latencyNanos = System.nanoTime() - rpc.sendTimeNanos;
+    if (rpc.isIdempotentRead()) {
+      readLatencies.record(latencyNanos);
+    }
+    // The latency of a hedged RPC counts from its first copy, so it says little about the server
+    // that answered.
+    final String uuid = server.getUuid();
+    if (!rpc.hedged && uuid != null && !uuid.isEmpty()) {
+      serverLatencies.record(uuid, latencyNanos);
+    }
+  }
+
   /**
    * Callback used to retry a RPC after another query finished, like looking up where that RPC
    * should go.
@@ -1290,8 +1492,8 @@ public class AsyncYBClient implements AutoCloseable {
           new Exception("Exception created to collect stack trace"));
       attemptCount = 1;
     }
-    // TODO backoffs? Sleep in increments of 500 ms, plus some random time up to 50
-    long sleepTime = (attemptCount * SLEEP_TIME) + sleepRandomizer.nextInt(50);
+    long sleepTime = retryPolicy.getSleepTimeMs(attemptCount, rpc.lastSleepMs);
+    rpc.lastSleepMs = sleepTime;
     if (LOG.isDebugEnabled()) {
       LOG.debug("Going to sleep for " + sleepTime + " at retry " + rpc.attempt);
     }
@@ -1350,6 +1552,64 @@ public class AsyncYBClient implements AutoCloseable {
     }
   }
 
+  /**
+   * Returns the server to send an RPC to: the replica picked by the replica selector if the RPC
+   * allows follower reads, else the leader.
+   */
+  TabletClient clientFor(RemoteTablet tablet, YRpc<?> rpc) {
+    if (tablet == null || !rpc.isFollowerReadAllowed()) {
+      return clientFor(tablet);
+    }
+
+    synchronized (tablet.tabletServers) {
+      if (tablet.leaderIndex == RemoteTablet.NO_LEADER_INDEX) {
+        return null;
+      }
+      final int index = selectReplica(tablet, null);
+      if (index < 0) {
+        return null;
+      }
+      return tablet.tabletServers.get(index);
+    }
+  }
+
+  /**
+   * Asks the replica selector which replica of a tablet, other than the excluded server, gets an
+   * RPC that any replica can serve. Must be called with the tablet's servers synchronized.
+   * @param excluded a server not to pick, or null
+   * @return the index of the replica in the tablet's servers, or -1 if there's none to pick
+   */
+  private int selectReplica(RemoteTablet tablet, TabletClient excluded) {
+    final List<Integer> indexes = new ArrayList<Integer>(tablet.tabletServers.size());
+    final List<Common.CloudInfoPB> placements =
+        new ArrayList<Common.CloudInfoPB>(tablet.tabletServers.size());
+    int leaderIndex = 0;
+    for (int i = 0; i < tablet.tabletServers.size(); i++) {
+      if (tablet.tabletServers.get(i) == excluded) {
+        continue;
+      }
+      if (i == tablet.leaderIndex) {
+        leaderIndex = indexes.size();
+      }
+      indexes.add(i);
+      placements.add(tablet.placements.get(i));
+    }
+    if (indexes.isEmpty()) {
+      return -1;
+    }
+    final double[] latenciesMs = new double[indexes.size()];
+    for (int i = 0; i < indexes.size(); i++) {
+      latenciesMs[i] =
+          serverLatencies.getLatencyMs(tablet.tabletServers.get(indexes.get(i)).getUuid());
+    }
+    int selected = replicaSelector.selectReplica(
+        Collections.unmodifiableList(placements), latenciesMs, leaderIndex);
+    if (selected < 0 || selected >= indexes.size()) {
+      selected = leaderIndex;
+    }
+    return indexes.get(selected);
+  }
+
   /**
    * Checks whether or not an RPC can be retried once more.
    * @param rpc The RPC we're going to attempt to execute.
@@ -1384,13 +1644,34 @@ public class AsyncYBClient implements AutoCloseable {
 
   /**
    * Sends a getTableLocations RPC to the master to find the table's tablets.
+   * <p>
+   * There is at most one lookup in flight per table, other than the master table. The keys that
+   * miss the cache meanwhile are looked up together when it completes, with a single RPC for
+   * the range of tablets from the smallest to the largest key.
    * @param table table to lookup
    * @param partitionKey can be null, if not we'll find the exact tablet that contains it
    * @return Deferred to track the progress
    */
   Deferred<Master.GetTableLocationsResponsePB> locateTablet(YBTable table, byte[] partitionKey) {
-    final boolean has_permit = acquireMasterLookupPermit();
     String tableId = table.getTableId();
+    if (!isMasterTable(tableId)) {
+      final Deferred<Master.GetTableLocationsResponsePB> d = new Deferred<>();
+      final TabletLookup lookup;
+      synchronized (tabletLookups) {
+        TabletLookup inFlight = tabletLookups.get(tableId);
+        if (inFlight != null) {
+          inFlight.queue(partitionKey, d);
+          return d;
+        }
+        lookup = new TabletLookup(table);
+        lookup.queue(partitionKey, d);
+        tabletLookups.put(tableId, lookup);
+      }
+      sendTabletLookup(lookup);
+      return d;
+    }
+
+    final boolean has_permit = acquireMasterLookupPermit();
     if (!has_permit) {
       // If we failed to acquire a permit, it's worth checking if someone
       // looked up the tablet we're interested in.  Every once in a while
@@ -1400,18 +1681,9 @@ public class AsyncYBClient implements AutoCloseable {
         return Deferred.fromResult(null);  // Looks like no lookup needed.
       }
     }
-    GetTableLocationsRequest rpc =
-        new GetTableLocationsRequest(masterTable, partitionKey, partitionKey, tableId);
-    rpc.setTimeoutMillis(defaultAdminOperationTimeoutMs);
-    final Deferred<Master.GetTableLocationsResponsePB> d;
-
-    // If we know this is going to the master, check the master consensus configuration (as specified by
-    // 'masterAddresses' field) to determine and cache the current leader.
-    if (isMasterTable(tableId)) {
-      d = getMasterTableLocationsPB();
-    } else {
-      d = sendRpcToTablet(rpc);
-    }
+    // Since this is going to the master, check the master consensus configuration (as specified
+    // by 'masterAddresses' field) to determine and cache the current leader.
+    final Deferred<Master.GetTableLocationsResponsePB> d = getMasterTableLocationsPB();
     d.addCallback(new MasterLookupCB(table));
     if (has_permit) {
       d.addBoth(new ReleaseMasterLookupPermit<Master.GetTableLocationsResponsePB>());
@@ -1419,6 +1691,175 @@ public class AsyncYBClient implements AutoCloseable {
     return d;
   }
 
+  /**
+   * Partition keys of a table queued to be looked up, with the Deferreds of their callers.
+   */
+  private static final class TabletLookup {
+    final YBTable table;
+    List<byte[]> partitionKeys = new ArrayList<>();
+    List<Deferred<Master.GetTableLocationsResponsePB>> waiters = new ArrayList<>();
+
+    TabletLookup(YBTable table) {
+      this.table = table;
+    }
+
+    // Must be called with tabletLookups synchronized.
+    void queue(byte[] partitionKey, Deferred<Master.GetTableLocationsResponsePB> waiter) {
+      partitionKeys.add(partitionKey == null ? EMPTY_ARRAY : partitionKey);
+      waiters.add(waiter);
+    }
+  }
+
+  /**
+   * Looks up the keys queued in the lookup, then the ones queued meanwhile, and so on until
+   * there are none left.
+   */
+  private void sendTabletLookup(final TabletLookup lookup) {
+    final String tableId = lookup.table.getTableId();
+    final List<Deferred<Master.GetTableLocationsResponsePB>> waiters = new ArrayList<>();
+    byte[] startPartitionKey = null;
+    byte[] endPartitionKey = null;
+    while (true) {
+      final List<byte[]> partitionKeys;
+      final List<Deferred<Master.GetTableLocationsResponsePB>> queued;
+      synchronized (tabletLookups) {
+        if (lookup.partitionKeys.isEmpty()) {
+          if (waiters.isEmpty()) {
+            tabletLookups.remove(tableId);
+            return;
+          }
+          break;
+        }
+        partitionKeys = lookup.partitionKeys;
+        queued = lookup.waiters;
+        lookup.partitionKeys = new ArrayList<>();
+        lookup.waiters = new ArrayList<>();
+      }
+      for (int i = 0; i < partitionKeys.size(); i++) {
+        byte[] partitionKey = partitionKeys.get(i);
+        RemoteTablet tablet = getTablet(tableId, partitionKey);
+        if (tablet != null && clientFor(tablet) != null) {
+          // Found by the previous lookup.
+          queued.get(i).callback(null);
+          continue;
+        }
+        waiters.add(queued.get(i));
+        if (startPartitionKey == null || Bytes.memcmp(partitionKey, startPartitionKey) < 0) {
+          startPartitionKey = partitionKey;
+        }
+        if (endPartitionKey == null || Bytes.memcmp(partitionKey, endPartitionKey) > 0) {
+          endPartitionKey = partitionKey;
+        }
+      }
+    }
+
+    final boolean has_permit = acquireMasterLookupPermit();
+    GetTableLocationsRequest rpc = new GetTableLocationsRequest(masterTable, startPartitionKey,
+        endPartitionKey, tableId);
+    rpc.setMaxReturnedLocations(MAX_RETURNED_TABLE_LOCATIONS);
+    rpc.setTimeoutMillis(defaultAdminOperationTimeoutMs);
+    final Deferred<Object> d =
+        sendRpcToTablet(rpc).addCallback(new MasterLookupCB(lookup.table));
+    if (has_permit) {
+      d.addBoth(new ReleaseMasterLookupPermit<Object>());
+    }
+    d.addBoth(new Callback<Object, Object>() {
+      public Object call(final Object arg) {
+        for (Deferred<Master.GetTableLocationsResponsePB> waiter : waiters) {
+          waiter.callback(arg);
+        }
+        sendTabletLookup(lookup);
+        return arg;
+      }
+      public String toString() {
+        return "call back the lookups of table " + lookup.table.getName();
+      }
+    });
+  }
+
+  /**
+   * Fills the cache of the locations of the table's tablets, so that the first RPCs sent to the
+   * table don't have to look up their tablet. The partition keys are split in
+   * {@link #WARM_UP_PARALLELISM} ranges that are looked up in parallel, each range being fetched
+   * from the master by pages of up to {@link #MAX_RETURNED_TABLE_LOCATIONS} tablets.
+   * @param table the table whose tablets to look up
+   * @return a Deferred holding the number of tablets of the table in the cache, erred back if
+   *         looking them up took more than the default admin operation timeout
+   */
+  public Deferred<Integer> warmUpTable(final YBTable table) {
+    final String tableId = table.getTableId();
+    if (isMasterTable(tableId)) {
+      return locateTablet(table, null).addCallback(
+          new Callback<Integer, Master.GetTableLocationsResponsePB>() {
+            public Integer call(final Master.GetTableLocationsResponsePB arg) {
+              return getNumCachedTablets(tableId);
+            }
+          });
+    }
+    final DeadlineTracker deadlineTracker = new DeadlineTracker();
+    deadlineTracker.setDeadline(defaultAdminOperationTimeoutMs);
+    List<Deferred<Object>> ranges = new ArrayList<>(WARM_UP_PARALLELISM);
+    // Split on the first 2 bytes of the keys, i.e. the hash code in hash partitioned tables.
+    int rangeSize = (1 << 16) / WARM_UP_PARALLELISM;
+    for (int i = 0; i < WARM_UP_PARALLELISM; i++) {
+      int start = i * rangeSize;
+      int end = (i + 1) * rangeSize;
+      ranges.add(loopWarmUpTable(table,
+          i == 0 ? null : new byte[] { (byte) (start >> 8), (byte) start },
+          i == WARM_UP_PARALLELISM - 1 ? null : new byte[] { (byte) (end >> 8), (byte) end },
+          deadlineTracker));
+    }
+    return Deferred.group(ranges).addCallback(new Callback<Integer, ArrayList<Object>>() {
+      public Integer call(final ArrayList<Object> arg) {
+        return getNumCachedTablets(tableId);
+      }
+      public String toString() {
+        return "count the tablets of table " + table.getName();
+      }
+    });
+  }
+
+  private int getNumCachedTablets(String tableId) {
+    TabletIntervalIndex tablets = tabletsCache.get(tableId);
+    return tablets == null ? 0 : tablets.size();
+  }
+
+  private Deferred<Object> loopWarmUpTable(final YBTable table, final byte[] startPartitionKey,
+      final byte[] endPartitionKey, final DeadlineTracker deadlineTracker) {
+    if (deadlineTracker.timedOut()) {
+      return Deferred.fromError(new NonRecoverableException(
+          "Took too long warming up the tablets of table " + table.getName() + ", " +
+          deadlineTracker));
+    }
+    GetTableLocationsRequest rpc = new GetTableLocationsRequest(masterTable, startPartitionKey,
+        endPartitionKey, table.getTableId());
+    rpc.setMaxReturnedLocations(MAX_RETURNED_TABLE_LOCATIONS);
+    rpc.setTimeoutMillis(defaultAdminOperationTimeoutMs);
+    final Deferred<Master.GetTableLocationsResponsePB> d = sendRpcToTablet(rpc);
+    return d.addCallbackDeferring(
+        new Callback<Deferred<Object>, Master.GetTableLocationsResponsePB>() {
+          @Override
+          public Deferred<Object> call(GetTableLocationsResponsePB response) throws Exception {
+            discoverTablets(table, response);
+            int count = response.getTabletLocationsCount();
+            if (count == 0) {
+              return Deferred.fromResult(null);
+            }
+            byte[] lastEndPartition = response.getTabletLocations(count - 1).getPartition()
+                .getPartitionKeyEnd().toByteArray();
+            // Done if we got to the end of the table or of the range, or if the master didn't
+            // return anything past the start of the range.
+            if (lastEndPartition.length == 0
+                || (endPartitionKey != null && Bytes.memcmp(lastEndPartition, endPartitionKey) >= 0)
+                || (startPartitionKey != null
+                    && Bytes.memcmp(lastEndPartition, startPartitionKey) <= 0)) {
+              return Deferred.fromResult(null);
+            }
+            return loopWarmUpTable(table, lastEndPartition, endPartitionKey, deadlineTracker);
+          }
+        });
+  }
+
   /**
    * Update the master config: send RPCs to all config members, use the returned data to
    * fill a {@link Master.GetTabletLocationsResponsePB} object.
@@ -1540,7 +1981,12 @@ public class AsyncYBClient implements AutoCloseable {
    */
   <R> void handleTabletNotFound(final YRpc<R> rpc, YBException ex, TabletClient server) {
     invalidateTabletCache(rpc.getTablet(), server);
-    handleRetryableError(rpc, ex, server);
+    if (rpc.dropHedgeCopy()) {
+      return;
+    }
+    if (!retryOnOtherReplica(rpc, server)) {
+      delayedSendRpcToTablet(rpc, ex, server);
+    }
   }
 
   /**
@@ -1549,15 +1995,45 @@ public class AsyncYBClient implements AutoCloseable {
    */
   <R> void handleNotLeader(final YRpc<R> rpc, YBException ex, TabletClient server) {
     rpc.getTablet().demoteLeader(server);
-    handleRetryableError(rpc, ex, server);
+    if (rpc.dropHedgeCopy()) {
+      return;
+    }
+    if (!retryOnOtherReplica(rpc, server)) {
+      delayedSendRpcToTablet(rpc, ex, server);
+    }
+  }
+
+  /**
+   * Sends an RPC that a server just rejected to the tablet's next replica right away, if the
+   * retry policy allows it and there is another replica to try.
+   * @return true if the RPC was sent again, false if it should be retried after sleeping
+   */
+  private <R> boolean retryOnOtherReplica(final YRpc<R> rpc, TabletClient server) {
+    if (!retryPolicy.retryOnOtherReplica() || rpc.isRetrySameServer() ||
+        cannotRetryRequest(rpc)) {
+      return false;
+    }
+    final RemoteTablet tablet = rpc.getTablet();
+    final TabletClient next = clientFor(tablet);
+    if (next == null || next == server || rpc.immediateRetries >= tablet.getNumReplicas()) {
+      return false;
+    }
+    rpc.immediateRetries++;
+    sendRpcToTablet(rpc);
+    return true;
   }
 
   <R> void handleRetryableError(final YRpc<R> rpc, YBException ex, TabletClient server) {
-    // TODO we don't always need to sleep, maybe another replica can serve this RPC.
+    if (rpc.dropHedgeCopy()) {
+      return;
+    }
     delayedSendRpcToTablet(rpc, ex, server);
   }
 
   private <R> void delayedSendRpcToTablet(final YRpc<R> rpc, YBException ex, TabletClient server) {
+    if (rpc.isHedgeLoser()) {
+      return;
+    }
     // Here we simply retry the RPC later. We might be doing this along with a lot of other RPCs
     // in parallel. Asynchbase does some hacking with a "probe" RPC while putting the other ones
     // on hold but we won't be doing this for the moment. Regions in HBase can move a lot,
@@ -1644,44 +2120,39 @@ public class AsyncYBClient implements AutoCloseable {
       tablesNotServed.add(tableId);
       return;
     }
-    // Doing a get first instead of putIfAbsent to avoid creating unnecessary CSLMs because in
-    // the most common case the table should already be present
-    ConcurrentSkipListMap<byte[], RemoteTablet> tablets = tabletsCache.get(tableId);
-    if (tablets == null) {
-      tablets = new ConcurrentSkipListMap<>(Bytes.MEMCMP);
-      ConcurrentSkipListMap<byte[], RemoteTablet> oldTablets = tabletsCache.putIfAbsent
-          (tableId, tablets);
-      if (oldTablets != null) {
-        tablets = oldTablets;
-      }
-    }
-
-    for (Master.TabletLocationsPB tabletPb : response.getTabletLocationsList()) {
-      // Early creating the tablet so that it parses out the pb
-      RemoteTablet rt = createTabletFromPb(tableId, tabletPb);
-      Slice tabletId = rt.tabletId;
+    List<RemoteTablet> newTablets = new ArrayList<>(response.getTabletLocationsCount());
+    try {
+      for (Master.TabletLocationsPB tabletPb : response.getTabletLocationsList()) {
+        // Early creating the tablet so that it parses out the pb
+        RemoteTablet rt = createTabletFromPb(tableId, tabletPb);
+        Slice tabletId = rt.tabletId;
+
+        // If we already know about this one, just refresh the locations
+        RemoteTablet currentTablet = tablet2client.get(tabletId);
+        if (currentTablet != null) {
+          currentTablet.refreshServers(tabletPb);
+          continue;
+        }
 
-      // If we already know about this one, just refresh the locations
-      RemoteTablet currentTablet = tablet2client.get(tabletId);
-      if (currentTablet != null) {
-        currentTablet.refreshServers(tabletPb);
-        continue;
+        // Putting it here first doesn't make it visible because tabletsCache is always looked up
+        // first.
+        RemoteTablet oldRt = tablet2client.putIfAbsent(tabletId, rt);
+        if (oldRt != null) {
+          // someone beat us to it
+          continue;
+        }
+        LOG.info("Discovered tablet {} for table {} with partition {}",
+                 tabletId.toString(Charset.defaultCharset()), tableName, rt.getPartition());
+        rt.refreshServers(tabletPb);
+        newTablets.add(rt);
       }
-
-      // Putting it here first doesn't make it visible because tabletsCache is always looked up
-      // first.
-      RemoteTablet oldRt = tablet2client.putIfAbsent(tabletId, rt);
-      if (oldRt != null) {
-        // someone beat us to it
-        continue;
+    } finally {
+      // This is making the new tablets available, all at once. Even if two clients were racing
+      // in this method, only one of them found each new tablet in tablet2client.
+      if (!newTablets.isEmpty()) {
+        tabletsCache.compute(tableId, (id, tablets) ->
+            (tablets == null ? TabletIntervalIndex.empty() : tablets).withTablets(newTablets));
       }
-      LOG.info("Discovered tablet {} for table {} with partition {}",
-               tabletId.toString(Charset.defaultCharset()), tableName, rt.getPartition());
-      rt.refreshServers(tabletPb);
-      // This is making this tablet available
-      // Even if two clients were racing in this method they are putting the same RemoteTablet
-      // with the same start key in the CSLM in the end
-      tablets.put(rt.getPartition().getPartitionKeyStart(), rt);
     }
   }
 
@@ -1698,7 +2169,7 @@ public class AsyncYBClient implements AutoCloseable {
    * @return a tablet ID as a slice or null if not found
    */
   RemoteTablet getTablet(String tableId, byte[] partitionKey) {
-    ConcurrentSkipListMap<byte[], RemoteTablet> tablets = tabletsCache.get(tableId);
+    TabletIntervalIndex tablets = tabletsCache.get(tableId);
 
     if (tablets == null) {
       return null;
@@ -1706,28 +2177,10 @@ public class AsyncYBClient implements AutoCloseable {
 
     // We currently only have one master tablet.
     if (isMasterTable(tableId)) {
-      if (tablets.firstEntry() == null) {
-        return null;
-      }
-      return tablets.firstEntry().getValue();
+      return tablets.first();
     }
 
-    Map.Entry<byte[], RemoteTablet> tabletPair = tablets.floorEntry(partitionKey);
-
-    if (tabletPair == null) {
-      return null;
-    }
-
-    Partition partition = tabletPair.getValue().getPartition();
-
-    // If the partition is not the end partition, but it doesn't include the key
-    // we are looking for, then we have not yet found the correct tablet.
-    if (!partition.isEndPartition()
-        && Bytes.memcmp(partitionKey, partition.getPartitionKeyEnd()) >= 0) {
-      return null;
-    }
-
-    return tabletPair.getValue();
+    return tablets.lookup(partitionKey);
   }
 
   /**
@@ -1786,10 +2239,33 @@ public class AsyncYBClient implements AutoCloseable {
       }
       final TabletClientPipeline pipeline = new TabletClientPipeline();
       client = pipeline.init(uuid);
+      if (connectionsPerServer > 1) {
+        client.setConnections(new ServerConnections(this, client, uuid, host, port,
+                                                    connectionsPerServer, connectionSelection));
+      }
       chan = channelFactory.newChannel(pipeline);
       ip2client.put(hostport, client);  // This is guaranteed to return null.
     }
     this.client2tablets.put(client, new ArrayList<RemoteTablet>());
+    connect(chan, host, port);
+    return client;
+  }
+
+  /**
+   * Opens one more connection to a server, besides the one in ip2client. The new connection
+   * isn't cached anywhere else than in {@code connections}.
+   * @return the channel of the new connection, whose pipeline holds its TabletClient
+   */
+  SocketChannel newSecondaryConnection(ServerConnections connections, String uuid, String host,
+                                       int port) {
+    final TabletClientPipeline pipeline = new TabletClientPipeline();
+    pipeline.init(uuid).setConnections(connections);
+    final SocketChannel chan = channelFactory.newChannel(pipeline);
+    connect(chan, host, port);
+    return chan;
+  }
+
+  private void connect(SocketChannel chan, String host, int port) {
     final SocketChannelConfig config = chan.getConfig();
     config.setConnectTimeoutMillis(5000);
     config.setTcpNoDelay(true);
@@ -1798,7 +2274,6 @@ public class AsyncYBClient implements AutoCloseable {
     // TCP_KEEPIDLE.  And of course the default timeout is >2h. Sigh.
     config.setKeepAlive(true);
     chan.connect(new InetSocketAddress(host, port));  // Won't block.
-    return client;
   }
 
   /**
@@ -1889,6 +2364,11 @@ public class AsyncYBClient implements AutoCloseable {
 
     for (TabletClient ts : ip2client_copy.values()) {
       deferreds.add(ts.shutdown());
+      if (ts.getConnections() != null) {
+        for (TabletClient connection : ts.getConnections().getSecondaries()) {
+          deferreds.add(connection.shutdown());
+        }
+      }
     }
     final int size = deferreds.size();
     return Deferred.group(deferreds).addCallback(
@@ -2067,6 +2547,7 @@ public class AsyncYBClient implements AutoCloseable {
                 defaultSocketReadTimeoutMs,
                 TimeUnit.MILLISECONDS));
       }
+      super.addLast("yb-frame-decoder", new RpcFrameDecoder());
       super.addLast("yb-handler", client);
 
       return client;
@@ -2146,6 +2627,12 @@ public class AsyncYBClient implements AutoCloseable {
       disconnected = true;  // So we don't clean up the same client twice.
       try {
         final TabletClient client = super.get(TabletClient.class);
+        final ServerConnections connections = client.getConnections();
+        if (connections != null && connections.getPrimary() != client) {
+          // Only the primary connection to a server is in the caches.
+          connections.remove(client);
+          return;
+        }
         SocketAddress remote = super.getChannel().getRemoteAddress();
         // At this point Netty gives us no easy way to access the
         // SocketAddress of the peer we tried to connect to. This
@@ -2159,6 +2646,9 @@ public class AsyncYBClient implements AutoCloseable {
         synchronized (client) {
           removeClientFromCache(client, remote);
         }
+        if (connections != null) {
+          connections.closeSecondaries();
+        }
       } catch (Exception e) {
         log.error("Uncaught exception when handling a disconnection of " + getChannel(), e);
       }
@@ -2259,6 +2749,8 @@ public class AsyncYBClient implements AutoCloseable {
     private final String tableId;
     private final Slice tabletId;
     private final ArrayList<TabletClient> tabletServers = new ArrayList<TabletClient>();
+    // Placement of each of the tabletServers, at the same index.
+    private final ArrayList<Common.CloudInfoPB> placements = new ArrayList<Common.CloudInfoPB>();
     private final Partition partition;
     private int leaderIndex = NO_LEADER_INDEX;
 
@@ -2272,26 +2764,24 @@ public class AsyncYBClient implements AutoCloseable {
 
       synchronized (tabletServers) { // TODO not a fat lock with IP resolving in it
         tabletServers.clear();
+        placements.clear();
         leaderIndex = NO_LEADER_INDEX;
         List<UnknownHostException> lookupExceptions =
             new ArrayList<>(tabletLocations.getReplicasCount());
         for (Master.TabletLocationsPB.ReplicaPB replica : tabletLocations.getReplicasList()) {
 
-          List<Common.HostPortPB> addresses = replica.getTsInfo().getBroadcastAddressesList();
-          if (addresses.isEmpty()) {
-            addresses = replica.getTsInfo().getPrivateRpcAddressesList();
-          }
-          if (addresses.isEmpty()) {
+          Master.TSInfoPB tsInfo = replica.getTsInfo();
+          if (tsInfo.getBroadcastAddressesCount() == 0 &&
+              tsInfo.getPrivateRpcAddressesCount() == 0) {
             LOG.warn("Tablet server for tablet " + getTabletIdAsString() + " doesn't have any " +
                 "address");
             continue;
           }
-          String uuid = replica.getTsInfo().getPermanentUuid().toStringUtf8();
-          // from meta_cache.cc
-          // TODO: if the TS advertises multiple host/ports, pick the right one
-          // based on some kind of policy. For now just use the first always.
+          String uuid = tsInfo.getPermanentUuid().toStringUtf8();
+          Common.HostPortPB address = replicaSelector.selectAddress(tsInfo.getCloudInfo(),
+              tsInfo.getBroadcastAddressesList(), tsInfo.getPrivateRpcAddressesList());
           try {
-            addTabletClient(uuid, addresses.get(0).getHost(), addresses.get(0).getPort(),
+            addTabletClient(uuid, address.getHost(), address.getPort(), tsInfo.getCloudInfo(),
                 replica.getRole().equals(Metadata.RaftPeerPB.Role.LEADER));
           } catch (UnknownHostException ex) {
             lookupExceptions.add(ex);
@@ -2313,8 +2803,8 @@ public class AsyncYBClient implements AutoCloseable {
     }
 
     // Must be called with tabletServers synchronized
-    void addTabletClient(String uuid, String host, int port, boolean isLeader)
-        throws UnknownHostException {
+    void addTabletClient(String uuid, String host, int port, Common.CloudInfoPB placement,
+                         boolean isLeader) throws UnknownHostException {
       String ip = getIP(host);
       if (ip == null) {
         throw new UnknownHostException("Failed to resolve the IP of `" + host + "'");
@@ -2326,13 +2816,15 @@ public class AsyncYBClient implements AutoCloseable {
       if (tablets == null) {
         // We raced with removeClientFromCache and lost. The client we got was just disconnected.
         // Reconnect.
-        addTabletClient(uuid, host, port, isLeader);
+        addTabletClient(uuid, host, port, placement, isLeader);
       } else {
         synchronized (tablets) {
           if (isLeader) {
             tabletServers.add(0, client);
+            placements.add(0, placement);
           } else {
             tabletServers.add(client);
+            placements.add(placement);
           }
           tablets.add(this);
         }
@@ -2359,6 +2851,7 @@ public class AsyncYBClient implements AutoCloseable {
         }
 
         tabletServers.remove(index);
+        placements.remove(index);
         if (leaderIndex == index && leaderIndex == tabletServers.size()) {
           leaderIndex = NO_LEADER_INDEX;
         } else if (leaderIndex > index) {
@@ -2370,6 +2863,12 @@ public class AsyncYBClient implements AutoCloseable {
       }
     }
 
+    int getNumReplicas() {
+      synchronized (tabletServers) {
+        return tabletServers.size();
+      }
+    }
+
     /**
      * If the passed TabletClient is the current leader, then the next one in the list will be
      * "promoted" unless we're at the end of the list, in which case we set the leaderIndex to
@@ -2468,6 +2967,11 @@ public class AsyncYBClient implements AutoCloseable {
     private long defaultAdminOperationTimeoutMs = DEFAULT_OPERATION_TIMEOUT_MS;
     private long defaultOperationTimeoutMs = DEFAULT_OPERATION_TIMEOUT_MS;
     private long defaultSocketReadTimeoutMs = DEFAULT_SOCKET_READ_TIMEOUT_MS;
+    private boolean coalesceWrites = false;
+    private int connectionsPerServer = 1;
+    private ConnectionSelection connectionSelection = ConnectionSelection.ROUND_ROBIN;
+    private RetryPolicy retryPolicy = new LinearRetryPolicy();
+    private ReplicaSelector replicaSelector = new LeaderReplicaSelector();
 
     private String certFile = null;
 
@@ -2550,6 +3054,73 @@ public class AsyncYBClient implements AutoCloseable {
       return this;
     }
 
+    /**
+     * Sets whether to coalesce writes to tablet servers. When enabled, the RPCs sent to a tablet
+     * server while a write to it is waiting for its IO thread are written together, trading a
+     * thread hop per write for fewer syscalls under high concurrency.
+     * Optional.
+     * If not provided, defaults to false.
+     * @param coalesceWrites whether to coalesce writes
+     * @return this builder
+     */
+    public AsyncYBClientBuilder coalesceWrites(boolean coalesceWrites) {
+      this.coalesceWrites = coalesceWrites;
+      return this;
+    }
+
+    /**
+     * Sets the number of connections to open to each server. RPCs to a server are spread over
+     * its connections, and so over that many Netty worker threads.
+     * Optional.
+     * If not provided, defaults to 1.
+     * @param connectionsPerServer the number of connections per server
+     * @return this builder
+     */
+    public AsyncYBClientBuilder connectionsPerServer(int connectionsPerServer) {
+      Preconditions.checkArgument(connectionsPerServer > 0,
+          "connectionsPerServer should be greater than 0");
+      this.connectionsPerServer = connectionsPerServer;
+      return this;
+    }
+
+    /**
+     * Sets how RPCs to a server are spread over its connections when there are several.
+     * Optional.
+     * If not provided, defaults to {@link ConnectionSelection#ROUND_ROBIN}.
+     * @param connectionSelection the selection policy
+     * @return this builder
+     */
+    public AsyncYBClientBuilder connectionSelection(ConnectionSelection connectionSelection) {
+      this.connectionSelection = Preconditions.checkNotNull(connectionSelection);
+      return this;
+    }
+
+    /**
+     * Sets the policy that decides how long RPCs sleep before being retried, whether they are
+     * retried on another replica right away and whether slow reads are sent twice.
+     * Optional.
+     * If not provided, defaults to a {@link LinearRetryPolicy}.
+     * @param retryPolicy the retry policy
+     * @return this builder
+     */
+    public AsyncYBClientBuilder retryPolicy(RetryPolicy retryPolicy) {
+      this.retryPolicy = Preconditions.checkNotNull(retryPolicy);
+      return this;
+    }
+
+    /**
+     * Sets the selector that decides which address of each tablet server to connect to, and
+     * which replica gets the RPCs that allow follower reads. Writes always go to the leader.
+     * Optional.
+     * If not provided, defaults to a {@link LeaderReplicaSelector}.
+     * @param replicaSelector the replica selector
+     * @return this builder
+     */
+    public AsyncYBClientBuilder replicaSelector(ReplicaSelector replicaSelector) {
+      this.replicaSelector = Preconditions.checkNotNull(replicaSelector);
+      return this;
+    }
+
     /**
      * Sets the certificate file in case SSL is enabled.
      * Optional.
@@ -35,13 +35,16 @@ import java.util.List;
 
 import org.yb.annotations.InterfaceAudience;
 import org.yb.rpc.RpcHeader;
-import org.yb.util.Slice;
 
 import org.jboss.netty.buffer.ChannelBuffer;
 
 /**
  * This class handles information received from an RPC response, providing
  * access to sidecars and decoded protobufs from the message.
+ * <p>
+ * The header, the main message and the sidecars are slices of the inbound
+ * buffer rather than copies, so they are only valid until the buffer is
+ * handed back to Netty, that is for the duration of the decode call.
  */
 @InterfaceAudience.Private
 final class CallResponse {
@@ -50,7 +53,7 @@ final class CallResponse {
   private final int totalResponseSize;
 
   // Non-header main message slice is generated upon request and cached.
-  private Slice message = null;
+  private ChannelBuffer message = null;
 
   /**
    * Performs some sanity checks on the sizes recorded in the packet
@@ -74,7 +77,7 @@ final class CallResponse {
       TabletClient.ensureReadable(buf, this.totalResponseSize);
 
       final int headerSize = Bytes.readVarInt32(buf);
-      final Slice headerSlice = nextBytes(buf, headerSize);
+      final ChannelBuffer headerSlice = nextBytes(buf, headerSize);
       RpcHeader.ResponseHeader.Builder builder = RpcHeader.ResponseHeader.newBuilder();
       YRpc.readProtobuf(headerSlice, builder);
       this.header = builder.build();
@@ -108,16 +111,16 @@ final class CallResponse {
    * @throws IllegalStateException If the offset for the main protobuf message
    * is not valid.
    */
-  public Slice getPBMessage() {
+  public ChannelBuffer getPBMessage() {
     cacheMessage();
     final int mainLength = this.header.getSidecarOffsetsCount() == 0 ?
-        this.message.length() : this.header.getSidecarOffsets(0);
-    if (mainLength < 0 || mainLength > this.message.length()) {
+        this.message.readableBytes() : this.header.getSidecarOffsets(0);
+    if (mainLength < 0 || mainLength > this.message.readableBytes()) {
       throw new IllegalStateException("Main protobuf message invalid. "
           + "Length is " + mainLength + " while the size of the message "
-          + "excluding the header is " + this.message.length());
+          + "excluding the header is " + this.message.readableBytes());
     }
-    return subslice(this.message, 0, mainLength);
+    return this.message.slice(0, mainLength);
   }
 
   /**
@@ -131,7 +134,7 @@ final class CallResponse {
    * is not within reasonable limits as defined by
    * {@link YRpc#checkArrayLength(ChannelBuffer, long)}.
    */
-  public Slice getSidecar(int sidecar) {
+  public ChannelBuffer getSidecar(int sidecar) {
     cacheMessage();
 
     List<Integer> sidecarList = this.header.getSidecarOffsetsList();
@@ -142,16 +145,16 @@ final class CallResponse {
 
     final int prevOffset = sidecarList.get(sidecar);
     final int nextOffset = sidecar + 1 == sidecarList.size() ?
-        this.message.length() : sidecarList.get(sidecar + 1);
+        this.message.readableBytes() : sidecarList.get(sidecar + 1);
     final int length = nextOffset - prevOffset;
 
-    if (prevOffset < 0 || length < 0 || prevOffset + length > this.message.length()) {
+    if (prevOffset < 0 || length < 0 || prevOffset + length > this.message.readableBytes()) {
       throw new IllegalStateException("Sidecar " + sidecar + " invalid "
           + "(offset = " + prevOffset + ", length = " + length + "). The size "
-          + "of the message " + "excluding the header is " + this.message.length());
+          + "of the message " + "excluding the header is " + this.message.readableBytes());
     }
 
-    return subslice(this.message, prevOffset, length);
+    return this.message.slice(prevOffset, length);
   }
 
   // Reads the message after the header if not read yet
@@ -161,25 +164,10 @@ final class CallResponse {
     this.message = nextBytes(buf, length);
   }
 
-  // Accounts for a parent slice's offset when making a new one with relative offsets.
-  private static Slice subslice(Slice parent, int offset, int length) {
-    return new Slice(parent.getRawArray(), parent.getRawOffset() + offset, length);
-  }
-
-  // After checking the length, generates a slice for the next 'length'
-  // bytes of 'buf'.
-  private static Slice nextBytes(final ChannelBuffer buf, final int length) {
+  // After checking the length, returns a slice of the next 'length' bytes of
+  // 'buf', without copying them, and moves past them.
+  private static ChannelBuffer nextBytes(final ChannelBuffer buf, final int length) {
     YRpc.checkArrayLength(buf, length);
-    byte[] payload;
-    int offset;
-    if (buf.hasArray()) {  // Zero copy.
-      payload = buf.array();
-      offset = buf.arrayOffset() + buf.readerIndex();
-    } else {  // We have to copy the entire payload out of the buffer :(
-      payload = new byte[length];
-      buf.readBytes(payload);
-      offset = 0;
-    }
-    return new Slice(payload, offset, length);
+    return buf.readSlice(length);
   }
 }
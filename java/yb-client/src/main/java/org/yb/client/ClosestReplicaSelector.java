@@ -0,0 +1,104 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import com.google.common.base.Preconditions;
+import org.yb.Common;
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+
+import java.util.List;
+
+/**
+ * Sends the RPCs that can be served by any replica to the closest one: the replica placed the
+ * closest to the preferred cloud, region and zone, and among those the one whose tablet server
+ * answered the fastest lately. Replicas that weren't measured yet count as the fastest, so that
+ * they get measured. On ties, the leader is kept.
+ * <p>
+ * Tablet servers in the preferred cloud and region are reached through their private addresses,
+ * the other ones through their broadcast addresses when they have some.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class ClosestReplicaSelector implements ReplicaSelector {
+
+  private final String cloud;
+  private final String region;
+  private final String zone;
+
+  /**
+   * Ranks the replicas by latency only.
+   */
+  public ClosestReplicaSelector() {
+    this(null, null, null);
+  }
+
+  /**
+   * @param cloud the preferred cloud, or null to rank the replicas by latency only
+   * @param region the preferred region of that cloud, or null
+   * @param zone the preferred zone of that region, or null
+   */
+  public ClosestReplicaSelector(String cloud, String region, String zone) {
+    Preconditions.checkArgument(cloud != null || region == null,
+        "region should not be set without cloud");
+    Preconditions.checkArgument(region != null || zone == null,
+        "zone should not be set without region");
+    this.cloud = cloud;
+    this.region = region;
+    this.zone = zone;
+  }
+
+  // How many of the preferred cloud, region and zone the placement is in.
+  private int locality(Common.CloudInfoPB placement) {
+    if (cloud == null || !cloud.equals(placement.getPlacementCloud())) {
+      return 0;
+    }
+    if (region == null || !region.equals(placement.getPlacementRegion())) {
+      return 1;
+    }
+    if (zone == null || !zone.equals(placement.getPlacementZone())) {
+      return 2;
+    }
+    return 3;
+  }
+
+  @Override
+  public Common.HostPortPB selectAddress(Common.CloudInfoPB placement,
+                                         List<Common.HostPortPB> broadcastAddresses,
+                                         List<Common.HostPortPB> privateAddresses) {
+    if (!privateAddresses.isEmpty() &&
+        (broadcastAddresses.isEmpty() || locality(placement) >= 2)) {
+      return privateAddresses.get(0);
+    }
+    return broadcastAddresses.get(0);
+  }
+
+  @Override
+  public int selectReplica(List<Common.CloudInfoPB> placements, double[] latenciesMs,
+                           int leaderIndex) {
+    int best = leaderIndex;
+    int bestLocality = locality(placements.get(leaderIndex));
+    double bestLatencyMs = Math.max(latenciesMs[leaderIndex], 0);
+    for (int i = 0; i < placements.size(); i++) {
+      int locality = locality(placements.get(i));
+      double latencyMs = Math.max(latenciesMs[i], 0);
+      if (locality > bestLocality || (locality == bestLocality && latencyMs < bestLatencyMs)) {
+        best = i;
+        bestLocality = locality;
+        bestLatencyMs = latencyMs;
+      }
+    }
+    return best;
+  }
+}
@@ -0,0 +1,98 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import com.google.common.base.Preconditions;
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with decorrelated jitter: each sleep is drawn at random between the base
+ * sleep time and three times the previous sleep, capped at the maximum sleep time. Sleeps grow
+ * quickly while retries of different RPCs spread out instead of hitting the servers in waves.
+ * <p>
+ * By default, RPCs rejected because a server isn't the leader or doesn't host the tablet are
+ * sent right away to the next replica, and no second copies of reads are sent. Configure the
+ * policy before passing it to {@link AsyncYBClient.AsyncYBClientBuilder#retryPolicy}.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class ExponentialJitterRetryPolicy implements RetryPolicy {
+
+  // Second copies are never sent sooner than this, however fast reads usually are.
+  static final long MIN_HEDGE_DELAY_MS = 5;
+
+  private final long baseSleepMs;
+  private final long maxSleepMs;
+  private boolean retryOnOtherReplica = true;
+  private boolean hedgeReads = false;
+
+  /**
+   * @param baseSleepMs the shortest sleep, in milliseconds
+   * @param maxSleepMs the longest sleep, in milliseconds
+   */
+  public ExponentialJitterRetryPolicy(long baseSleepMs, long maxSleepMs) {
+    Preconditions.checkArgument(baseSleepMs > 0, "baseSleepMs should be greater than 0");
+    Preconditions.checkArgument(maxSleepMs >= baseSleepMs,
+        "maxSleepMs should be at least baseSleepMs");
+    this.baseSleepMs = baseSleepMs;
+    this.maxSleepMs = maxSleepMs;
+  }
+
+  /**
+   * Sets whether RPCs rejected because a server isn't the leader or doesn't host the tablet are
+   * sent right away to the next replica.
+   * If not set, defaults to true.
+   * @param retryOnOtherReplica whether to retry on another replica without sleeping
+   * @return this policy
+   */
+  public ExponentialJitterRetryPolicy setRetryOnOtherReplica(boolean retryOnOtherReplica) {
+    this.retryOnOtherReplica = retryOnOtherReplica;
+    return this;
+  }
+
+  /**
+   * Sets whether a second copy of an idempotent read is sent once it has been waiting for longer
+   * than 99% of recent reads took.
+   * If not set, defaults to false.
+   * @param hedgeReads whether to send second copies of slow reads
+   * @return this policy
+   */
+  public ExponentialJitterRetryPolicy setHedgeReads(boolean hedgeReads) {
+    this.hedgeReads = hedgeReads;
+    return this;
+  }
+
+  @Override
+  public long getSleepTimeMs(int attempt, long previousSleepMs) {
+    final long upper = Math.max(baseSleepMs, previousSleepMs) * 3;
+    final long sleepTimeMs = ThreadLocalRandom.current().nextLong(baseSleepMs, upper + 1);
+    return Math.min(maxSleepMs, sleepTimeMs);
+  }
+
+  @Override
+  public boolean retryOnOtherReplica() {
+    return retryOnOtherReplica;
+  }
+
+  @Override
+  public long getHedgeDelayMs(long p99LatencyMs) {
+    if (!hedgeReads || p99LatencyMs < 0) {
+      return -1;
+    }
+    return Math.max(MIN_HEDGE_DELAY_MS, p99LatencyMs);
+  }
+}
@@ -17,25 +17,41 @@ import com.google.protobuf.ByteString;
 import com.google.protobuf.Message;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.yb.Opid;
+import org.yb.WireProtocol;
 import org.yb.cdc.CdcService;
+import org.yb.tserver.Tserver;
 import org.yb.util.Pair;
 import org.yb.cdc.CdcService.GetChangesRequestPB;
 import org.yb.cdc.CdcService.GetChangesResponsePB;
 
-public class GetChangesRequest extends YRpc<GetChangesResponse> {
+public class GetChangesRequest extends YRpc<GetChangesResponse> implements YRpc.HasKey {
   private final String streamId;
   private final String tabletId;
   private final long term;
   private final long index;
+  // Start of the tablet's partition, used to route the request to the tablet's leader. Null when
+  // the request is sent to a given tablet server, which then proxies it to the leader.
+  private final byte[] partitionKey;
 
   public GetChangesRequest(YBTable table, String streamId, String tabletId, long term, long index) {
+    this(table, streamId, tabletId, null, term, index);
+  }
+
+  public GetChangesRequest(YBTable table, String streamId, String tabletId, byte[] partitionKey,
+                           long term, long index) {
     super(table);
     this.streamId = streamId;
     this.tabletId = tabletId;
+    this.partitionKey = partitionKey;
     this.term = term;
     this.index = index;
   }
 
+  @Override
+  public byte[] partitionKey() {
+    return partitionKey;
+  }
+
   @Override
   ChannelBuffer serialize(Message header) {
     assert header.isInitialized();
@@ -48,6 +64,10 @@ public class GetChangesRequest extends YRpc<GetChangesResponse> {
       checkpointBuilder.setOpId(Opid.OpIdPB.newBuilder().setIndex(this.index).setTerm(this.term));
       builder.setFromCheckpoint(checkpointBuilder);
     }
+    if (partitionKey != null) {
+      // We are talking to the server we believe is the leader, let it tell us if it isn't.
+      builder.setServeAsProxy(false);
+    }
     return toChannelBuffer(header, builder.build());
   }
 
@@ -66,7 +86,39 @@ public class GetChangesRequest extends YRpc<GetChangesResponse> {
     readProtobuf(callResponse.getPBMessage(), respBuilder);
     GetChangesResponse response = new GetChangesResponse(
             deadlineTracker.getElapsedMillis(), uuid, respBuilder.build());
-    return new Pair<GetChangesResponse, Object>(
-            response, respBuilder.hasError() ? respBuilder.getError() : null);
+    Object error = respBuilder.hasError() ? respBuilder.getError() : null;
+    if (partitionKey != null && respBuilder.hasError()) {
+      Tserver.TabletServerErrorPB tsError = toTabletServerError(respBuilder.getError());
+      if (tsError != null) {
+        error = tsError;
+      }
+    }
+    return new Pair<GetChangesResponse, Object>(response, error);
+  }
+
+  /**
+   * Translates the CDC errors that mean the server we picked can't serve this tablet into the
+   * tablet server errors TabletClient already knows how to handle, so that the cached leader
+   * gets demoted and the request retried.
+   * @return the matching tablet server error, or null if the error should go to the caller.
+   */
+  private static Tserver.TabletServerErrorPB toTabletServerError(CdcService.CDCErrorPB error) {
+    Tserver.TabletServerErrorPB.Code code;
+    switch (error.getCode()) {
+      case TABLET_NOT_FOUND:
+      case NOT_LEADER:
+        code = Tserver.TabletServerErrorPB.Code.NOT_THE_LEADER;
+        break;
+      case LEADER_NOT_READY:
+        code = Tserver.TabletServerErrorPB.Code.LEADER_NOT_READY_TO_SERVE;
+        break;
+      default:
+        return null;
+    }
+    WireProtocol.AppStatusPB status = error.hasStatus() ? error.getStatus() :
+        WireProtocol.AppStatusPB.newBuilder()
+            .setCode(WireProtocol.AppStatusPB.ErrorCode.UNKNOWN_ERROR)
+            .build();
+    return Tserver.TabletServerErrorPB.newBuilder().setCode(code).setStatus(status).build();
   }
 }
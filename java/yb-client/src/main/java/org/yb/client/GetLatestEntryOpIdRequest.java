@@ -0,0 +1,72 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.yb.util.Pair;
+import org.yb.cdc.CdcService.GetLatestEntryOpIdRequestPB;
+import org.yb.cdc.CdcService.GetLatestEntryOpIdResponsePB;
+
+public class GetLatestEntryOpIdRequest extends YRpc<GetLatestEntryOpIdResponse>
+    implements YRpc.HasKey {
+  private final String tabletId;
+  // Start of the tablet's partition, used to route the request to the tablet's leader.
+  private final byte[] partitionKey;
+
+  public GetLatestEntryOpIdRequest(YBTable table, String tabletId, byte[] partitionKey) {
+    super(table);
+    this.tabletId = tabletId;
+    this.partitionKey = partitionKey;
+  }
+
+  @Override
+  public byte[] partitionKey() {
+    return partitionKey;
+  }
+
+  @Override
+  ChannelBuffer serialize(Message header) {
+    assert header.isInitialized();
+    final GetLatestEntryOpIdRequestPB.Builder builder = GetLatestEntryOpIdRequestPB.newBuilder();
+    builder.setTabletId(ByteString.copyFromUtf8(this.tabletId));
+    return toChannelBuffer(header, builder.build());
+  }
+
+  @Override
+  String serviceName() { return CDC_SERVICE_NAME; }
+
+  @Override
+  String method() {
+    return "GetLatestEntryOpId";
+  }
+
+  @Override
+  boolean isIdempotentRead() {
+    return true;
+  }
+
+  @Override
+  Pair<GetLatestEntryOpIdResponse, Object> deserialize(
+          CallResponse callResponse, String uuid) throws Exception {
+    final GetLatestEntryOpIdResponsePB.Builder respBuilder =
+        GetLatestEntryOpIdResponsePB.newBuilder();
+    readProtobuf(callResponse.getPBMessage(), respBuilder);
+    GetLatestEntryOpIdResponse response = new GetLatestEntryOpIdResponse(
+            deadlineTracker.getElapsedMillis(), uuid, respBuilder.build());
+    return new Pair<GetLatestEntryOpIdResponse, Object>(
+            response, respBuilder.hasError() ? respBuilder.getError() : null);
+  }
+}
@@ -49,6 +49,9 @@ class GetTableLocationsRequest extends YRpc<Master.GetTableLocationsResponsePB>
   private final byte[] endKey;
   private final String tableId;
 
+  // The most tablets the master should return, 0 to leave it to the master.
+  private int maxReturnedLocations = 0;
+
   GetTableLocationsRequest(YBTable table, byte[] startPartitionKey,
                            byte[] endPartitionKey, String tableId) {
     super(table);
@@ -62,6 +65,10 @@ class GetTableLocationsRequest extends YRpc<Master.GetTableLocationsResponsePB>
     this.tableId = tableId;
   }
 
+  void setMaxReturnedLocations(int maxReturnedLocations) {
+    this.maxReturnedLocations = maxReturnedLocations;
+  }
+
   @Override
   String serviceName() { return MASTER_SERVICE_NAME; }
 
@@ -70,6 +77,11 @@ class GetTableLocationsRequest extends YRpc<Master.GetTableLocationsResponsePB>
     return "GetTableLocations";
   }
 
+  @Override
+  boolean isIdempotentRead() {
+    return true;
+  }
+
   @Override
   Pair<Master.GetTableLocationsResponsePB, Object> deserialize(
       final CallResponse callResponse, String tsUUID)
@@ -94,6 +106,9 @@ class GetTableLocationsRequest extends YRpc<Master.GetTableLocationsResponsePB>
     if (endKey != null) {
       builder.setPartitionKeyEnd(UnsafeByteOperations.unsafeWrap(endKey));
     }
+    if (maxReturnedLocations > 0) {
+      builder.setMaxReturnedLocations(maxReturnedLocations);
+    }
     return toChannelBuffer(header, builder.build());
   }
 }
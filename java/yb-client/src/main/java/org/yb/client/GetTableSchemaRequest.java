@@ -88,6 +88,11 @@ public class GetTableSchemaRequest extends YRpc<GetTableSchemaResponse> {
     return GET_TABLE_SCHEMA;
   }
 
+  @Override
+  boolean isIdempotentRead() {
+    return true;
+  }
+
   @Override
   Pair<GetTableSchemaResponse, Object> deserialize(CallResponse callResponse,
                                                    String tsUUID) throws Exception {
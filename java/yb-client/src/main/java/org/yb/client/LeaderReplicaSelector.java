@@ -0,0 +1,43 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import org.yb.Common;
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+
+import java.util.List;
+
+/**
+ * Connects to the first broadcast address of each tablet server, or its first private address if
+ * it has no broadcast one, and sends every RPC to the tablet's leader.
+ * This is the selector clients use unless configured otherwise.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class LeaderReplicaSelector implements ReplicaSelector {
+
+  @Override
+  public Common.HostPortPB selectAddress(Common.CloudInfoPB placement,
+                                         List<Common.HostPortPB> broadcastAddresses,
+                                         List<Common.HostPortPB> privateAddresses) {
+    return broadcastAddresses.isEmpty() ? privateAddresses.get(0) : broadcastAddresses.get(0);
+  }
+
+  @Override
+  public int selectReplica(List<Common.CloudInfoPB> placements, double[] latenciesMs,
+                           int leaderIndex) {
+    return leaderIndex;
+  }
+}
@@ -0,0 +1,44 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sleeps 500ms more before each retry than before the previous one, plus up to 50ms at random,
+ * and never sends an RPC to another replica or a second copy of it without sleeping first.
+ * This is the policy clients use unless configured otherwise.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class LinearRetryPolicy implements RetryPolicy {
+
+  @Override
+  public long getSleepTimeMs(int attempt, long previousSleepMs) {
+    return (attempt * AsyncYBClient.SLEEP_TIME) + ThreadLocalRandom.current().nextInt(50);
+  }
+
+  @Override
+  public boolean retryOnOtherReplica() {
+    return false;
+  }
+
+  @Override
+  public long getHedgeDelayMs(long p99LatencyMs) {
+    return -1;
+  }
+}
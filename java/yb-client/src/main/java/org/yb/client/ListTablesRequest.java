@@ -84,6 +84,11 @@ class ListTablesRequest extends YRpc<ListTablesResponse> {
     return "ListTables";
   }
 
+  @Override
+  boolean isIdempotentRead() {
+    return true;
+  }
+
   @Override
   Pair<ListTablesResponse, Object> deserialize(CallResponse callResponse,
                                                String tsUUID) throws Exception {
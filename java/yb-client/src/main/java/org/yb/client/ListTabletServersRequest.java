@@ -64,6 +64,11 @@ public class ListTabletServersRequest extends YRpc<ListTabletServersResponse> {
     return "ListTabletServers";
   }
 
+  @Override
+  boolean isIdempotentRead() {
+    return true;
+  }
+
   @Override
   Pair<ListTabletServersResponse, Object> deserialize(CallResponse callResponse,
                                                       String tsUUID) throws Exception {
@@ -0,0 +1,57 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import org.yb.Common;
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+
+import java.util.List;
+
+/**
+ * Decides which address an {@link AsyncYBClient} connects to for each tablet server, and which
+ * replica of a tablet gets the RPCs that don't need its leader.
+ * <p>
+ * Writes, and reads that need the latest data, always go to the leader whatever the selector
+ * returns. Implementations are shared by all the RPCs of a client and must be thread-safe.
+ * @see LeaderReplicaSelector
+ * @see ClosestReplicaSelector
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public interface ReplicaSelector {
+
+  /**
+   * Returns the address to connect to for a tablet server, given where it is placed.
+   * @param placement the cloud, region and zone of the tablet server
+   * @param broadcastAddresses the addresses it advertises to clients outside of its network,
+   *                           possibly empty
+   * @param privateAddresses the addresses it advertises within its network, possibly empty
+   * @return one of the given addresses, at least one of the lists is non-empty
+   */
+  Common.HostPortPB selectAddress(Common.CloudInfoPB placement,
+                                  List<Common.HostPortPB> broadcastAddresses,
+                                  List<Common.HostPortPB> privateAddresses);
+
+  /**
+   * Returns which replica of a tablet to send an RPC to when it can be served by any of them.
+   * @param placements the cloud, region and zone of each replica
+   * @param latenciesMs the average recent latency of the RPCs to the tablet server of each
+   *                    replica, in milliseconds, or -1 if none completed yet
+   * @param leaderIndex the index of the leader in the lists, or of the replica to prefer on ties
+   *                    when the leader isn't one of the candidates
+   * @return the index of the replica to send the RPC to
+   */
+  int selectReplica(List<Common.CloudInfoPB> placements, double[] latenciesMs, int leaderIndex);
+}
@@ -0,0 +1,58 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+
+/**
+ * Decides how an {@link AsyncYBClient} retries RPCs that failed with a retryable error, such as
+ * a server that isn't the tablet's leader, doesn't host the tablet or is too busy.
+ * <p>
+ * Implementations are shared by all the RPCs of a client and must be thread-safe.
+ * @see LinearRetryPolicy
+ * @see ExponentialJitterRetryPolicy
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public interface RetryPolicy {
+
+  /**
+   * Returns how long to sleep before sending an RPC again.
+   * @param attempt how many times the RPC was sent so far, at least 1
+   * @param previousSleepMs how long the RPC slept before its previous attempt, or 0 if it didn't
+   * @return a sleep time in milliseconds
+   */
+  long getSleepTimeMs(int attempt, long previousSleepMs);
+
+  /**
+   * Whether an RPC rejected by a server because it isn't the tablet's leader or doesn't host the
+   * tablet is sent right away to the next replica, instead of after sleeping. Each RPC gets at
+   * most one such retry per replica, after which it sleeps as usual.
+   * @return true to retry on another replica without sleeping
+   */
+  boolean retryOnOtherReplica();
+
+  /**
+   * Returns how long to wait for an answer to an idempotent read, such as a tablet location or
+   * table schema lookup, before sending a second copy of it. Whichever copy is answered first
+   * completes the RPC. The copy goes to another replica or on another connection to the same
+   * server, so reads are only hedged when they allow follower reads or several connections per
+   * server are enabled.
+   * @param p99LatencyMs the 99th percentile latency of recent idempotent reads, in milliseconds,
+   *                     or -1 if too few of them completed to tell
+   * @return a delay in milliseconds, or -1 not to send a second copy
+   */
+  long getHedgeDelayMs(long p99LatencyMs);
+}
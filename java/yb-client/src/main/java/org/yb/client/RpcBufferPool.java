@@ -0,0 +1,116 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import org.jboss.netty.buffer.BigEndianHeapChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.yb.annotations.InterfaceAudience;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of the buffers that outbound RPC frames are serialized into, so that sending an RPC does
+ * not allocate a new array for its frame.
+ * <p>
+ * The buffers are heap buffers: protobuf serializes into arrays without going through Unsafe,
+ * and Netty copies frames up to 64 KiB into its own pooled direct send buffer when writing them
+ * to the socket anyway. Buffers come in power-of-two size classes up to
+ * {@link #MAX_POOLED_SIZE}; larger frames get an unpooled buffer. A buffer must be given back
+ * through {@link #release} once the write it was used for has completed. Buffers that are never
+ * released are simply garbage collected.
+ */
+@InterfaceAudience.Private
+final class RpcBufferPool {
+  static final RpcBufferPool DEFAULT = new RpcBufferPool();
+
+  private static final int MIN_SHIFT = 9;  // 512 bytes.
+  private static final int MAX_SHIFT = 16;  // 64 KiB.
+  static final int MAX_POOLED_SIZE = 1 << MAX_SHIFT;
+
+  // How many free buffers each size class keeps at most.
+  private static final int MAX_FREE_PER_CLASS = 64;
+
+  private final List<ConcurrentLinkedQueue<byte[]>> free;
+  private final AtomicInteger[] numFree;
+
+  RpcBufferPool() {
+    int numClasses = MAX_SHIFT - MIN_SHIFT + 1;
+    free = new ArrayList<>(numClasses);
+    numFree = new AtomicInteger[numClasses];
+    for (int i = 0; i < numClasses; i++) {
+      free.add(new ConcurrentLinkedQueue<byte[]>());
+      numFree[i] = new AtomicInteger(0);
+    }
+  }
+
+  /**
+   * Returns an empty buffer that can hold at least {@code size} bytes.
+   */
+  ChannelBuffer acquire(int size) {
+    if (size > MAX_POOLED_SIZE) {
+      return ChannelBuffers.buffer(size);
+    }
+    int sizeClass = sizeClassOf(size);
+    byte[] chunk = free.get(sizeClass).poll();
+    if (chunk != null) {
+      numFree[sizeClass].decrementAndGet();
+    } else {
+      chunk = new byte[1 << (sizeClass + MIN_SHIFT)];
+    }
+    PooledBuffer buffer = new PooledBuffer(chunk, sizeClass);
+    buffer.clear();
+    return buffer;
+  }
+
+  /**
+   * Gives back a buffer obtained from {@link #acquire}. Does nothing for any other buffer, or for
+   * a buffer that was already released.
+   */
+  void release(ChannelBuffer buffer) {
+    if (!(buffer instanceof PooledBuffer)) {
+      return;
+    }
+    PooledBuffer pooled = (PooledBuffer) buffer;
+    if (!pooled.released.compareAndSet(false, true)) {
+      return;
+    }
+    if (numFree[pooled.sizeClass].incrementAndGet() > MAX_FREE_PER_CLASS) {
+      numFree[pooled.sizeClass].decrementAndGet();
+      return;
+    }
+    free.get(pooled.sizeClass).offer(pooled.chunk);
+  }
+
+  private static int sizeClassOf(int size) {
+    int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1);
+    return Math.max(shift, MIN_SHIFT) - MIN_SHIFT;
+  }
+
+  private static final class PooledBuffer extends BigEndianHeapChannelBuffer {
+    private final byte[] chunk;
+    private final int sizeClass;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    PooledBuffer(byte[] chunk, int sizeClass) {
+      super(chunk);
+      this.chunk = chunk;
+      this.sizeClass = sizeClass;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yb.annotations.InterfaceAudience;
+
+/**
+ * Splits the bytes read from a tablet server into RPC response frames and passes each complete
+ * frame, length prefix included, upstream to the {@link TabletClient}.
+ * <p>
+ * A frame is a 4-byte big-endian length followed by that many bytes. When a read contains whole
+ * frames they are passed on as slices of the read buffer. When a frame is split across reads, a
+ * buffer of exactly the frame's size is allocated as soon as its length is known and filled as
+ * the rest arrives, so every byte is copied at most once and the frame is decoded once, however
+ * many reads it takes.
+ * <p>
+ * A frame is only valid until the upstream handler returns. One instance is needed per channel.
+ */
+@InterfaceAudience.Private
+class RpcFrameDecoder extends SimpleChannelUpstreamHandler {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RpcFrameDecoder.class);
+
+  private static final int LENGTH_SIZE = 4;
+
+  // Length prefix of the next frame, while it is split across reads.
+  private final ChannelBuffer partialLength = ChannelBuffers.buffer(LENGTH_SIZE);
+
+  // Frame being accumulated, sized to hold it exactly, or null between frames.
+  private ChannelBuffer partialFrame = null;
+
+  @Override
+  public void messageReceived(final ChannelHandlerContext ctx, final MessageEvent e) {
+    final Object msg = e.getMessage();
+    if (!(msg instanceof ChannelBuffer)) {
+      ctx.sendUpstream(e);
+      return;
+    }
+    final ChannelBuffer in = (ChannelBuffer) msg;
+    while (in.readable()) {
+      final ChannelBuffer frame = nextFrame(in);
+      if (frame == null) {
+        break;
+      }
+      Channels.fireMessageReceived(ctx, frame, e.getRemoteAddress());
+    }
+  }
+
+  /**
+   * Consumes bytes from {@code in} and returns the next complete frame, or null if {@code in} ran
+   * out before the end of the frame, in which case its bytes are kept until the next read.
+   */
+  ChannelBuffer nextFrame(final ChannelBuffer in) {
+    if (partialFrame == null) {
+      if (!partialLength.readable() && in.readableBytes() >= LENGTH_SIZE) {
+        final int length = in.getInt(in.readerIndex());
+        YRpc.checkArrayLength(in, length);
+        if (in.readableBytes() >= LENGTH_SIZE + length) {
+          // Common case: the whole frame is in this read.
+          return in.readSlice(LENGTH_SIZE + length);
+        }
+        startFrame(length);
+      } else {
+        in.readBytes(partialLength,
+                     Math.min(partialLength.writableBytes(), in.readableBytes()));
+        if (partialLength.writable()) {
+          return null;
+        }
+        final int length = partialLength.getInt(0);
+        partialLength.clear();
+        YRpc.checkArrayLength(in, length);
+        startFrame(length);
+        partialFrame.writeInt(length);
+      }
+    }
+    in.readBytes(partialFrame, Math.min(partialFrame.writableBytes(), in.readableBytes()));
+    if (partialFrame.writable()) {
+      return null;
+    }
+    final ChannelBuffer frame = partialFrame;
+    partialFrame = null;
+    return frame;
+  }
+
+  private void startFrame(final int length) {
+    partialFrame = ChannelBuffers.buffer(LENGTH_SIZE + length);
+  }
+
+  @Override
+  public void channelDisconnected(final ChannelHandlerContext ctx,
+                                  final ChannelStateEvent e) throws Exception {
+    if (partialFrame != null || partialLength.readable()) {
+      LOG.error("Connection to " + e.getChannel().getRemoteAddress() + " closed in the middle"
+          + " of a response, the "
+          + (partialFrame == null ? partialLength.readableBytes() : partialFrame.readableBytes())
+          + " bytes received so far are lost");
+      partialFrame = null;
+      partialLength.clear();
+    }
+    super.channelDisconnected(ctx, e);
+  }
+}
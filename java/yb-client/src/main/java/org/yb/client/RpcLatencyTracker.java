@@ -0,0 +1,95 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import org.yb.annotations.InterfaceAudience;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of recent RPC latencies, used to derive percentiles without keeping the samples.
+ * <p>
+ * Latencies are counted in buckets that split each power of two microseconds into four, so a
+ * percentile is over-estimated by at most a quarter. All counts are halved every
+ * {@link #DECAY_INTERVAL} samples, so that old samples weigh less and less. Halving is not
+ * atomic with concurrent updates, which only makes the counts slightly off.
+ */
+@InterfaceAudience.Private
+final class RpcLatencyTracker {
+
+  private static final int SUB_BUCKET_BITS = 2;
+  private static final int NUM_BUCKETS = 64 << SUB_BUCKET_BITS;
+
+  // Percentiles are unknown until this many samples are counted.
+  static final long MIN_SAMPLES = 100;
+  static final long DECAY_INTERVAL = 10000;
+
+  private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+  private final AtomicLong numSamples = new AtomicLong(0);
+
+  void record(long latencyNanos) {
+    counts.incrementAndGet(bucketOf(Math.max(1, latencyNanos / 1000)));
+    if (numSamples.incrementAndGet() % DECAY_INTERVAL == 0) {
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+        counts.set(i, counts.get(i) >> 1);
+      }
+    }
+  }
+
+  /**
+   * @param percentile a fraction between 0 and 1, e.g. 0.99
+   * @return the latency below which that fraction of the samples fall, rounded up to the
+   *         millisecond, or -1 if there are fewer than {@link #MIN_SAMPLES} samples
+   */
+  long getPercentileMs(double percentile) {
+    final long[] snapshot = new long[NUM_BUCKETS];
+    long total = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    if (total < MIN_SAMPLES) {
+      return -1;
+    }
+    final long rank = (long) Math.ceil(total * percentile);
+    long seen = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return (upperBoundOf(i) + 999) / 1000;
+      }
+    }
+    return (upperBoundOf(NUM_BUCKETS - 1) + 999) / 1000;
+  }
+
+  static int bucketOf(long micros) {
+    final int log = 63 - Long.numberOfLeadingZeros(micros);
+    if (log < SUB_BUCKET_BITS) {
+      return (int) micros;
+    }
+    final int sub = (int) (micros >>> (log - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+    return (log << SUB_BUCKET_BITS) + sub;
+  }
+
+  // Smallest latency, in microseconds, that falls past the given bucket.
+  static long upperBoundOf(int bucket) {
+    final int log = bucket >> SUB_BUCKET_BITS;
+    if (log < SUB_BUCKET_BITS) {
+      return bucket + 1;
+    }
+    final int sub = bucket & ((1 << SUB_BUCKET_BITS) - 1);
+    return ((long) ((1 << SUB_BUCKET_BITS) + sub + 1)) << (log - SUB_BUCKET_BITS);
+  }
+}
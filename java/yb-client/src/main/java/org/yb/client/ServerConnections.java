@@ -0,0 +1,179 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.Channels;
+import org.yb.annotations.InterfaceAudience;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The connections of an {@link AsyncYBClient} to one server, when it is configured with more
+ * than one connection per server.
+ * <p>
+ * The first connection is the primary one. It is the {@link TabletClient} that stands for the
+ * server in the client's caches and in {@code RemoteTablet}s, and RPCs sent through it are spread
+ * over all the connections. The other connections are opened the first time they are picked, and
+ * again whenever they got disconnected. When the primary connection gets disconnected, the
+ * server is dropped from the caches, so the other connections are closed along with it.
+ */
+@InterfaceAudience.Private
+final class ServerConnections {
+
+  private final AsyncYBClient ybClient;
+  private final String uuid;
+  private final String host;
+  private final int port;
+  private final AsyncYBClient.ConnectionSelection selection;
+
+  // Slot 0 holds the primary connection, the other slots are null until first used. Slots are
+  // read without locking, and only (re)filled while holding the monitor.
+  private final AtomicReferenceArray<TabletClient> connections;
+  private final Channel[] channels;
+  private final AtomicInteger next = new AtomicInteger(0);
+
+  // Set once the primary connection is gone. No more connections are opened after that.
+  private boolean closed = false;
+
+  ServerConnections(AsyncYBClient ybClient, TabletClient primary, String uuid, String host,
+                    int port, int numConnections, AsyncYBClient.ConnectionSelection selection) {
+    this.ybClient = ybClient;
+    this.uuid = uuid;
+    this.host = host;
+    this.port = port;
+    this.selection = selection;
+    this.connections = new AtomicReferenceArray<TabletClient>(numConnections);
+    this.channels = new Channel[numConnections];
+    this.connections.set(0, primary);
+  }
+
+  TabletClient getPrimary() {
+    return connections.get(0);
+  }
+
+  /**
+   * Picks the connection to send the next RPC on.
+   */
+  TabletClient pick() {
+    switch (selection) {
+      case LEAST_IN_FLIGHT:
+        // Start from a rotating slot so that ties don't all go to the same connection.
+        final int start = Math.abs(next.getAndIncrement() % connections.length());
+        TabletClient best = null;
+        int bestInFlight = Integer.MAX_VALUE;
+        for (int i = 0; i < connections.length(); i++) {
+          final TabletClient connection = connection((start + i) % connections.length());
+          final int inFlight = connection.getNumInflightRpcs();
+          if (inFlight < bestInFlight) {
+            best = connection;
+            bestInFlight = inFlight;
+          }
+        }
+        return best;
+      case ROUND_ROBIN:
+      default:
+        return connection(Math.abs(next.getAndIncrement() % connections.length()));
+    }
+  }
+
+  /**
+   * Picks the connection with the fewest RPCs waiting for a response among the ones other than
+   * the given one, e.g. to send a second copy of an RPC sent on it.
+   */
+  TabletClient pickOther(TabletClient excluded) {
+    TabletClient best = null;
+    int bestInFlight = Integer.MAX_VALUE;
+    for (int i = 0; i < connections.length(); i++) {
+      final TabletClient connection = connection(i);
+      if (connection == excluded) {
+        continue;
+      }
+      final int inFlight = connection.getNumInflightRpcs();
+      if (inFlight < bestInFlight) {
+        best = connection;
+        bestInFlight = inFlight;
+      }
+    }
+    return best;
+  }
+
+  private TabletClient connection(int slot) {
+    TabletClient connection = connections.get(slot);
+    if (slot == 0 || (connection != null && connection.isAlive())) {
+      return connection;
+    }
+    synchronized (this) {
+      connection = connections.get(slot);
+      if (connection != null && connection.isAlive()) {
+        return connection;
+      }
+      if (closed) {
+        return connections.get(0);
+      }
+      final Channel channel = ybClient.newSecondaryConnection(this, uuid, host, port);
+      connection = channel.getPipeline().get(TabletClient.class);
+      connections.set(slot, connection);
+      channels[slot] = channel;
+      return connection;
+    }
+  }
+
+  /**
+   * Forgets a secondary connection that got disconnected. It gets reopened when next picked.
+   */
+  synchronized void remove(TabletClient connection) {
+    for (int i = 1; i < connections.length(); i++) {
+      if (connections.get(i) == connection) {
+        connections.set(i, null);
+        channels[i] = null;
+      }
+    }
+  }
+
+  /**
+   * Closes the secondary connections once the primary one is gone. RPCs in flight on them are
+   * retried like those of any other lost connection.
+   */
+  void closeSecondaries() {
+    final List<Channel> toClose = new ArrayList<Channel>();
+    synchronized (this) {
+      closed = true;
+      for (int i = 1; i < channels.length; i++) {
+        if (channels[i] != null) {
+          toClose.add(channels[i]);
+        }
+      }
+    }
+    for (Channel channel : toClose) {
+      Channels.close(channel);
+    }
+  }
+
+  /**
+   * @return the secondary connections that are currently open
+   */
+  synchronized List<TabletClient> getSecondaries() {
+    final List<TabletClient> secondaries = new ArrayList<TabletClient>();
+    for (int i = 1; i < connections.length(); i++) {
+      if (connections.get(i) != null) {
+        secondaries.add(connections.get(i));
+      }
+    }
+    return secondaries;
+  }
+}
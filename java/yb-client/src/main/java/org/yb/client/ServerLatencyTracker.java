@@ -0,0 +1,62 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import org.yb.annotations.InterfaceAudience;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exponentially weighted moving average of the RPC latency of each tablet server, used to rank
+ * the replicas of a tablet. Each new sample weighs {@link #WEIGHT} of the average, so a server
+ * that slows down drops in the ranking after a handful of RPCs.
+ */
+@InterfaceAudience.Private
+final class ServerLatencyTracker {
+
+  static final double WEIGHT = 0.2;
+
+  // Averages in milliseconds, as the bits of doubles so they can be updated without locking.
+  private final ConcurrentMap<String, AtomicLong> averages = new ConcurrentHashMap<>();
+
+  void record(String uuid, long latencyNanos) {
+    final double latencyMs = latencyNanos / 1e6;
+    AtomicLong average = averages.get(uuid);
+    if (average == null) {
+      average = new AtomicLong(Double.doubleToLongBits(latencyMs));
+      final AtomicLong existing = averages.putIfAbsent(uuid, average);
+      if (existing == null) {
+        return;
+      }
+      average = existing;
+    }
+    while (true) {
+      final long bits = average.get();
+      final double updated = Double.longBitsToDouble(bits) * (1 - WEIGHT) + latencyMs * WEIGHT;
+      if (average.compareAndSet(bits, Double.doubleToLongBits(updated))) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return the average latency of the server in milliseconds, or -1 if none was recorded
+   */
+  double getLatencyMs(String uuid) {
+    final AtomicLong average = averages.get(uuid);
+    return average == null ? -1 : Double.longBitsToDouble(average.get());
+  }
+}
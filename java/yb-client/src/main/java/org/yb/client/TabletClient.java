@@ -62,8 +62,8 @@ import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.Channels;
 import org.jboss.netty.channel.ExceptionEvent;
-import org.jboss.netty.handler.codec.replay.ReplayingDecoder;
-import org.jboss.netty.handler.codec.replay.VoidEnum;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,8 +72,11 @@ import javax.security.sasl.SaslException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -91,16 +94,31 @@ import java.util.concurrent.atomic.AtomicInteger;
  * random times. The bottom line is that any data only used in the Netty IO
  * threads doesn't require synchronization, everything else does.
  * <p>
- * Acquiring the monitor on an object of this class will prevent it from
- * accepting write requests as well as buffering requests if the underlying
- * channel isn't connected.
+ * RPCs sent before the channel is connected are buffered in a lock-free
+ * queue, so {@link #sendRpc} never blocks on this object's monitor. When write
+ * coalescing is enabled, the frames of all the RPCs sent while a write is
+ * pending on the IO thread are gathered into a single buffer and written at
+ * once.
  */
 @InterfaceAudience.Private
-public class TabletClient extends ReplayingDecoder<VoidEnum> {
+public class TabletClient extends SimpleChannelUpstreamHandler {
 
   public static final Logger LOG = LoggerFactory.getLogger(TabletClient.class);
 
-  private ArrayList<YRpc<?>> pending_rpcs;
+  /**
+   * RPCs waiting for the channel to get connected. Any thread may add to it and
+   * whichever thread notices the channel got connected or died drains it.
+   */
+  private final ConcurrentLinkedQueue<YRpc<?>> pending_rpcs =
+      new ConcurrentLinkedQueue<YRpc<?>>();
+
+  /**
+   * Serialized RPCs waiting to be written when write coalescing is enabled, and
+   * whether a task to write them is already scheduled on the IO thread.
+   */
+  private final ConcurrentLinkedQueue<ChannelBuffer> pending_writes =
+      new ConcurrentLinkedQueue<ChannelBuffer>();
+  private final AtomicBoolean flush_scheduled = new AtomicBoolean(false);
 
   /** The connection header.  */
   private static final byte[] RPC_HEADER = new byte[] { 'Y', 'B', 1 };
@@ -131,9 +149,11 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
    * been removed from the caches in the {@link AsyncYBClient}, we will
    * immediately fail / reschedule its requests.
    * <p>
-   * Manipulating this value requires synchronizing on `this'.
+   * This is set before {@link #pending_rpcs} is drained on disconnection, so a
+   * thread that queued an RPC and then sees this set knows it may have been
+   * missed.
    */
-  private boolean dead = false;
+  private volatile boolean dead = false;
 
   /**
    * Maps an RPC ID to the in-flight RPC that was given this ID.
@@ -148,13 +168,39 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
 
   private final long socketReadTimeoutMs;
 
+  private final boolean coalesceWrites;
+
+  /**
+   * All the connections to this client's server, or null when there is only
+   * one connection per server.
+   */
+  private volatile ServerConnections connections = null;
+
   public TabletClient(AsyncYBClient client, String uuid) {
     this.ybClient = client;
     this.uuid = uuid;
     this.socketReadTimeoutMs = client.getDefaultSocketReadTimeoutMs();
+    this.coalesceWrites = client.isCoalesceWrites();
   }
 
   <R> void sendRpc(YRpc<R> rpc) {
+    final ServerConnections connections = this.connections;
+    if (connections != null && connections.getPrimary() == this) {
+      // RPCs sent to the server are spread over all its connections.
+      final TabletClient connection = connections.pick();
+      if (connection != this) {
+        connection.sendRpc(rpc);
+        return;
+      }
+    }
+    sendRpcOnConnection(rpc);
+  }
+
+  /**
+   * Sends an RPC on this very connection, even if it is the primary connection of a server with
+   * several ones.
+   */
+  <R> void sendRpcOnConnection(YRpc<R> rpc) {
     if (!rpc.deadlineTracker.hasDeadline()) {
       LOG.warn(getPeerUuidLoggingString() + " sending an rpc without a timeout " + rpc);
     }
@@ -166,36 +212,86 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
 
       final Channel chan = this.chan;  // Volatile read.
       if (chan != null) {  // Double check if we disconnected during encode().
-        Channels.write(chan, serialized);
+        write(chan, serialized);
         return;
       }
+      RpcBufferPool.DEFAULT.release(serialized);
     }
-    boolean tryagain = false;
-    boolean copyOfDead;
-    synchronized (this) {
-      copyOfDead = this.dead;
-      // Check if we got connected while entering this synchronized block.
-      if (chan != null) {
-        tryagain = true;
-      } else if (!copyOfDead) {
-        if (pending_rpcs == null) {
-          pending_rpcs = new ArrayList<YRpc<?>>();
-        }
-        pending_rpcs.add(rpc);
-      }
+    if (dead) {
+      failOrRetryRpc(rpc, new ConnectionResetException(null));
+      return;
     }
-    if (copyOfDead) {
+    pending_rpcs.add(rpc);
+    // We may have got connected or disconnected while queueing the RPC, after the queue was
+    // drained. In the first case drain it ourselves. In the second case, fail the RPC unless
+    // whoever drained the queue already took it.
+    if (chan != null) {
+      sendQueuedRpcs();
+    } else if (dead && pending_rpcs.remove(rpc)) {
       failOrRetryRpc(rpc, new ConnectionResetException(null));
+    }
+  }
+
+  /**
+   * Writes a serialized RPC to the channel, either right away or, with write coalescing, together
+   * with everything else sent until the IO thread gets to it. The buffer goes back to the
+   * {@link RpcBufferPool} once written.
+   */
+  private void write(final Channel chan, final ChannelBuffer serialized) {
+    if (!coalesceWrites) {
+      Channels.write(chan, serialized).addListener(new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) {
+          RpcBufferPool.DEFAULT.release(serialized);
+        }
+      });
       return;
-    } else if (tryagain) {
-      // This recursion will not lead to a loop because we only get here if we
-      // connected while entering the synchronized block above. So when trying
-      // a second time,  we will either succeed to send the RPC if we're still
-      // connected, or fail through to the code below if we got disconnected
-      // in the mean time.
-      sendRpc(rpc);
+    }
+    pending_writes.add(serialized);
+    if (flush_scheduled.compareAndSet(false, true)) {
+      chan.getPipeline().execute(new Runnable() {
+        @Override
+        public void run() {
+          flushPendingWrites();
+        }
+      });
+    }
+  }
+
+  /**
+   * Writes every pending serialized RPC in one go. Runs on the channel's IO thread.
+   */
+  private void flushPendingWrites() {
+    // Cleared first, so that a buffer queued after the loop below schedules another flush.
+    flush_scheduled.set(false);
+    final ArrayList<ChannelBuffer> buffers = new ArrayList<ChannelBuffer>();
+    ChannelBuffer buffer;
+    while ((buffer = pending_writes.poll()) != null) {
+      buffers.add(buffer);
+    }
+    if (buffers.isEmpty()) {
       return;
     }
+    final Channel chan = this.chan;
+    if (chan == null) {
+      // We got disconnected, the RPCs are in rpcs_inflight and cleanup() takes care of them.
+      releaseAll(buffers);
+      return;
+    }
+    final ChannelBuffer combined = buffers.size() == 1 ? buffers.get(0) :
+        ChannelBuffers.wrappedBuffer(buffers.toArray(new ChannelBuffer[buffers.size()]));
+    Channels.write(chan, combined).addListener(new ChannelFutureListener() {
+      @Override
+      public void operationComplete(ChannelFuture future) {
+        releaseAll(buffers);
+      }
+    });
+  }
+
+  private static void releaseAll(List<ChannelBuffer> buffers) {
+    for (ChannelBuffer buffer : buffers) {
+      RpcBufferPool.DEFAULT.release(buffer);
+    }
   }
 
   private <R> ChannelBuffer encode(final YRpc<R> rpc) {
@@ -231,6 +327,11 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
         rpc.errback(e);  // Make the RPC fail with the exception.
         return null;
     }
+    if (!rpc.hedged) {
+      // The latency of a hedged RPC counts from its first copy.
+      rpc.sendTimeNanos = System.nanoTime();
+    }
+    rpc.lastConnection = this;
     final YRpc<?> oldrpc = rpcs_inflight.put(rpcid, rpc);
     if (oldrpc != null) {
       final String wtf = getPeerUuidLoggingString() +
@@ -260,13 +361,9 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     }
 
     // Same for the pending RPCs.
-    synchronized (this) {
-      if (pending_rpcs != null) {
-        for (Iterator<YRpc<?>> ite = pending_rpcs.iterator(); ite.hasNext();) {
-          ite.next().errback(new ConnectionResetException(null));
-          ite.remove();
-        }
-      }
+    YRpc<?> pending;
+    while ((pending = pending_rpcs.poll()) != null) {
+      pending.errback(new ConnectionResetException(null));
     }
 
     final Channel chancopy = chan;
@@ -311,16 +408,27 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     return d;
   }
 
+  @Override
+  public void messageReceived(final ChannelHandlerContext ctx, final MessageEvent e) {
+    final Object msg = e.getMessage();
+    if (msg instanceof ChannelBuffer) {
+      decode(ctx, e.getChannel(), (ChannelBuffer) msg);
+    } else {
+      ctx.sendUpstream(e);
+    }
+  }
+
   /**
+   * Decodes one complete response frame, as split off by the {@link RpcFrameDecoder}, and
+   * completes the RPC it belongs to.
+   * <p>
    * The reason we are suppressing the unchecked conversions is because the YRpc is coming
    * from a collection that has RPCs with different generics, and there's no way to get "decoded"
    * casted correctly. The best we can do is to rely on the RPC to decode correctly,
    * and to not pass an Exception in the callback.
    */
-  @Override
   @SuppressWarnings("unchecked")
-  protected Object decode(ChannelHandlerContext ctx, Channel chan, ChannelBuffer buf,
-                              VoidEnum voidEnum) {
+  protected Object decode(ChannelHandlerContext ctx, Channel chan, ChannelBuffer buf) {
     final long start = System.nanoTime();
     final int rdx = buf.readerIndex();
     LOG.debug("------------------>> ENTERING DECODE >>------------------");
@@ -353,9 +461,9 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
           + buf + '=' + Bytes.pretty(buf);
       LOG.error(msg);
       // The problem here is that we don't know which Deferred corresponds to
-      // this RPC, since we don't have a valid ID.  So we're hopeless, we'll
-      // never be able to recover because responses are not framed, we don't
-      // know where the next response will start...  We have to give up here
+      // this RPC, since we don't have a valid ID.  An unknown ID means the
+      // stream can't be trusted anymore, even though we know where the next
+      // frame starts.  We have to give up here
       // and throw this outside of our Netty handler, so Netty will call our
       // exception handler where we'll close this channel, which will cause
       // all RPCs in flight to be failed.
@@ -389,7 +497,6 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     if (LOG.isDebugEnabled()) {
       LOG.debug(getPeerUuidLoggingString() + "rpcid=" + rpcid
           + ", response size=" + (buf.readerIndex() - rdx) + " bytes"
-          + ", " + actualReadableBytes() + " readable bytes left"
           + ", rpc=" + rpc);
     }
 
@@ -403,7 +510,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
 
     // This check is specifically for the ERROR_SERVER_TOO_BUSY case above.
     if (retryableHeaderException != null) {
-      ybClient.handleRetryableError(rpc, retryableHeaderException, this);
+      ybClient.handleRetryableError(rpc, retryableHeaderException, getServerClient());
       return null;
     }
 
@@ -437,8 +544,9 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     try {
       if (decoded != null) {
         assert !(decoded.getFirst() instanceof Exception);
+        ybClient.recordRpcLatency(rpc, this);
         rpc.callback(decoded.getFirst());
-      } else {
+      } else if (!rpc.dropHedgeCopy()) {
         rpc.errback(exception);
       }
     } catch (Exception e) {
@@ -464,7 +572,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     WireProtocol.AppStatusPB.ErrorCode code = error.getStatus().getCode();
     TabletServerErrorException ex = new TabletServerErrorException(uuid, error);
     if (error.getCode() == Tserver.TabletServerErrorPB.Code.TABLET_NOT_FOUND) {
-      ybClient.handleTabletNotFound(rpc, ex, this);
+      ybClient.handleTabletNotFound(rpc, ex, getServerClient());
       // we're not calling rpc.callback() so we rely on the client to retry that RPC
     } else if (code == WireProtocol.AppStatusPB.ErrorCode.SERVICE_UNAVAILABLE ||
                code == WireProtocol.AppStatusPB.ErrorCode.LEADER_NOT_READY_TO_SERVE ||
@@ -474,7 +582,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
                  Tserver.TabletServerErrorPB.Code.LEADER_NOT_READY_TO_STEP_DOWN ||
                error.getCode() ==
                  Tserver.TabletServerErrorPB.Code.LEADER_NOT_READY_TO_SERVE) {
-      ybClient.handleRetryableError(rpc, ex, this);
+      ybClient.handleRetryableError(rpc, ex, getServerClient());
       // The following error codes are an indication that the tablet isn't a leader, or, in case
       // of LEADER_HAS_NO_LEASE, might no longer be the leader due to failing to replicate a leader
       // lease, so we retry looking up the leader anyway.
@@ -482,7 +590,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
                code == WireProtocol.AppStatusPB.ErrorCode.ILLEGAL_STATE ||
                code == WireProtocol.AppStatusPB.ErrorCode.ABORTED ||
                error.getCode() == Tserver.TabletServerErrorPB.Code.NOT_THE_LEADER) {
-      ybClient.handleNotLeader(rpc, ex, this);
+      ybClient.handleNotLeader(rpc, ex, getServerClient());
     } else {
       return ex;
     }
@@ -501,68 +609,28 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     WireProtocol.AppStatusPB.ErrorCode code = error.getStatus().getCode();
     MasterErrorException ex = new MasterErrorException(uuid, error);
     if (error.getCode() == Master.MasterErrorPB.Code.NOT_THE_LEADER) {
-      ybClient.handleNotLeader(rpc, ex, this);
+      ybClient.handleNotLeader(rpc, ex, getServerClient());
     } else if (error.getCode() == Master.MasterErrorPB.Code.CATALOG_MANAGER_NOT_INITIALIZED ||
                error.getCode() == Master.MasterErrorPB.Code.CAN_RETRY_LOAD_BALANCE_CHECK) {
-      ybClient.handleRetryableError(rpc, ex, this);
+      ybClient.handleRetryableError(rpc, ex, getServerClient());
     } else if (code == WireProtocol.AppStatusPB.ErrorCode.SERVICE_UNAVAILABLE &&
         (!(rpc instanceof GetMasterRegistrationRequest))) {
       // TODO: This is a crutch until we either don't have to retry RPCs going to the
       // same server or use retry policies.
-      ybClient.handleRetryableError(rpc, ex, this);
+      ybClient.handleRetryableError(rpc, ex, getServerClient());
     } else {
       return ex;
     }
     return null;
   }
 
-  /**
-   * Decodes the response of an RPC and triggers its {@link Deferred}.
-   * <p>
-   * This method is used by FrameDecoder when the channel gets
-   * disconnected.  The buffer for that channel is passed to this method in
-   * case there's anything left in it.
-   * @param ctx Unused.
-   * @param chan The channel on which the response came.
-   * @param buf The buffer containing the raw RPC response.
-   * @return {@code null}, always.
-   */
-  @Override
-  protected Object decodeLast(final ChannelHandlerContext ctx,
-                              final Channel chan,
-                              final ChannelBuffer buf,
-                              final VoidEnum unused) {
-    // When we disconnect, decodeLast is called instead of decode.
-    // We simply check whether there's any data left in the buffer, in which
-    // case we attempt to process it.  But if there's no data left, then we
-    // don't even bother calling decode() as it'll complain that the buffer
-    // doesn't contain enough data, which unnecessarily pollutes the logs.
-    if (buf.readable()) {
-      try {
-        return decode(ctx, chan, buf, unused);
-      } finally {
-        if (buf.readable()) {
-          LOG.error(getPeerUuidLoggingString() + "After decoding the last message on " + chan
-              + ", there was still some undecoded bytes in the channel's"
-              + " buffer (which are going to be lost): "
-              + buf + '=' + Bytes.pretty(buf));
-        }
-      }
-    } else {
-      return null;
-    }
-  }
-
   /**
    * Tells whether or not this handler should be used.
    * <p>
-   * This method is not synchronized.  You need to synchronize on this
-   * instance if you need a memory visibility guarantee.  You may not need
-   * this guarantee if you're OK with the RPC finding out that the connection
-   * has been reset "the hard way" and you can retry the RPC.  In this case,
-   * you can call this method as a hint.  After getting the initial exception
-   * back, this thread is guaranteed to see this method return {@code false}
-   * without synchronization needed.
+   * This method is only a hint: the connection may get reset right after it
+   * returns, in which case the RPC finds out "the hard way" and can be retried.
+   * After getting the initial exception back, this thread is guaranteed to see
+   * this method return {@code false}.
    * @return {@code false} if this handler is known to have been disconnected
    * from the server and sending an RPC (via {@link #sendRpc} or any other
    * indirect means such as {@code GetTableLocations()}) will fail immediately
@@ -575,18 +643,43 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     return !dead;
   }
 
+  void setConnections(ServerConnections connections) {
+    this.connections = connections;
+  }
+
+  ServerConnections getConnections() {
+    return connections;
+  }
+
+  /**
+   * @return the client that stands for this connection's server in the caches of the
+   * {@link AsyncYBClient}, which is this client unless there are several connections per server
+   */
+  TabletClient getServerClient() {
+    final ServerConnections connections = this.connections;
+    return connections == null ? this : connections.getPrimary();
+  }
+
+  /**
+   * @return the number of RPCs sent on this connection that are waiting for a response
+   */
+  int getNumInflightRpcs() {
+    return rpcs_inflight.size();
+  }
+
   /**
    * Ensures that at least a {@code nbytes} are readable from the given buffer.
-   * If there aren't enough bytes in the buffer this will raise an exception
-   * and cause the {@link ReplayingDecoder} to undo whatever we did thus far
-   * so we can wait until we read more from the socket.
+   * Frames are complete by the time they get decoded, so a frame shorter than
+   * its own length prefix says means the response is corrupt.
    * @param buf Buffer to check.
    * @param nbytes Number of bytes desired.
+   * @throws IndexOutOfBoundsException if fewer bytes are readable.
    */
   static void ensureReadable(final ChannelBuffer buf, final int nbytes) {
-    buf.markReaderIndex();
-    buf.skipBytes(nbytes); // can puke with Throwable
-    buf.resetReaderIndex();
+    if (buf.readableBytes() < nbytes) {
+      throw new IndexOutOfBoundsException("Need " + nbytes + " bytes but only "
+          + buf.readableBytes() + " are readable in " + buf);
+    }
   }
 
   @Override
@@ -612,7 +705,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
   public void channelDisconnected(final ChannelHandlerContext ctx,
                                   final ChannelStateEvent e) throws Exception {
     chan = null;
-    super.channelDisconnected(ctx, e);  // Let the ReplayingDecoder cleanup.
+    super.channelDisconnected(ctx, e);
     cleanup(e.getChannel());
   }
 
@@ -620,10 +713,6 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
   public void channelClosed(final ChannelHandlerContext ctx,
                             final ChannelStateEvent e) {
     chan = null;
-    // No need to call super.channelClosed() because we already called
-    // super.channelDisconnected().  If we get here without getting a
-    // DISCONNECTED event, then we were never connected in the first place so
-    // the ReplayingDecoder has nothing to cleanup.
     cleanup(e.getChannel());
   }
 
@@ -643,15 +732,13 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
       ite.remove();
     }
 
-    final ArrayList<YRpc<?>> rpcs;
-    synchronized (this) {
-      dead = true;
-      rpcs = pending_rpcs;
-      pending_rpcs = null;
-    }
-    if (rpcs != null) {
-      failOrRetryRpcs(rpcs, exception);
+    dead = true;
+    final ArrayList<YRpc<?>> rpcs = new ArrayList<YRpc<?>>();
+    YRpc<?> rpc;
+    while ((rpc = pending_rpcs.poll()) != null) {
+      rpcs.add(rpc);
     }
+    failOrRetryRpcs(rpcs, exception);
   }
 
   /**
@@ -674,10 +761,15 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
   private void failOrRetryRpc(final YRpc<?> rpc,
                               final ConnectionResetException exception) {
     AsyncYBClient.RemoteTablet tablet = rpc.getTablet();
+    final TabletClient server = getServerClient();
     if (tablet == null) {  // Can't retry, dunno where this RPC should go.
       rpc.errback(exception);
+    } else if (server != this && server.isAlive()) {
+      // Only a secondary connection was lost, the server is still reachable through its primary
+      // one, so it stays in the tablet's replicas.
+      ybClient.handleRetryableError(rpc, exception, server);
     } else {
-      ybClient.handleTabletNotFound(rpc, exception, this);
+      ybClient.handleTabletNotFound(rpc, exception, server);
     }
   }
 
@@ -694,7 +786,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     } else if (e instanceof ReadTimeoutException) {
       LOG.debug(getPeerUuidLoggingString() + "Encountered a read timeout");
       // Doing the cleanup here since we want to invalidate all the RPCs right _now_, and not let
-      // the ReplayingDecoder continue decoding through Channels.close() below.
+      // responses that are already buffered get decoded through Channels.close() below.
       cleanup(c);
     } else {
       LOG.debug(getPeerUuidLoggingString() + "Unexpected exception " + e.getMessage() +
@@ -723,16 +815,10 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
    * handshake with the server
    */
   private void sendQueuedRpcs() {
-    ArrayList<YRpc<?>> rpcs;
-    synchronized (this) {
-      rpcs = pending_rpcs;
-      pending_rpcs = null;
-    }
-    if (rpcs != null) {
-      for (final YRpc<?> rpc : rpcs) {
-        LOG.debug(getPeerUuidLoggingString() + "Executing RPC queued: " + rpc);
-        sendRpc(rpc);
-      }
+    YRpc<?> rpc;
+    while ((rpc = pending_rpcs.poll()) != null) {
+      LOG.debug(getPeerUuidLoggingString() + "Executing RPC queued: " + rpc);
+      sendRpc(rpc);
     }
   }
 
@@ -757,11 +843,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
         .append(", uuid=")                  // = 7
         .append(uuid)                       // = 32
         .append(", #pending_rpcs=");        // =16
-    int npending_rpcs;
-    synchronized (this) {
-      npending_rpcs = pending_rpcs == null ? 0 : pending_rpcs.size();
-    }
-    buf.append(npending_rpcs);             // = 1
+    buf.append(pending_rpcs.size());      // = 1
     buf.append(", #rpcs_inflight=")       // =17
         .append(rpcs_inflight.size())       // ~ 2
         .append(')');                       // = 1
@@ -0,0 +1,168 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import java.util.Collection;
+import java.util.TreeMap;
+
+import org.yb.annotations.InterfaceAudience;
+
+/**
+ * Immutable index of the known tablets of a table by partition key, used to find the tablet of
+ * every RPC without locking nor allocating.
+ * <p>
+ * Tablets are sorted by the start of their partition and found by binary search. When all the
+ * partition bounds are hash codes, i.e. 2 bytes long as in hash partitioned tables, they are also
+ * kept as ints and the tablet of a key is found from a table indexed by the high bits of the hash
+ * code of the key.
+ * <p>
+ * Newly discovered tablets are added by building a new index, see {@link #withTablets}.
+ */
+@InterfaceAudience.Private
+final class TabletIntervalIndex {
+  private static final int HASH_CODE_LENGTH = 2;
+  private static final int HASH_CODE_BITS = 16;
+
+  private static final TabletIntervalIndex EMPTY =
+      new TabletIntervalIndex(new AsyncYBClient.RemoteTablet[0]);
+
+  // Tablets sorted by the start of their partition, and their partition bounds.
+  private final AsyncYBClient.RemoteTablet[] tablets;
+  private final byte[][] startKeys;
+  private final byte[][] endKeys;
+
+  // Partition bounds as hash codes, or null if they aren't all hash codes. An empty end key, the
+  // end of the key space, is 1 << HASH_CODE_BITS.
+  private final int[] startHashCodes;
+  private final int[] endHashCodes;
+
+  // Index of the last tablet starting at or before the first hash code of each bucket, -1 if none.
+  private final int[] bucketFloors;
+  private final int bucketShift;
+
+  private TabletIntervalIndex(AsyncYBClient.RemoteTablet[] tablets) {
+    this.tablets = tablets;
+    int numTablets = tablets.length;
+    startKeys = new byte[numTablets][];
+    endKeys = new byte[numTablets][];
+    boolean hashCodes = true;
+    for (int i = 0; i < numTablets; i++) {
+      startKeys[i] = tablets[i].getPartition().getPartitionKeyStart();
+      endKeys[i] = tablets[i].getPartition().getPartitionKeyEnd();
+      hashCodes &= isHashCode(startKeys[i]) && isHashCode(endKeys[i]);
+    }
+    if (!hashCodes || numTablets == 0) {
+      startHashCodes = null;
+      endHashCodes = null;
+      bucketFloors = null;
+      bucketShift = 0;
+      return;
+    }
+    startHashCodes = new int[numTablets];
+    endHashCodes = new int[numTablets];
+    for (int i = 0; i < numTablets; i++) {
+      startHashCodes[i] = startKeys[i].length == 0 ? 0 : hashCode(startKeys[i]);
+      endHashCodes[i] = endKeys[i].length == 0 ? 1 << HASH_CODE_BITS : hashCode(endKeys[i]);
+    }
+    // At least as many buckets as tablets, so that a lookup looks at a couple of tablets at most
+    // when they are evenly spread.
+    int bucketBits = Math.min(HASH_CODE_BITS, 32 - Integer.numberOfLeadingZeros(numTablets));
+    bucketShift = HASH_CODE_BITS - bucketBits;
+    bucketFloors = new int[1 << bucketBits];
+    int floor = -1;
+    for (int bucket = 0; bucket < bucketFloors.length; bucket++) {
+      int firstHashCode = bucket << bucketShift;
+      while (floor + 1 < numTablets && startHashCodes[floor + 1] <= firstHashCode) {
+        floor++;
+      }
+      bucketFloors[bucket] = floor;
+    }
+  }
+
+  static TabletIntervalIndex empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Returns a new index with the tablets of this one and the given ones, which replace the
+   * tablets of this index starting at the same partition key.
+   */
+  TabletIntervalIndex withTablets(Collection<AsyncYBClient.RemoteTablet> newTablets) {
+    TreeMap<byte[], AsyncYBClient.RemoteTablet> sorted = new TreeMap<>(Bytes.MEMCMP);
+    for (int i = 0; i < tablets.length; i++) {
+      sorted.put(startKeys[i], tablets[i]);
+    }
+    for (AsyncYBClient.RemoteTablet tablet : newTablets) {
+      sorted.put(tablet.getPartition().getPartitionKeyStart(), tablet);
+    }
+    return new TabletIntervalIndex(
+        sorted.values().toArray(new AsyncYBClient.RemoteTablet[sorted.size()]));
+  }
+
+  int size() {
+    return tablets.length;
+  }
+
+  /**
+   * Returns the tablet with the smallest partition start, or null if there is none.
+   */
+  AsyncYBClient.RemoteTablet first() {
+    return tablets.length == 0 ? null : tablets[0];
+  }
+
+  /**
+   * Returns the tablet whose partition contains the key, or null if it isn't known.
+   */
+  AsyncYBClient.RemoteTablet lookup(byte[] partitionKey) {
+    if (startHashCodes != null && partitionKey.length >= HASH_CODE_LENGTH) {
+      // Comparing the hash code of the key to bounds that are hash codes gives the same result
+      // as comparing the keys, as a key longer than a bound is after it if they start the same.
+      int hashCode = hashCode(partitionKey);
+      int i = bucketFloors[hashCode >>> bucketShift];
+      while (i + 1 < tablets.length && startHashCodes[i + 1] <= hashCode) {
+        i++;
+      }
+      return i >= 0 && hashCode < endHashCodes[i] ? tablets[i] : null;
+    }
+
+    // Last tablet starting at or before the key.
+    int low = 0;
+    int high = tablets.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (Bytes.memcmp(startKeys[mid], partitionKey) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    if (high < 0) {
+      return null;
+    }
+    // If the partition is not the end partition, but it doesn't include the key
+    // we are looking for, then we have not yet found the correct tablet.
+    if (endKeys[high].length != 0 && Bytes.memcmp(partitionKey, endKeys[high]) >= 0) {
+      return null;
+    }
+    return tablets[high];
+  }
+
+  private static boolean isHashCode(byte[] partitionBound) {
+    return partitionBound.length == 0 || partitionBound.length == HASH_CODE_LENGTH;
+  }
+
+  private static int hashCode(byte[] partitionKey) {
+    return ((partitionKey[0] & 0xff) << 8) | (partitionKey[1] & 0xff);
+  }
+}
@@ -1205,6 +1205,27 @@ public class YBClient implements AutoCloseable {
     return d.join(getDefaultAdminOperationTimeoutMs());
   }
 
+  /**
+   * Look up the locations of all the tablets of the table, so that the first operations on the
+   * table don't have to look up their tablet.
+   * @param table the table whose tablets to look up
+   * @return the number of tablets of the table whose locations are known
+   */
+  public int warmUpTable(final YBTable table) throws Exception {
+    Deferred<Integer> d = asyncClient.warmUpTable(table);
+    return d.join(getDefaultAdminOperationTimeoutMs());
+  }
+
+  /**
+   * Look up the locations of all the tablets of the table with the given UUID.
+   * @param tableUUID the table whose tablets to look up
+   * @return the number of tablets of the table whose locations are known
+   * @see #warmUpTable(YBTable)
+   */
+  public int warmUpTable(final String tableUUID) throws Exception {
+    return warmUpTable(openTableByUUID(tableUUID));
+  }
+
   /**
    * Analogous to {@link #shutdown()}.
    * @throws Exception if an error happens while closing the connections
@@ -1313,6 +1334,69 @@ public class YBClient implements AutoCloseable {
       return this;
     }
 
+    /**
+     * Sets whether to coalesce writes to tablet servers. When enabled, the RPCs sent to a tablet
+     * server while a write to it is waiting for its IO thread are written together.
+     * Optional.
+     * If not provided, defaults to false.
+     * @param coalesceWrites whether to coalesce writes
+     * @return this builder
+     */
+    public YBClientBuilder coalesceWrites(boolean coalesceWrites) {
+      clientBuilder.coalesceWrites(coalesceWrites);
+      return this;
+    }
+
+    /**
+     * Sets the number of connections to open to each server.
+     * Optional.
+     * If not provided, defaults to 1.
+     * @param connectionsPerServer the number of connections per server
+     * @return this builder
+     */
+    public YBClientBuilder connectionsPerServer(int connectionsPerServer) {
+      clientBuilder.connectionsPerServer(connectionsPerServer);
+      return this;
+    }
+
+    /**
+     * Sets how RPCs to a server are spread over its connections when there are several.
+     * Optional.
+     * If not provided, defaults to round-robin.
+     * @param connectionSelection the selection policy
+     * @return this builder
+     */
+    public YBClientBuilder connectionSelection(
+        AsyncYBClient.ConnectionSelection connectionSelection) {
+      clientBuilder.connectionSelection(connectionSelection);
+      return this;
+    }
+
+    /**
+     * Sets the policy that decides how RPCs are retried.
+     * Optional.
+     * If not provided, defaults to a {@link LinearRetryPolicy}.
+     * @param retryPolicy the retry policy
+     * @return this builder
+     */
+    public YBClientBuilder retryPolicy(RetryPolicy retryPolicy) {
+      clientBuilder.retryPolicy(retryPolicy);
+      return this;
+    }
+
+    /**
+     * Sets the selector that decides which address of each tablet server to connect to, and
+     * which replica gets the RPCs that allow follower reads.
+     * Optional.
+     * If not provided, defaults to a {@link LeaderReplicaSelector}.
+     * @param replicaSelector the replica selector
+     * @return this builder
+     */
+    public YBClientBuilder replicaSelector(ReplicaSelector replicaSelector) {
+      clientBuilder.replicaSelector(replicaSelector);
+      return this;
+    }
+
     /**
      * Sets the certificate file in case SSL is enabled.
      * Optional.
@@ -51,6 +51,8 @@ import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Abstract base class for all RPC requests going out to YB.
@@ -93,8 +95,10 @@ public abstract class YRpc<R> {
    * RPC response in argument.
    * Once an RPC has been used, we create a new Deferred for it, in case
    * the user wants to re-use it.
+   * The copies of a hedged RPC are answered on different connections, so completing the RPC
+   * atomically claims it, and only the first answer gets to call it back.
    */
-  private Deferred<R> deferred;
+  private final AtomicReference<Deferred<R>> deferred = new AtomicReference<Deferred<R>>();
 
   private AsyncYBClient.RemoteTablet tablet;
 
@@ -120,6 +124,25 @@ public abstract class YRpc<R> {
   // tablet.
   private volatile boolean retrySameServer;
 
+  // How long this RPC slept before its last retry, in milliseconds.
+  long lastSleepMs;  // package-private for AsyncYBClient only.
+
+  // How many times this RPC was retried on another replica without sleeping.
+  byte immediateRetries;  // package-private for AsyncYBClient only.
+
+  // Whether a second copy of this RPC was sent because the first one was slow to be answered.
+  volatile boolean hedged;  // package-private for AsyncYBClient only.
+
+  // How many copies of this hedged RPC were sent and not answered with an error yet.
+  // Package-private for AsyncYBClient only.
+  final AtomicInteger hedgeCopiesInFlight = new AtomicInteger();
+
+  // When this RPC was last written to a server, from System.nanoTime().
+  volatile long sendTimeNanos;  // package-private for TabletClient only.
+
+  // The connection this RPC was last written to.
+  volatile TabletClient lastConnection;  // package-private for AsyncYBClient only.
+
   YRpc(YBTable table) {
     this.table = table;
     this.deadlineTracker = new DeadlineTracker();
@@ -170,12 +193,13 @@ public abstract class YRpc<R> {
   }
 
   private void handleCallback(final Object result) {
-    final Deferred<R> d = deferred;
+    final Deferred<R> d = deferred.getAndSet(null);
     if (d == null) {
       return;
     }
-    deferred = null;
     attempt = 0;
+    lastSleepMs = 0;
+    immediateRetries = 0;
     deadlineTracker.reset();
     d.callback(result);
   }
@@ -202,10 +226,42 @@ public abstract class YRpc<R> {
 
   /** Package private way of accessing / creating the Deferred of this RPC.  */
   final Deferred<R> getDeferred() {
-    if (deferred == null) {
-      deferred = new Deferred<R>();
+    Deferred<R> d = deferred.get();
+    if (d == null) {
+      d = new Deferred<R>();
+      if (deferred.compareAndSet(null, d)) {
+        hedged = false;
+        hedgeCopiesInFlight.set(0);
+      } else {
+        d = deferred.get();
+      }
     }
-    return deferred;
+    return d;
+  }
+
+  /**
+   * Whether this RPC is a copy that lost the race against its hedged twin, i.e. a copy was sent
+   * and the RPC completed already. Such a copy must not be retried.
+   */
+  final boolean isHedgeLoser() {
+    return hedged && deferred.get() == null;
+  }
+
+  /**
+   * Called when a copy of this RPC is answered with an error. Whether it is a hedged copy whose
+   * twin is still in flight, in which case it must be dropped rather than retried or failed: the
+   * twin's answer completes the RPC, and retrying would only send more copies.
+   */
+  final boolean dropHedgeCopy() {
+    return hedged && hedgeCopiesInFlight.getAndDecrement() > 1;
+  }
+
+  /**
+   * Whether this RPC only reads data and can safely be sent more than once, so that a second
+   * copy can be sent when the first one is slow to be answered.
+   */
+  boolean isIdempotentRead() {
+    return false;
   }
 
   AsyncYBClient.RemoteTablet getTablet() {
@@ -228,6 +284,15 @@ public abstract class YRpc<R> {
     this.retrySameServer = retrySameServer;
   }
 
+  /**
+   * Whether any replica of the tablet serves this RPC itself, so that it may be sent to the
+   * replica picked by the client's {@link ReplicaSelector} instead of the leader. Writes, and
+   * RPCs that a follower only forwards to the leader, must not allow it.
+   */
+  boolean isFollowerReadAllowed() {
+    return false;
+  }
+
   void setTimeoutMillis(long timeout) {
     deadlineTracker.setDeadline(timeout);
   }
@@ -248,7 +313,7 @@ public abstract class YRpc<R> {
     buf.append(", attempt=").append(attempt);
     buf.append(", maxAttempts=").append(maxAttempts);
     buf.append(", ").append(deadlineTracker);
-    buf.append(", ").append(deferred);
+    buf.append(", ").append(deferred.get());
     buf.append(')');
     return buf.toString();
   }
@@ -271,24 +336,56 @@ public abstract class YRpc<R> {
     }
   }
 
+  /**
+   * Parses a protobuf from the readable bytes of {@code buf}. Heap buffers, which is what Netty
+   * reads into by default, are parsed in place. Other buffers are copied out first rather than
+   * parsed through protobuf's Unsafe-based direct buffer decoder.
+   */
+  static void readProtobuf(final ChannelBuffer buf,
+                           final Message.Builder builder) {
+    final int length = buf.readableBytes();
+    try {
+      if (buf.hasArray()) {
+        builder.mergeFrom(buf.array(), buf.arrayOffset() + buf.readerIndex(), length);
+      } else {
+        final byte[] payload = new byte[length];
+        buf.getBytes(buf.readerIndex(), payload);
+        builder.mergeFrom(payload);
+      }
+      if (!builder.isInitialized()) {
+        throw new RuntimeException("Could not deserialize the response," +
+                " incompatible RPC? Error is: " + builder.getInitializationErrorString());
+      }
+    } catch (InvalidProtocolBufferException e) {
+      final String msg = "Invalid RPC response: length=" + length
+              + ", payload=" + Bytes.pretty(buf);
+      throw new InvalidResponseException(msg, e);
+    }
+  }
+
+  /**
+   * Serializes the length-prefixed frame of an RPC straight into a buffer from
+   * {@link RpcBufferPool#DEFAULT}, sized from the messages' serialized sizes. The caller gives
+   * the buffer back to the pool once it has been written.
+   */
   static ChannelBuffer toChannelBuffer(Message header, Message pb) {
     int totalSize = IPCUtil.getTotalSizeWhenWrittenDelimited(header, pb);
-    byte[] buf = new byte[totalSize+4];
-    ChannelBuffer chanBuf = ChannelBuffers.wrappedBuffer(buf);
-    chanBuf.clear();
+    ChannelBuffer chanBuf = RpcBufferPool.DEFAULT.acquire(totalSize + 4);
     chanBuf.writeInt(totalSize);
-    final CodedOutputStream out = CodedOutputStream.newInstance(buf, 4, totalSize);
+    final CodedOutputStream out =
+        CodedOutputStream.newInstance(chanBuf.array(), chanBuf.arrayOffset() + 4, totalSize);
     try {
-      out.writeRawVarint32(header.getSerializedSize());
+      out.writeUInt32NoTag(header.getSerializedSize());
       header.writeTo(out);
 
-      out.writeRawVarint32(pb.getSerializedSize());
+      out.writeUInt32NoTag(pb.getSerializedSize());
       pb.writeTo(out);
       out.checkNoSpaceLeft();
     } catch (IOException e) {
+      RpcBufferPool.DEFAULT.release(chanBuf);
       throw new NonRecoverableException("Cannot serialize the following message " + pb, e);
     }
-    chanBuf.writerIndex(buf.length);
+    chanBuf.writerIndex(totalSize + 4);
     return chanBuf;
   }
 
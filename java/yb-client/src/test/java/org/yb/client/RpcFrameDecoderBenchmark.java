@@ -0,0 +1,54 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+
+/**
+ * Feeds responses of growing size to {@link RpcFrameDecoder} in TCP-segment sized chunks and
+ * prints the cost per byte, which should stay flat as responses grow.
+ * <p>
+ * Run with {@code mvn exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.yb.client.RpcFrameDecoderBenchmark}.
+ */
+public class RpcFrameDecoderBenchmark {
+  private static final int SEGMENT_SIZE = 1460;
+  private static final int ITERATIONS = 10;
+
+  public static void main(String[] args) {
+    for (int size = 1 << 12; size <= 1 << 24; size <<= 2) {
+      ChannelBuffer input = TestRpcFrameDecoder.frames(size);
+      long best = Long.MAX_VALUE;
+      for (int at = 0; at != ITERATIONS; ++at) {
+        best = Math.min(best, measure(input.duplicate()));
+      }
+      System.out.println(String.format("%9d bytes in %4d segments: %8d us, %.3f ns/byte",
+          size, (size + SEGMENT_SIZE - 1) / SEGMENT_SIZE,
+          TimeUnit.NANOSECONDS.toMicros(best), (double) best / size));
+    }
+  }
+
+  private static long measure(ChannelBuffer input) {
+    RpcFrameDecoder decoder = new RpcFrameDecoder();
+    long start = System.nanoTime();
+    while (input.readable()) {
+      ChannelBuffer segment = input.readSlice(Math.min(SEGMENT_SIZE, input.readableBytes()));
+      if (decoder.nextFrame(segment) != null && input.readable()) {
+        throw new AssertionError("Frame completed early");
+      }
+    }
+    return System.nanoTime() - start;
+  }
+}
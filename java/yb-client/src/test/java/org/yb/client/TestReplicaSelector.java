@@ -0,0 +1,277 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.yb.Common;
+import org.yb.YBTestRunner;
+import org.yb.consensus.Metadata;
+import org.yb.master.Master;
+import org.yb.util.Slice;
+
+import com.google.protobuf.ByteString;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestReplicaSelector {
+
+  private static Common.CloudInfoPB placement(String cloud, String region, String zone) {
+    return Common.CloudInfoPB.newBuilder()
+        .setPlacementCloud(cloud)
+        .setPlacementRegion(region)
+        .setPlacementZone(zone)
+        .build();
+  }
+
+  private static Common.HostPortPB address(String host) {
+    return Common.HostPortPB.newBuilder().setHost(host).setPort(9100).build();
+  }
+
+  private static final List<Common.CloudInfoPB> PLACEMENTS = Arrays.asList(
+      placement("aws", "us-west-2", "us-west-2a"),
+      placement("aws", "us-east-1", "us-east-1a"),
+      placement("aws", "us-west-2", "us-west-2b"));
+
+  @Test
+  public void testLeaderSelector() {
+    ReplicaSelector selector = new LeaderReplicaSelector();
+    assertEquals(1, selector.selectReplica(PLACEMENTS, new double[] { 1, 10, 0.5 }, 1));
+    assertEquals(address("public"), selector.selectAddress(PLACEMENTS.get(0),
+        Arrays.asList(address("public")), Arrays.asList(address("private"))));
+    assertEquals(address("private"), selector.selectAddress(PLACEMENTS.get(0),
+        Collections.<Common.HostPortPB>emptyList(), Arrays.asList(address("private"))));
+  }
+
+  @Test
+  public void testClosestByPlacement() {
+    ReplicaSelector zone = new ClosestReplicaSelector("aws", "us-west-2", "us-west-2b");
+    assertEquals(2, zone.selectReplica(PLACEMENTS, new double[] { 1, 1, 1 }, 0));
+    // The closest placement wins, however slow.
+    assertEquals(2, zone.selectReplica(PLACEMENTS, new double[] { 1, 1, 50 }, 1));
+
+    ReplicaSelector region = new ClosestReplicaSelector("aws", "us-east-1", null);
+    assertEquals(1, region.selectReplica(PLACEMENTS, new double[] { 1, 1, 1 }, 0));
+
+    ReplicaSelector otherCloud = new ClosestReplicaSelector("gcp", "us-west1", "us-west1-a");
+    assertEquals(2, otherCloud.selectReplica(PLACEMENTS, new double[] { 1, 1, 1 }, 2));
+  }
+
+  @Test
+  public void testClosestByLatency() {
+    ReplicaSelector region = new ClosestReplicaSelector("aws", "us-west-2", null);
+    assertEquals(2, region.selectReplica(PLACEMENTS, new double[] { 5, 0.1, 2 }, 0));
+    // Ties keep the leader.
+    assertEquals(2, region.selectReplica(PLACEMENTS, new double[] { 2, 0.1, 2 }, 2));
+    // Unmeasured replicas get tried.
+    assertEquals(0, region.selectReplica(PLACEMENTS, new double[] { -1, 0.1, 2 }, 2));
+
+    ReplicaSelector latency = new ClosestReplicaSelector();
+    assertEquals(1, latency.selectReplica(PLACEMENTS, new double[] { 5, 0.1, 2 }, 0));
+  }
+
+  @Test
+  public void testClosestAddress() {
+    ReplicaSelector selector = new ClosestReplicaSelector("aws", "us-west-2", "us-west-2a");
+    List<Common.HostPortPB> broadcast = Arrays.asList(address("public"));
+    List<Common.HostPortPB> privateRpc = Arrays.asList(address("private"));
+    List<Common.HostPortPB> none = Collections.emptyList();
+    // Same region, even in another zone.
+    assertEquals(address("private"),
+        selector.selectAddress(PLACEMENTS.get(2), broadcast, privateRpc));
+    assertEquals(address("public"),
+        selector.selectAddress(PLACEMENTS.get(1), broadcast, privateRpc));
+    assertEquals(address("private"), selector.selectAddress(PLACEMENTS.get(1), none, privateRpc));
+    assertEquals(address("public"), selector.selectAddress(PLACEMENTS.get(0), broadcast, none));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZoneWithoutRegion() {
+    new ClosestReplicaSelector("aws", null, "us-west-2a");
+  }
+
+  @Test
+  public void testServerLatencyTracker() {
+    ServerLatencyTracker tracker = new ServerLatencyTracker();
+    assertEquals(-1, tracker.getLatencyMs("ts1"), 0);
+    tracker.record("ts1", 10000000);
+    assertEquals(10, tracker.getLatencyMs("ts1"), 1e-9);
+    tracker.record("ts1", 20000000);
+    assertEquals(10 * (1 - ServerLatencyTracker.WEIGHT) + 20 * ServerLatencyTracker.WEIGHT,
+                 tracker.getLatencyMs("ts1"), 1e-9);
+    assertEquals(-1, tracker.getLatencyMs("ts2"), 0);
+  }
+
+  // Loads a tablet with a replica listening on each of the sockets, the first one being the
+  // leader, placed as in PLACEMENTS.
+  private static AsyncYBClient.RemoteTablet tablet(AsyncYBClient client, ServerSocket[] servers)
+      throws Exception {
+    AsyncYBClient.RemoteTablet tablet = client.new RemoteTablet("table",
+        new Slice("tablet".getBytes()),
+        new Partition(new byte[0], new byte[0], Collections.<Integer>emptyList()));
+    Master.TabletLocationsPB.Builder locations = Master.TabletLocationsPB.newBuilder()
+        .setTabletId(ByteString.copyFromUtf8("tablet"))
+        .setStale(false);
+    for (int i = 0; i < servers.length; i++) {
+      locations.addReplicas(Master.TabletLocationsPB.ReplicaPB.newBuilder()
+          .setTsInfo(Master.TSInfoPB.newBuilder()
+              .setPermanentUuid(ByteString.copyFromUtf8("ts" + i))
+              .addPrivateRpcAddresses(Common.HostPortPB.newBuilder()
+                  .setHost("127.0.0.1")
+                  .setPort(servers[i].getLocalPort()))
+              .setCloudInfo(PLACEMENTS.get(i)))
+          .setRole(i == 0 ? Metadata.RaftPeerPB.Role.LEADER : Metadata.RaftPeerPB.Role.FOLLOWER));
+    }
+    tablet.refreshServers(locations.build());
+    return tablet;
+  }
+
+  // Replicas of the tablets loaded by tablet(), listening on local sockets.
+  private ServerSocket[] servers;
+  private AsyncYBClient client;
+
+  @Before
+  public void setUp() throws Exception {
+    servers = new ServerSocket[PLACEMENTS.size()];
+    for (int i = 0; i < servers.length; i++) {
+      servers[i] = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (client != null) {
+      client.shutdown().join();
+    }
+    for (ServerSocket server : servers) {
+      server.close();
+    }
+  }
+
+  private AsyncYBClient newClient(int connectionsPerServer) {
+    client = new AsyncYBClient.AsyncYBClientBuilder("127.0.0.1:7100")
+        .replicaSelector(new ClosestReplicaSelector("aws", "us-west-2", "us-west-2b"))
+        .connectionsPerServer(connectionsPerServer)
+        .build();
+    return client;
+  }
+
+  /**
+   * None of the tablet RPCs is served by followers, this one pretends to be.
+   */
+  private static class FollowerReadRequest extends GetLatestEntryOpIdRequest {
+    FollowerReadRequest(YBTable table) {
+      super(table, "tablet", new byte[0]);
+    }
+
+    @Override
+    boolean isFollowerReadAllowed() {
+      return true;
+    }
+  }
+
+  @Test
+  public void testFollowerReadFromClosestReplica() throws Exception {
+    AsyncYBClient client = newClient(1);
+    YBTable table = new YBTable(client, "table", "table", null, null);
+    AsyncYBClient.RemoteTablet tablet = tablet(client, servers);
+    assertEquals(PLACEMENTS.size(), tablet.getNumReplicas());
+
+    assertEquals("ts2", client.clientFor(tablet, new FollowerReadRequest(table)).getUuid());
+
+    // The RPCs that don't allow follower reads, like getting changes, go to the leader.
+    GetChangesRequest getChanges =
+        new GetChangesRequest(table, "stream", "tablet", new byte[0], 0, 0);
+    assertEquals("ts0", client.clientFor(tablet, getChanges).getUuid());
+  }
+
+  @Test
+  public void testHedgeOnOtherReplica() throws Exception {
+    AsyncYBClient client = newClient(1);
+    YBTable table = new YBTable(client, "table", "table", null, null);
+    AsyncYBClient.RemoteTablet tablet = tablet(client, servers);
+    FollowerReadRequest followerRead = new FollowerReadRequest(table);
+    followerRead.setTablet(tablet);
+
+    // The first copy went to the closest replica, the second one goes to the next closest.
+    followerRead.lastConnection = client.clientFor(tablet, followerRead);
+    assertEquals("ts2", followerRead.lastConnection.getUuid());
+    assertEquals("ts0", client.hedgeTargetFor(followerRead).getUuid());
+
+    // Without follower reads nor other connections, there is nowhere else to send a copy.
+    GetLatestEntryOpIdRequest getLatestEntryOpId =
+        new GetLatestEntryOpIdRequest(table, "tablet", new byte[0]);
+    getLatestEntryOpId.setTablet(tablet);
+    getLatestEntryOpId.lastConnection = client.clientFor(tablet, getLatestEntryOpId);
+    assertNull(client.hedgeTargetFor(getLatestEntryOpId));
+  }
+
+  @Test
+  public void testHedgeOnOtherConnection() throws Exception {
+    AsyncYBClient client = newClient(2);
+    YBTable table = new YBTable(client, "table", "table", null, null);
+    AsyncYBClient.RemoteTablet tablet = tablet(client, servers);
+    GetLatestEntryOpIdRequest getLatestEntryOpId =
+        new GetLatestEntryOpIdRequest(table, "tablet", new byte[0]);
+    getLatestEntryOpId.setTablet(tablet);
+
+    TabletClient leader = client.clientFor(tablet, getLatestEntryOpId);
+    getLatestEntryOpId.lastConnection = leader;
+    TabletClient target = client.hedgeTargetFor(getLatestEntryOpId);
+    assertNotNull(target);
+    assertNotSame(leader, target);
+    assertSame(leader, target.getServerClient());
+  }
+
+  @Test
+  public void testHedgeCopyErrorIsDropped() throws Exception {
+    AsyncYBClient client = newClient(2);
+    YBTable table = new YBTable(client, "table", "table", null, null);
+    AsyncYBClient.RemoteTablet tablet = tablet(client, servers);
+    GetLatestEntryOpIdRequest getLatestEntryOpId =
+        new GetLatestEntryOpIdRequest(table, "tablet", new byte[0]);
+    getLatestEntryOpId.setTablet(tablet);
+    AtomicInteger numCallbacks = new AtomicInteger();
+    getLatestEntryOpId.getDeferred().addErrback(e -> numCallbacks.incrementAndGet());
+    TabletClient leader = client.clientFor(tablet, getLatestEntryOpId);
+    getLatestEntryOpId.attempt = 1;
+    getLatestEntryOpId.hedgeCopiesInFlight.set(2);
+    getLatestEntryOpId.hedged = true;
+
+    // One copy is told the server isn't the leader while its twin is still in flight: it is
+    // dropped instead of being retried.
+    NonRecoverableException error = new NonRecoverableException("not the leader");
+    client.handleNotLeader(getLatestEntryOpId, error, leader);
+    assertEquals(1, getLatestEntryOpId.attempt);
+    assertEquals(1, getLatestEntryOpId.hedgeCopiesInFlight.get());
+
+    // Both copies being answered only completes the RPC once.
+    getLatestEntryOpId.errback(error);
+    getLatestEntryOpId.errback(error);
+    assertEquals(1, numCallbacks.get());
+    assertTrue(getLatestEntryOpId.isHedgeLoser());
+  }
+}
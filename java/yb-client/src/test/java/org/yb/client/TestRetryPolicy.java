@@ -0,0 +1,91 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import org.junit.Test;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestRetryPolicy {
+
+  @Test
+  public void testLinearBackoff() {
+    RetryPolicy policy = new LinearRetryPolicy();
+    for (int attempt = 1; attempt <= 10; attempt++) {
+      long sleepTimeMs = policy.getSleepTimeMs(attempt, 0);
+      assertTrue(sleepTimeMs >= attempt * AsyncYBClient.SLEEP_TIME);
+      assertTrue(sleepTimeMs < attempt * AsyncYBClient.SLEEP_TIME + 50);
+    }
+    assertFalse(policy.retryOnOtherReplica());
+    assertEquals(-1L, policy.getHedgeDelayMs(10));
+  }
+
+  @Test
+  public void testDecorrelatedJitter() {
+    RetryPolicy policy = new ExponentialJitterRetryPolicy(10, 1000);
+    long previousSleepMs = 0;
+    for (int attempt = 1; attempt <= 100; attempt++) {
+      long sleepTimeMs = policy.getSleepTimeMs(attempt, previousSleepMs);
+      assertTrue(sleepTimeMs >= 10);
+      assertTrue(sleepTimeMs <= Math.min(1000, Math.max(10, previousSleepMs) * 3));
+      previousSleepMs = sleepTimeMs;
+    }
+    assertTrue(policy.retryOnOtherReplica());
+    assertEquals(-1L, policy.getHedgeDelayMs(10));
+  }
+
+  @Test
+  public void testHedgeDelay() {
+    RetryPolicy policy = new ExponentialJitterRetryPolicy(10, 1000).setHedgeReads(true);
+    assertEquals(-1L, policy.getHedgeDelayMs(-1));
+    assertEquals(ExponentialJitterRetryPolicy.MIN_HEDGE_DELAY_MS, policy.getHedgeDelayMs(0));
+    assertEquals(40L, policy.getHedgeDelayMs(40));
+  }
+
+  @Test
+  public void testLatencyPercentiles() {
+    RpcLatencyTracker tracker = new RpcLatencyTracker();
+    for (int i = 0; i < RpcLatencyTracker.MIN_SAMPLES - 1; i++) {
+      tracker.record(1000000);
+    }
+    assertEquals(-1L, tracker.getPercentileMs(0.99));
+
+    // 990 samples of 1ms and 10 of 100ms: the 99th percentile falls in the bucket of 1ms, whose
+    // upper bound rounds up to 2ms, and the 99.5th in the bucket of 100ms.
+    tracker = new RpcLatencyTracker();
+    for (int i = 0; i < 990; i++) {
+      tracker.record(1000000);
+    }
+    for (int i = 0; i < 10; i++) {
+      tracker.record(100000000);
+    }
+    assertEquals(2L, tracker.getPercentileMs(0.99));
+    long p995 = tracker.getPercentileMs(0.995);
+    assertTrue(p995 >= 100 && p995 <= 125);
+  }
+
+  @Test
+  public void testLatencyBuckets() {
+    for (long micros = 1; micros < 1000000; micros = micros * 3 / 2 + 1) {
+      int bucket = RpcLatencyTracker.bucketOf(micros);
+      assertTrue(RpcLatencyTracker.upperBoundOf(bucket) > micros);
+      assertTrue(RpcLatencyTracker.upperBoundOf(bucket) <= micros + micros / 4 + 1);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.assertEquals;
+import static org.yb.AssertionWrappers.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.yb.YBTestRunner;
+
+@RunWith(value=YBTestRunner.class)
+public class TestRpcFrameDecoder {
+
+  // Frames with the given body sizes, back to back, body bytes set to the frame's index.
+  static ChannelBuffer frames(int... sizes) {
+    ChannelBuffer buf = ChannelBuffers.dynamicBuffer();
+    for (int i = 0; i < sizes.length; i++) {
+      buf.writeInt(sizes[i]);
+      for (int j = 0; j < sizes[i]; j++) {
+        buf.writeByte(i);
+      }
+    }
+    return buf;
+  }
+
+  // Feeds 'input' to a decoder in chunks of 'chunkSize' bytes, returns copies of the frames.
+  private static List<ChannelBuffer> decode(ChannelBuffer input, int chunkSize) {
+    RpcFrameDecoder decoder = new RpcFrameDecoder();
+    List<ChannelBuffer> frames = new ArrayList<>();
+    while (input.readable()) {
+      ChannelBuffer chunk = input.readBytes(Math.min(chunkSize, input.readableBytes()));
+      ChannelBuffer frame;
+      while (chunk.readable() && (frame = decoder.nextFrame(chunk)) != null) {
+        frames.add(frame.copy());
+      }
+    }
+    return frames;
+  }
+
+  @Test
+  public void testFragmentedFrames() {
+    int[] sizes = {0, 1, 3, 4, 5, 100, 5000, 0, 70000};
+    ChannelBuffer expected = frames(sizes);
+    for (int chunkSize : new int[] {1, 2, 3, 5, 7, 1460, 65536, expected.readableBytes()}) {
+      List<ChannelBuffer> decoded = decode(expected.duplicate(), chunkSize);
+      assertEquals(sizes.length, decoded.size());
+      for (int i = 0; i < sizes.length; i++) {
+        ChannelBuffer frame = decoded.get(i);
+        assertEquals(4 + sizes[i], frame.readableBytes());
+        assertEquals(sizes[i], frame.readInt());
+        while (frame.readable()) {
+          assertEquals(i, (int) frame.readByte());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testIncompleteFrame() {
+    RpcFrameDecoder decoder = new RpcFrameDecoder();
+    ChannelBuffer input = frames(10);
+    assertNull(decoder.nextFrame(input.readSlice(2)));
+    assertNull(decoder.nextFrame(input.readSlice(7)));
+    ChannelBuffer frame = decoder.nextFrame(input);
+    assertEquals(14, frame.readableBytes());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeLength() {
+    RpcFrameDecoder decoder = new RpcFrameDecoder();
+    ChannelBuffer input = ChannelBuffers.buffer(4);
+    input.writeInt(-1);
+    decoder.nextFrame(input);
+  }
+}
@@ -0,0 +1,123 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.yb.YBTestRunner;
+import org.yb.util.Slice;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestTabletIntervalIndex {
+  private static AsyncYBClient client;
+
+  @BeforeClass
+  public static void setUpBeforeClass() {
+    client = new AsyncYBClient.AsyncYBClientBuilder("127.0.0.1:7100").build();
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    client.shutdown().join();
+  }
+
+  private static AsyncYBClient.RemoteTablet tablet(byte[] start, byte[] end) {
+    Partition partition = new Partition(start, end, Collections.<Integer>emptyList());
+    return client.new RemoteTablet("table", new Slice(("tablet " + Arrays.toString(start) +
+        Arrays.toString(end)).getBytes()), partition);
+  }
+
+  private static byte[] hashCode(int hashCode) {
+    return new byte[] { (byte) (hashCode >> 8), (byte) hashCode };
+  }
+
+  // Tablets splitting the hash codes evenly.
+  private static List<AsyncYBClient.RemoteTablet> hashTablets(int numTablets) {
+    List<AsyncYBClient.RemoteTablet> tablets = new ArrayList<>();
+    int width = (1 << 16) / numTablets;
+    for (int i = 0; i < numTablets; i++) {
+      tablets.add(tablet(i == 0 ? new byte[0] : hashCode(i * width),
+                         i == numTablets - 1 ? new byte[0] : hashCode((i + 1) * width)));
+    }
+    return tablets;
+  }
+
+  @Test
+  public void testHashPartitions() {
+    for (int numTablets : new int[] { 1, 3, 16, 1000 }) {
+      List<AsyncYBClient.RemoteTablet> tablets = hashTablets(numTablets);
+      TabletIntervalIndex index = TabletIntervalIndex.empty().withTablets(tablets);
+      assertEquals(numTablets, index.size());
+      int width = (1 << 16) / numTablets;
+      for (int hashCode = 0; hashCode < 1 << 16; hashCode += 7) {
+        AsyncYBClient.RemoteTablet expected = tablets.get(Math.min(hashCode / width,
+                                                                   numTablets - 1));
+        assertSame(expected, index.lookup(hashCode(hashCode)));
+        // Keys longer than a hash code are in the same tablet.
+        byte[] longKey = Arrays.copyOf(hashCode(hashCode), 5);
+        assertSame(expected, index.lookup(longKey));
+      }
+      assertSame(tablets.get(0), index.lookup(new byte[0]));
+      assertSame(tablets.get(0), index.first());
+    }
+  }
+
+  @Test
+  public void testMissingTablets() {
+    List<AsyncYBClient.RemoteTablet> tablets = hashTablets(4);
+    TabletIntervalIndex index = TabletIntervalIndex.empty()
+        .withTablets(Arrays.asList(tablets.get(1), tablets.get(3)));
+    assertNull(index.lookup(hashCode(0)));
+    assertSame(tablets.get(1), index.lookup(hashCode(0x4000)));
+    assertNull(index.lookup(hashCode(0x8000)));
+    assertSame(tablets.get(3), index.lookup(hashCode(0xffff)));
+
+    // Adding tablets makes a new index.
+    TabletIntervalIndex updated = index.withTablets(Arrays.asList(tablets.get(0)));
+    assertSame(tablets.get(0), updated.lookup(hashCode(0)));
+    assertNull(index.lookup(hashCode(0)));
+    assertEquals(3, updated.size());
+  }
+
+  @Test
+  public void testRangePartitions() {
+    AsyncYBClient.RemoteTablet first = tablet(new byte[0], "b".getBytes());
+    AsyncYBClient.RemoteTablet second = tablet("b".getBytes(), "bcd".getBytes());
+    AsyncYBClient.RemoteTablet last = tablet("f".getBytes(), new byte[0]);
+    TabletIntervalIndex index = TabletIntervalIndex.empty()
+        .withTablets(Arrays.asList(last, first, second));
+    assertSame(first, index.lookup(new byte[0]));
+    assertSame(first, index.lookup("a".getBytes()));
+    assertSame(second, index.lookup("b".getBytes()));
+    assertSame(second, index.lookup("bc".getBytes()));
+    assertNull(index.lookup("bcd".getBytes()));
+    assertNull(index.lookup("e".getBytes()));
+    assertSame(last, index.lookup("f".getBytes()));
+    assertSame(last, index.lookup("zzz".getBytes()));
+    assertSame(first, index.first());
+    assertNull(TabletIntervalIndex.empty().lookup("a".getBytes()));
+    assertNull(TabletIntervalIndex.empty().first());
+  }
+}
@@ -568,6 +568,22 @@ public class TestYBClient extends BaseYBClientTest {
     assertEquals(newSchema.getColumnCount(), table.getSchema().getColumnCount());
   }
 
+  /**
+   * Test that warming up a table caches the locations of all its tablets.
+   */
+  @Test(timeout = 100000)
+  public void testWarmUpTable() throws Exception {
+    LOG.info("Starting testWarmUpTable");
+    YBTable table = syncClient.createTable(DEFAULT_KEYSPACE_NAME, tableName, hashKeySchema,
+        new CreateTableOptions().setNumTablets(AsyncYBClient.MAX_RETURNED_TABLE_LOCATIONS + 10));
+    int numTablets = syncClient.getTabletUUIDs(table).size();
+
+    client.emptyTabletsCacheForTable(table.getTableId());
+    assertEquals(numTablets, syncClient.warmUpTable(table));
+    // Warming up again finds the same tablets.
+    assertEquals(numTablets, syncClient.warmUpTable(table.getTableId()));
+  }
+
   /**
    * Test proper number of tables is returned by YBClient.
    */
@@ -44,6 +44,9 @@ public class Commissioner {
   // The background progress monitor for the tasks.
   static ProgressMonitor progressMonitor;
 
+  // Batches the heartbeat writes of the progress monitor.
+  static TaskProgressWriter progressWriter;
+
   // Threadpool to run user submitted tasks.
   static ExecutorService executor;
 
@@ -66,6 +69,7 @@ public class Commissioner {
 
     // TODO: Conisder replacing simple thread sleep with ScheduledExecutorService
     // Initialize the task manager.
+    progressWriter = new TaskProgressWriter();
     progressMonitor = new ProgressMonitor();
     progressMonitor.start();
     LOG.info("Started TaskProgressMonitor thread.");
@@ -129,7 +133,8 @@ public class Commissioner {
 
   /**
    * A progress monitor to constantly write a last updated timestamp in the DB so that this
-   * process and all its subtasks are considered to be alive.
+   * process and all its subtasks are considered to be alive. The timestamps of all the running
+   * tasks are written together once per interval.
    */
   private class ProgressMonitor extends Thread {
 
@@ -148,7 +153,7 @@ public class Commissioner {
 
           // If the task is still running, update its latest timestamp as a part of the heartbeat.
           if (taskRunner.isTaskRunning()) {
-            taskRunner.doHeartbeat();
+            taskRunner.doHeartbeat(progressWriter);
           } else if (taskRunner.hasTaskSucceeded()) {
             LOG.info("Task " + taskRunner.toString() + " has succeeded.");
             // Remove task from the set of live tasks.
@@ -160,6 +165,8 @@ public class Commissioner {
           }
         }
 
+        progressWriter.flush();
+
         // TODO: Scan the DB for tasks that have failed to make progress and claim one if possible.
 
         // Sleep for the required interval.
@@ -11,13 +11,20 @@
 package com.yugabyte.yw.commissioner;
 
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -42,13 +49,16 @@ import play.Configuration;
 import play.libs.Json;
 
 import akka.actor.ActorSystem;
+import akka.actor.Cancellable;
 import com.google.common.annotations.VisibleForTesting;
 import java.util.concurrent.TimeUnit;
 import scala.concurrent.ExecutionContext;
 import scala.concurrent.duration.Duration;
 
+import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
 import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Histogram;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
@@ -61,6 +71,12 @@ public class HealthChecker {
   public static final String kUnivNameLabel = "univ_name";
   public static final String kCheckLabel = "check_name";
   public static final String kNodeLabel = "node";
+  public static final String kSweepDurationMetricName = "yb_health_check_sweep_duration_seconds";
+  public static final String kUnivCheckDurationMetricName =
+      "yb_univ_health_check_duration_seconds";
+  public static final String kUnivCheckTimeoutMetricName = "yb_univ_health_check_timeouts_total";
+
+  private static final int DEFAULT_MAX_PARALLEL_CHECKS = 8;
 
   play.Configuration config;
 
@@ -75,8 +91,23 @@ public class HealthChecker {
 
   private Gauge healthMetric = null;
 
+  // Time from the start of a scheduled run until the last universe check it started is done.
+  private Histogram sweepDurationMetric = null;
+
+  // Time each universe check takes, excluding the time spent waiting for a worker.
+  private Histogram universeCheckDurationMetric = null;
+
+  private Counter universeCheckTimeoutMetric = null;
+
   private final AtomicBoolean running = new AtomicBoolean(false);
 
+  // Runs the universe checks, at most yb.health.max_parallel_checks of them at a time.
+  private final ScheduledExecutorService checkExecutor;
+
+  // Universes whose check is waiting for a worker or running. A universe is not checked again
+  // until its previous check is done.
+  private final Set<UUID> universesInFlight = ConcurrentHashMap.newKeySet();
+
   private final ActorSystem actorSystem;
 
   private final ExecutionContext executionContext;
@@ -94,6 +125,9 @@ public class HealthChecker {
     this.executionContext = executionContext;
     this.healthManager = healthManager;
     this.promRegistry = promRegistry;
+    this.checkExecutor = Executors.newScheduledThreadPool(
+        maxParallelChecks(),
+        new ThreadFactoryBuilder().setNameFormat("HealthCheck-%d").setDaemon(true).build());
 
     this.initialize();
   }
@@ -127,6 +161,34 @@ public class HealthChecker {
       LOG.warn("Failed to build prometheus gauge for name: " + kUnivMetricName);
     }
 
+    try {
+      sweepDurationMetric = Histogram.build(kSweepDurationMetricName,
+          "Duration of a run of the health checks of all universes").
+        register(this.promRegistry);
+      universeCheckDurationMetric = Histogram.build(kUnivCheckDurationMetricName,
+          "Duration of the health check of a single universe").
+        register(this.promRegistry);
+      universeCheckTimeoutMetric = Counter.build(kUnivCheckTimeoutMetricName,
+          "Number of universe health checks that went past their deadline").
+        register(this.promRegistry);
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Failed to build prometheus health check duration metrics");
+    }
+  }
+
+  // How many universes can be checked at the same time.
+  private int maxParallelChecks() {
+    Integer maxParallelChecks = config.getInt("yb.health.max_parallel_checks");
+    return (maxParallelChecks == null || maxParallelChecks <= 0)
+      ? DEFAULT_MAX_PARALLEL_CHECKS
+      : maxParallelChecks;
+  }
+
+  // How long the check of a single universe can take before it gets interrupted. 0 means
+  // no limit.
+  private long checkTimeoutMs() {
+    Long timeout = config.getLong("yb.health.check_timeout_ms");
+    return timeout == null ? 0 : timeout;
   }
 
   // The interval at which the checker will run.
@@ -178,29 +240,43 @@ public class HealthChecker {
     }
   }
 
+  /**
+   * Starts the checks of all the universes that are due. The checks run on the worker pool, each
+   * universe after its own fixed delay within the first quarter of its check interval, so that
+   * they don't all start at once. This returns as soon as they are all started.
+   */
   @VisibleForTesting
   void scheduleRunner() {
-    if (running.get()) {
+    if (!running.compareAndSet(false, true)) {
       LOG.info("Previous run still underway");
       return;
     }
 
     LOG.info("Running health checker");
-    running.set(true);
+    Sweep sweep = new Sweep();
     // TODO(bogdan): This will not be too DB friendly when we go multi-tenant.
     for (Customer c : Customer.getAll()) {
       try {
-        checkCustomer(c);
+        checkCustomer(c, sweep);
       } catch (Exception ex) {
         LOG.error("Error running health check for customer " + c.uuid, ex);
       }
     }
+    sweep.done();
 
-    LOG.info("Completed running health checker.");
+    LOG.info("Started health checks of " + sweep.numChecks + " universes.");
     running.set(false);
   }
 
+  /**
+   * Checks the universes of the customer if they are due, and waits for the checks to be done.
+   */
   public void checkCustomer(Customer c) {
+    checkCustomer(c, null);
+  }
+
+  // Waits for the checks to be done if sweep is null.
+  private void checkCustomer(Customer c, Sweep sweep) {
     // We need an alerting config to do work.
     CustomerConfig config = CustomerConfig.getAlertConfig(c.uuid);
     if (config == null) {
@@ -233,20 +309,158 @@ public class HealthChecker {
         smtpData =  Json.fromJson(smtpConfig.data, SmtpData.class);
       }
 
-      checkAllUniverses(c, config, shouldSendStatusUpdate, smtpData);
+      if (sweep == null) {
+        checkAllUniverses(c, config, shouldSendStatusUpdate, smtpData);
+      } else {
+        startUniverseChecks(c, config, shouldSendStatusUpdate, smtpData, checkIntervalMs / 4,
+                            sweep);
+      }
     }
   }
 
+  /**
+   * Checks all the universes of the customer on the worker pool, and waits for the checks to be
+   * done.
+   */
   public void checkAllUniverses(
       Customer c, CustomerConfig config, boolean shouldSendStatusUpdate, SmtpData smtpData) {
-    // Process all of a customer's universes.
+    for (Future<?> check : startUniverseChecks(c, config, shouldSendStatusUpdate, smtpData, 0,
+                                               null)) {
+      try {
+        check.get();
+      } catch (Exception ex) {
+        LOG.error("Error waiting for health check of customer " + c.uuid, ex);
+      }
+    }
+  }
+
+  private List<Future<?>> startUniverseChecks(
+      Customer c, CustomerConfig config, boolean shouldSendStatusUpdate, SmtpData smtpData,
+      long spreadMs, Sweep sweep) {
+    List<Future<?>> checks = new ArrayList<>();
     for (Universe u : c.getUniverses()) {
+      if (!universesInFlight.add(u.universeUUID)) {
+        LOG.info("Previous health check for universe " + u.name + " still underway");
+        continue;
+      }
+      // A fixed delay per universe, so that its checks stay evenly spaced from one run to the
+      // next while different universes are spread out.
+      long delayMs = spreadMs <= 0 ? 0 : Math.floorMod(u.universeUUID.hashCode(), spreadMs);
+      if (sweep != null) {
+        sweep.add();
+      }
+      UniverseCheck check =
+          new UniverseCheck(u, c, config, shouldSendStatusUpdate, smtpData, sweep);
       try {
-        checkSingleUniverse(u, c, config, shouldSendStatusUpdate, smtpData);
+        checks.add(checkExecutor.schedule(check, delayMs, TimeUnit.MILLISECONDS));
+      } catch (RuntimeException e) {
+        check.finish();
+        throw e;
+      }
+    }
+    return checks;
+  }
+
+  /**
+   * The check of a single universe on the worker pool. The worker gets interrupted, which also
+   * kills the health check script, if the check runs past yb.health.check_timeout_ms.
+   */
+  private class UniverseCheck implements Runnable {
+    private final Universe universe;
+    private final Customer customer;
+    private final CustomerConfig config;
+    private final boolean shouldSendStatusUpdate;
+    private final SmtpData smtpData;
+    private final Sweep sweep;
+
+    // Guards interrupting the worker, so that it can't be interrupted once the check is done.
+    private final Object lock = new Object();
+    private boolean finished = false;
+
+    UniverseCheck(Universe universe, Customer customer, CustomerConfig config,
+                  boolean shouldSendStatusUpdate, SmtpData smtpData, Sweep sweep) {
+      this.universe = universe;
+      this.customer = customer;
+      this.config = config;
+      this.shouldSendStatusUpdate = shouldSendStatusUpdate;
+      this.smtpData = smtpData;
+      this.sweep = sweep;
+    }
+
+    @Override
+    public void run() {
+      long startNanos = System.nanoTime();
+      Cancellable deadline = scheduleDeadline(Thread.currentThread());
+      try {
+        checkSingleUniverse(universe, customer, config, shouldSendStatusUpdate, smtpData);
       } catch (Exception ex) {
-        LOG.error("Error running health check for universe " + u.universeUUID, ex);
+        LOG.error("Error running health check for universe " + universe.universeUUID, ex);
+      } finally {
+        if (deadline != null) {
+          deadline.cancel();
+        }
+        synchronized (lock) {
+          finished = true;
+          // Don't leave the interrupt of a late deadline to the next check on this worker.
+          Thread.interrupted();
+        }
+        if (universeCheckDurationMetric != null) {
+          universeCheckDurationMetric.observe((System.nanoTime() - startNanos) / 1e9);
+        }
+        finish();
+      }
+    }
+
+    private Cancellable scheduleDeadline(Thread worker) {
+      long timeoutMs = checkTimeoutMs();
+      if (timeoutMs <= 0) {
+        return null;
       }
-     }
+      return actorSystem.scheduler().scheduleOnce(
+        Duration.create(timeoutMs, TimeUnit.MILLISECONDS),
+        () -> {
+          synchronized (lock) {
+            if (!finished) {
+              LOG.error("Health check for universe " + universe.name + " did not complete in " +
+                        timeoutMs + " ms, interrupting it.");
+              if (universeCheckTimeoutMetric != null) {
+                universeCheckTimeoutMetric.inc();
+              }
+              worker.interrupt();
+            }
+          }
+        },
+        executionContext
+      );
+    }
+
+    void finish() {
+      universesInFlight.remove(universe.universeUUID);
+      if (sweep != null) {
+        sweep.done();
+      }
+    }
+  }
+
+  /**
+   * Tracks the universe checks started by a run of scheduleRunner, to time the whole run.
+   */
+  private class Sweep {
+    private final long startNanos = System.nanoTime();
+    // The run itself counts as pending until it has started all of its checks.
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private int numChecks = 0;
+
+    void add() {
+      numChecks++;
+      pending.incrementAndGet();
+    }
+
+    void done() {
+      if (pending.decrementAndGet() == 0 && sweepDurationMetric != null) {
+        sweepDurationMetric.observe((System.nanoTime() - startNanos) / 1e9);
+      }
+    }
   }
 
   public void checkSingleUniverse(Universe u, Customer c, CustomerConfig config,
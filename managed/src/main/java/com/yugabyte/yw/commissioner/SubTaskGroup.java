@@ -4,9 +4,16 @@ package com.yugabyte.yw.commissioner;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -21,6 +28,9 @@ public class SubTaskGroup implements Runnable {
 
   public static final Logger LOG = LoggerFactory.getLogger(SubTaskGroup.class);
 
+  // Name of this host, the owner of all the subtasks.
+  private static final String HOSTNAME = resolveHostname();
+
   // User facing subtask. If this field is 'Invalid', the state of this task list  should
   // not be exposed to the user. Note that multiple task lists can be combined into a single user
   // facing entry by providing the same subtask id.
@@ -35,11 +45,21 @@ public class SubTaskGroup implements Runnable {
   // The list of tasks in this task list.
   private Map<AbstractTaskBase, TaskInfo> taskMap;
 
+  // The TaskInfos of the tasks added since the last time they were written. They are inserted
+  // together, once the position of the group is known.
+  private List<TaskInfo> unsavedTaskInfos;
+
   // The list of futures to wait for.
   private Map<Future<?>, TaskInfo> futuresMap;
 
+  // Hands out the futures of the tasks as they complete.
+  private CompletionService<Object> completionService;
+
   private AtomicInteger numTasksCompleted;
 
+  // The queue this group was added to, told about each task that completes.
+  SubTaskGroupQueue queue;
+
   // The number of threads to run in parallel.
   int numThreads;
 
@@ -72,7 +92,8 @@ public class SubTaskGroup implements Runnable {
   public SubTaskGroup(String name, ExecutorService executor, boolean ignoreErrors) {
     this.name = name;
     this.executor = executor;
-    this.taskMap = new HashMap<>();
+    this.taskMap = new LinkedHashMap<>();
+    this.unsavedTaskInfos = new ArrayList<>();
     this.futuresMap = new HashMap<>();
     this.numTasksCompleted = new AtomicInteger(0);
     this.ignoreErrors = ignoreErrors;
@@ -82,8 +103,9 @@ public class SubTaskGroup implements Runnable {
     this.subTaskGroupType = subTaskGroupType;
     for (TaskInfo taskInfo : taskMap.values()) {
       taskInfo.setSubTaskGroupType(subTaskGroupType);
-      taskInfo.save();
     }
+    updateSavedTaskInfos("sub_task_group_type = :groupType",
+        Collections.singletonMap("groupType", subTaskGroupType.name()));
   }
 
   public UserTaskDetails.SubTaskGroupType getSubTaskGroupType() {
@@ -94,8 +116,9 @@ public class SubTaskGroup implements Runnable {
     this.userSubTaskState = userTaskState;
     for (TaskInfo taskInfo : taskMap.values()) {
       taskInfo.setTaskState(userTaskState);
-      taskInfo.save();
     }
+    updateSavedTaskInfos("task_state = :state",
+        Collections.singletonMap("state", userTaskState.name()));
   }
 
   public synchronized TaskInfo.State getUserSubTaskState() {
@@ -111,26 +134,20 @@ public class SubTaskGroup implements Runnable {
     return getName() + " : completed " + getNumTasksDone() + " out of " + getNumTasks() + " tasks.";
   }
 
-  public void addTask(AbstractTaskBase task) {
+  public synchronized void addTask(AbstractTaskBase task) {
     LOG.info("Adding task #" + taskMap.size() + ": " + task.toString());
     // Set up corresponding TaskInfo.
     TaskType taskType = TaskType.valueOf(task.getClass().getSimpleName());
     TaskInfo taskInfo = new TaskInfo(taskType);
     taskInfo.setTaskDetails(task.getTaskDetails());
     // Set the owner info in the TaskInfo.
-    String hostname = "";
-    try {
-      hostname = InetAddress.getLocalHost().getHostName();
-    } catch (UnknownHostException e) {
-      LOG.error("Could not determine the hostname", e);
-    }
-    taskInfo.setOwner(hostname);
+    taskInfo.setOwner(HOSTNAME);
     // Set the SubTaskGroupType in TaskInfo
     if (this.subTaskGroupType != null) {
       taskInfo.setSubTaskGroupType(this.subTaskGroupType);
     }
-    taskInfo.save();
     taskMap.put(task, taskInfo);
+    unsavedTaskInfos.add(taskInfo);
   }
 
   public int getNumTasks() {
@@ -141,11 +158,51 @@ public class SubTaskGroup implements Runnable {
     return numTasksCompleted.get();
   }
 
-  public void setTaskContext(int position, UUID userTaskUUID) {
+  public synchronized void setTaskContext(int position, UUID userTaskUUID) {
     for (TaskInfo taskInfo : taskMap.values()) {
       taskInfo.setPosition(position);
       taskInfo.setParentUuid(userTaskUUID);
-      taskInfo.save();
+    }
+    Map<String, Object> params = new HashMap<>();
+    params.put("position", position);
+    params.put("parentUuid", userTaskUUID);
+    updateSavedTaskInfos("position = :position, parent_uuid = :parentUuid", params);
+    saveTaskInfos();
+  }
+
+  /**
+   * Inserts the TaskInfos of the tasks added since the last time they were written.
+   */
+  private void saveTaskInfos() {
+    if (unsavedTaskInfos.isEmpty()) {
+      return;
+    }
+    TaskInfo.insertAll(unsavedTaskInfos);
+    unsavedTaskInfos.clear();
+  }
+
+  /**
+   * Applies the update to the TaskInfos of this group that were already written, with a single
+   * statement. The others get the new values when they are inserted.
+   */
+  private void updateSavedTaskInfos(String setClause, Map<String, Object> params) {
+    List<UUID> savedTaskUUIDs = new ArrayList<>();
+    for (TaskInfo taskInfo : taskMap.values()) {
+      if (!unsavedTaskInfos.contains(taskInfo)) {
+        savedTaskUUIDs.add(taskInfo.getTaskUUID());
+      }
+    }
+    if (!savedTaskUUIDs.isEmpty()) {
+      TaskInfo.updateAll(savedTaskUUIDs, setClause, params);
+    }
+  }
+
+  private static String resolveHostname() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      LOG.error("Could not determine the hostname", e);
+      return "";
     }
   }
 
@@ -161,40 +218,81 @@ public class SubTaskGroup implements Runnable {
       return;
     }
     LOG.info("Running task list {}.", getName());
+    synchronized (this) {
+      saveTaskInfos();
+    }
+    completionService = new ExecutorCompletionService<>(executor);
     for (AbstractTaskBase task : taskMap.keySet()) {
-      Future<?> future = executor.submit(task);
+      Future<?> future = completionService.submit(task, null);
       futuresMap.put(future, taskMap.get(task));
     }
   }
 
+  /**
+   * Waits for the tasks in the order they complete, counting them as they do. On the first
+   * failure the tasks still pending are cancelled, unless errors are ignored, in which case the
+   * remaining tasks are waited for as well.
+   *
+   * @return true if all the tasks succeeded, false otherwise.
+   */
   public boolean waitFor() {
-    String errorString = null;
-    for (Future<?> future : futuresMap.keySet()) {
-      // Wait for each future to finish.
+    boolean success = true;
+    for (int i = 0; i < futuresMap.size(); i++) {
+      Future<Object> future;
+      try {
+        future = completionService.take();
+      } catch (InterruptedException e) {
+        LOG.error("Interrupted while waiting for task list {}.", getName());
+        cancelPending();
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      String errorString = null;
       try {
         if (future.get() == null) {
           // Task succeeded.
           numTasksCompleted.incrementAndGet();
+          if (queue != null) {
+            queue.updatePercentDone();
+          }
         } else {
           errorString = "ERROR: task " + future.toString() + " get() returned null.";
           LOG.error(errorString);
         }
-      } catch (Exception e) {
+      } catch (InterruptedException | ExecutionException e) {
+        Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
         errorString = "Failed to execute task " + future.toString() + ", hit error " +
-            e.getMessage() + ".";
-        LOG.error(errorString, e);
-      } finally {
-        if (errorString != null) {
-          TaskInfo taskInfo = futuresMap.get(future);
-          ObjectNode details = taskInfo.getTaskDetails().deepCopy();
-          details.put("errorString", errorString);
-          taskInfo.setTaskDetails(details);
-          taskInfo.save();
+            cause.getMessage() + ".";
+        LOG.error(errorString, cause);
+      }
+      if (errorString != null) {
+        TaskInfo taskInfo = futuresMap.get(future);
+        ObjectNode details = taskInfo.getTaskDetails().deepCopy();
+        details.put("errorString", errorString);
+        taskInfo.setTaskDetails(details);
+        taskInfo.save();
+        success = false;
+        if (!ignoreErrors) {
+          cancelPending();
           return false;
         }
       }
     }
+    return success;
+  }
 
-    return true;
+  /**
+   * Cancels the tasks that have not completed yet, interrupting those that are running.
+   */
+  private void cancelPending() {
+    int numCancelled = 0;
+    for (Future<?> future : futuresMap.keySet()) {
+      if (!future.isDone() && future.cancel(true)) {
+        numCancelled++;
+      }
+    }
+    if (numCancelled > 0) {
+      LOG.info("Cancelled {} pending tasks of task list {}.", numCancelled, getName());
+    }
   }
 }
@@ -27,9 +27,30 @@ public class SubTaskGroupQueue {
    */
   public boolean add(SubTaskGroup subTaskGroup) {
     subTaskGroup.setTaskContext(subTaskGroups.size(), userTaskUUID);
+    subTaskGroup.queue = this;
     return subTaskGroups.add(subTaskGroup);
   }
 
+  /**
+   * Reports the share of the subtasks of this sequence that completed as the progress of the user
+   * task, if it is running on this process.
+   */
+  void updatePercentDone() {
+    TaskRunner taskRunner = Commissioner.runningTasks.get(userTaskUUID);
+    if (taskRunner == null) {
+      return;
+    }
+    int numTasks = 0;
+    int numTasksDone = 0;
+    for (SubTaskGroup subTaskGroup : subTaskGroups) {
+      numTasks += subTaskGroup.getNumTasks();
+      numTasksDone += subTaskGroup.getNumTasksDone();
+    }
+    if (numTasks > 0) {
+      taskRunner.setPercentDone(numTasksDone * 100 / numTasks);
+    }
+  }
+
   /**
    * Execute the sequence of task lists in a sequential manner.
    */
@@ -0,0 +1,125 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.yugabyte.yw.models.TaskInfo;
+import io.ebean.Ebean;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind buffer for the heartbeats and progress of the running tasks.
+ *
+ * The progress monitor queues a heartbeat for every running task on each tick, then flushes them
+ * all at once: the last update time of all the tasks is set by a single UPDATE, and the tasks whose
+ * progress changed are updated along with it, one statement per distinct percentage. Everything
+ * is written in one transaction. What fails to be written is kept for the next flush.
+ *
+ * Not thread-safe, it is meant to be used by the progress monitor thread only.
+ */
+public class TaskProgressWriter {
+
+  public static final Logger LOG = LoggerFactory.getLogger(TaskProgressWriter.class);
+
+  public static final String kWriteDurationMetricName = "yb_task_heartbeat_write_duration_seconds";
+  public static final String kRowsWrittenMetricName = "yb_task_heartbeat_rows_written_total";
+
+  // Tasks that only need their last update time bumped.
+  private final Set<UUID> heartbeats = new LinkedHashSet<>();
+
+  // Tasks whose progress changed, with their latest percentage.
+  private final Map<UUID, Integer> percentDone = new HashMap<>();
+
+  private Histogram writeDurationMetric = null;
+
+  private Counter rowsWrittenMetric = null;
+
+  public TaskProgressWriter() {
+    this(CollectorRegistry.defaultRegistry);
+  }
+
+  public TaskProgressWriter(CollectorRegistry promRegistry) {
+    try {
+      writeDurationMetric = Histogram.build(kWriteDurationMetricName,
+          "Time taken to persist the heartbeats of all running tasks").
+        register(promRegistry);
+      rowsWrittenMetric = Counter.build(kRowsWrittenMetricName,
+          "Number of task rows updated by heartbeats").
+        register(promRegistry);
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Failed to build prometheus task heartbeat metrics");
+    }
+  }
+
+  /**
+   * Queues a heartbeat for the task, to mark it alive as of the next flush.
+   */
+  public void heartbeat(UUID taskUUID) {
+    if (!percentDone.containsKey(taskUUID)) {
+      heartbeats.add(taskUUID);
+    }
+  }
+
+  /**
+   * Queues a change of the task's progress. It also counts as a heartbeat.
+   */
+  public void updatePercentDone(UUID taskUUID, int percent) {
+    heartbeats.remove(taskUUID);
+    percentDone.put(taskUUID, percent);
+  }
+
+  /**
+   * Number of tasks that will be updated by the next flush.
+   */
+  public int getNumPending() {
+    return heartbeats.size() + percentDone.size();
+  }
+
+  /**
+   * Writes all the queued heartbeats and progress updates.
+   */
+  public void flush() {
+    if (getNumPending() == 0) {
+      return;
+    }
+    long startNanos = System.nanoTime();
+    int numRows = 0;
+    Ebean.beginTransaction();
+    try {
+      numRows += TaskInfo.updateAll(heartbeats, null, Collections.emptyMap());
+      Map<Integer, List<UUID>> tasksByPercent = new HashMap<>();
+      for (Map.Entry<UUID, Integer> entry : percentDone.entrySet()) {
+        tasksByPercent.computeIfAbsent(entry.getValue(), k -> new ArrayList<>())
+                      .add(entry.getKey());
+      }
+      for (Map.Entry<Integer, List<UUID>> entry : tasksByPercent.entrySet()) {
+        numRows += TaskInfo.updateAll(entry.getValue(), "percent_done = :percent",
+                                      Collections.singletonMap("percent", entry.getKey()));
+      }
+      Ebean.commitTransaction();
+      heartbeats.clear();
+      percentDone.clear();
+    } catch (Exception e) {
+      LOG.error("Failed to write the heartbeats of " + getNumPending() + " tasks", e);
+    } finally {
+      Ebean.endTransaction();
+    }
+    if (writeDurationMetric != null) {
+      writeDurationMetric.observe((System.nanoTime() - startNanos) / 1e9);
+      rowsWrittenMetric.inc(numRows);
+    }
+  }
+}
@@ -36,6 +36,12 @@ public class TaskRunner implements Runnable {
   // The task object that will run the current task.
   private ITask task;
 
+  // Latest progress of the task reported through setPercentDone, or -1 if none was.
+  private volatile int percentDone = -1;
+
+  // Progress last handed to the progress writer. Only used by the progress monitor.
+  private int queuedPercentDone = -1;
+
   static {
     // Initialize the map which holds the task types to their task class.
     Map<TaskType, Class<? extends ITask>> typeMap = new HashMap<TaskType, Class<? extends ITask>>();
@@ -124,13 +130,24 @@ public class TaskRunner implements Runnable {
   }
 
   /**
-   * This method does two things. First, it updates the timestamp on the task to indicate progress.
-   * Second, it gives the underlying task to checkpoint its work if needed.
+   * Reports the progress of the task, as a percentage. It is persisted with the next heartbeat.
    */
-  public void doHeartbeat() {
-    // Set the last updated timestamp of the task to now by force saving it.
-    taskInfo.markAsDirty();
-    taskInfo.save();
+  public void setPercentDone(int percentDone) {
+    this.percentDone = percentDone;
+  }
+
+  /**
+   * Queues the heartbeat of the task, which updates its timestamp to indicate it is alive, along
+   * with its progress if that changed since the last heartbeat. The writer persists them.
+   */
+  public void doHeartbeat(TaskProgressWriter writer) {
+    int percent = percentDone;
+    if (percent >= 0 && percent != queuedPercentDone) {
+      writer.updatePercentDone(getTaskUUID(), percent);
+      queuedPercentDone = percent;
+    } else {
+      writer.heartbeat(getTaskUUID());
+    }
   }
 
   @Override
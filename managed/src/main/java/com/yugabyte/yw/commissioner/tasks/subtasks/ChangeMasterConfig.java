@@ -92,6 +92,8 @@ public class ChangeMasterConfig extends AbstractTaskBase {
              node.cloudInfo.private_ip, node.masterRpcPort, taskParams().opType.toString(),
              taskParams().useHostPort);
     ChangeConfigResponse response = null;
+    // The client's masters change along with the config, so it must not be shared anymore.
+    ybService.invalidateClient(client, masterAddresses);
     try {
       response = client.changeMasterConfig(
           node.cloudInfo.private_ip, node.masterRpcPort, isAddMasterOp, taskParams().useHostPort);
@@ -10,24 +10,63 @@
 
 package com.yugabyte.yw.common;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Singleton;
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Singleton
 public class ShellProcessHandler {
     public static final Logger LOG = LoggerFactory.getLogger(ShellProcessHandler.class);
 
+    // How much of the output of each stream of a command is kept for its response. When there
+    // is more, the oldest lines are dropped.
+    static final int MAX_RETAINED_OUTPUT_CHARS = 8 * 1024 * 1024;
+
+    // How often the output of the running commands is read, and whether they exited checked.
+    static final long OUTPUT_POLL_INTERVAL_MS = 50;
+
+    // Reads the output of all the running commands as it comes, and completes them when they exit.
+    // The output goes to files rather than pipes, so that it can be read without a thread blocked
+    // on each command, and so that descendants a command leaves running in the background, which
+    // inherit its output, don't hold up its response.
+    private static final ScheduledExecutorService outputPoller =
+        Executors.newScheduledThreadPool(2,
+            new ThreadFactoryBuilder().setNameFormat("ShellProcessOutput-%d").setDaemon(true)
+                                      .build());
+
+    // Kills the commands that are past their deadline.
+    private static final ScheduledExecutorService deadlineTimer =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("ShellProcessDeadline-%d").setDaemon(true)
+                                      .build());
+
     public static class ShellResponse {
         public int code;
         public String message;
@@ -43,11 +82,29 @@ public class ShellProcessHandler {
     @Inject
     play.Configuration appConfig;
 
-
-    public ShellResponse run(
+    /**
+     * Starts the command and returns without waiting for it. The output of the command is read
+     * every OUTPUT_POLL_INTERVAL_MS while it runs, the last MAX_RETAINED_OUTPUT_CHARS of each
+     * stream are kept for the response. What is written once the command exited, by descendants
+     * left running in the background, is ignored.
+     *
+     * @param command the command and its arguments
+     * @param extraEnvVars variables to add to the environment of the command
+     * @param logCmdOutput whether to log each line of output
+     * @param timeoutMs how long the command may run before it is killed along with its
+     *                  descendants, 0 for no limit
+     * @param outputLineConsumer if not null, called with each line of the standard output, from
+     *                           the thread that reads it, which is shared by all the commands
+     * @return the response of the command once it exits. The code is -1 if it could not be
+     *         started or was killed when past its deadline. Cancelling the future kills the
+     *         command.
+     */
+    public CompletableFuture<ShellResponse> runAsync(
         List<String> command,
         Map<String, String> extraEnvVars,
-        boolean logCmdOutput) {
+        boolean logCmdOutput,
+        long timeoutMs,
+        Consumer<String> outputLineConsumer) {
         ProcessBuilder pb = new ProcessBuilder(command);
         Map envVars = pb.environment();
         if (!extraEnvVars.isEmpty()) {
@@ -58,58 +115,308 @@ public class ShellProcessHandler {
             pb.directory(new File(devopsHome));
         }
 
-        ShellResponse response = new ShellResponse();
-        response.code = -1;
-
-        File tempOutputFile = null;
-        File tempErrorFile = null;
+        CompletableFuture<ShellResponse> result = new CompletableFuture<>();
+        OutputBuffer output = new OutputBuffer(MAX_RETAINED_OUTPUT_CHARS);
+        OutputBuffer error = new OutputBuffer(MAX_RETAINED_OUTPUT_CHARS);
+        OutputTail outputTail = null;
+        OutputTail errorTail = null;
+        Process process;
         try {
-            tempOutputFile = File.createTempFile("shell_process_out", "tmp");
-            tempErrorFile = File.createTempFile("shell_process_err", "tmp");
-            pb.redirectOutput(tempOutputFile);
-            pb.redirectError(tempErrorFile);
-            Process process = pb.start();
-            response.code = process.waitFor();
-            String processOutput = fetchStream(new FileInputStream(tempOutputFile), logCmdOutput);
-            String processError = fetchStream(new FileInputStream(tempErrorFile), logCmdOutput);
-            response.message = (response.code == 0) ? processOutput : processError;
-        } catch (IOException | InterruptedException e) {
+            File outputFile = File.createTempFile("shell_process_out", "tmp");
+            outputTail = new OutputTail(outputFile, output, logCmdOutput, outputLineConsumer);
+            File errorFile = File.createTempFile("shell_process_err", "tmp");
+            errorTail = new OutputTail(errorFile, error, logCmdOutput, null);
+            pb.redirectOutput(outputFile);
+            pb.redirectError(errorFile);
+            process = pb.start();
+        } catch (IOException e) {
             LOG.error(e.getMessage());
-            response.message = e.getMessage();
-        } finally {
-            if (tempOutputFile != null && tempOutputFile.exists()) {
-                tempOutputFile.delete();
+            if (outputTail != null) {
+                outputTail.close();
             }
-            if (tempErrorFile != null && tempErrorFile.exists()) {
-                tempErrorFile.delete();
+            if (errorTail != null) {
+                errorTail.close();
             }
+            result.complete(ShellResponse.create(-1, e.getMessage()));
+            return result;
         }
 
-        return response;
+        ScheduledFuture<?> deadline = null;
+        if (timeoutMs > 0) {
+            deadline = deadlineTimer.schedule(() -> {
+                if (!result.isDone()) {
+                    LOG.error("Command [{}] still running after {} ms, killing it.",
+                              String.join(" ", command), timeoutMs);
+                    killProcessTree(process);
+                    result.complete(ShellResponse.create(
+                        -1, "Command timed out after " + timeoutMs + " ms. " + error));
+                }
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        ScheduledFuture<?> scheduledDeadline = deadline;
+
+        OutputTail stdout = outputTail;
+        OutputTail stderr = errorTail;
+        AtomicReference<ScheduledFuture<?>> poll = new AtomicReference<>();
+        poll.set(outputPoller.scheduleWithFixedDelay(() -> {
+            try {
+                if (!result.isDone()) {
+                    if (process.isAlive()) {
+                        stdout.poll();
+                        stderr.poll();
+                        return;
+                    }
+                    // Everything the command wrote is in the files once it exited.
+                    stdout.finish();
+                    stderr.finish();
+                    if (scheduledDeadline != null) {
+                        scheduledDeadline.cancel(false);
+                    }
+                    ShellResponse response = new ShellResponse();
+                    response.code = process.exitValue();
+                    response.message = (response.code == 0) ? output.toString() : error.toString();
+                    result.complete(response);
+                }
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Failed to read the output of command [{}]",
+                          String.join(" ", command), e);
+                killProcessTree(process);
+                result.complete(ShellResponse.create(-1, e.getMessage()));
+            }
+            // Done, killed past its deadline or cancelled.
+            stdout.close();
+            stderr.close();
+            ScheduledFuture<?> scheduledPoll = poll.get();
+            if (scheduledPoll != null) {
+                scheduledPoll.cancel(false);
+            }
+        }, OUTPUT_POLL_INTERVAL_MS, OUTPUT_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS));
+        // The caller gave up on the command, don't leave it running behind us.
+        result.whenComplete((response, t) -> {
+            if (result.isCancelled()) {
+                killProcessTree(process);
+            }
+        });
+        return result;
+    }
+
+    public CompletableFuture<ShellResponse> runAsync(
+        List<String> command,
+        Map<String, String> extraEnvVars) {
+        return runAsync(command, extraEnvVars, true /*logCmdOutput*/, 0 /*timeoutMs*/, null);
+    }
+
+    public ShellResponse run(
+        List<String> command,
+        Map<String, String> extraEnvVars,
+        boolean logCmdOutput) {
+        CompletableFuture<ShellResponse> future =
+            runAsync(command, extraEnvVars, logCmdOutput, 0 /*timeoutMs*/, null);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            LOG.error("Interrupted while waiting for command [{}]", String.join(" ", command));
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return ShellResponse.create(-1, e.getMessage());
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
     }
 
     public ShellResponse run(List<String> command, Map<String, String> extraEnvVars) {
         return run(command, extraEnvVars, true /*logCommandOutput*/);
     }
 
-    private static String fetchStream(
-        InputStream inputStream,
-        boolean logCmdOutput) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        BufferedReader br = null;
+    /**
+     * Reads the lines that a command writes to a file as the file grows.
+     */
+    private static class OutputTail {
+        private final File file;
+        private final InputStream inputStream;
+        private final OutputBuffer buffer;
+        private final boolean logCmdOutput;
+        private final Consumer<String> lineConsumer;
+        private final byte[] chunk = new byte[64 * 1024];
+        // The start of a line whose end wasn't written yet.
+        private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+
+        OutputTail(File file, OutputBuffer buffer, boolean logCmdOutput,
+                   Consumer<String> lineConsumer) throws IOException {
+            this.file = file;
+            this.inputStream = new FileInputStream(file);
+            this.buffer = buffer;
+            this.logCmdOutput = logCmdOutput;
+            this.lineConsumer = lineConsumer;
+        }
+
+        /**
+         * Reads the lines written since the last poll.
+         */
+        void poll() throws IOException {
+            int numRead;
+            while ((numRead = inputStream.read(chunk)) > 0) {
+                int lineStart = 0;
+                for (int i = 0; i < numRead; i++) {
+                    if (chunk[i] == '\n') {
+                        partialLine.write(chunk, lineStart, i - lineStart);
+                        addLine();
+                        lineStart = i + 1;
+                    }
+                }
+                partialLine.write(chunk, lineStart, numRead - lineStart);
+            }
+        }
+
+        /**
+         * Reads the rest of the output, once the command exited, including a last line without
+         * an end.
+         */
+        void finish() throws IOException {
+            poll();
+            if (partialLine.size() > 0) {
+                addLine();
+            }
+        }
+
+        /**
+         * Stops reading and deletes the file. Safe to call more than once.
+         */
+        void close() {
+            try {
+                inputStream.close();
+            } catch (IOException e) {
+                LOG.debug("Failed to close {}: {}", file, e.getMessage());
+            }
+            if (file.exists()) {
+                file.delete();
+            }
+        }
+
+        private void addLine() {
+            String line = new String(partialLine.toByteArray(), StandardCharsets.UTF_8);
+            partialLine.reset();
+            if (line.endsWith("\r")) {
+                line = line.substring(0, line.length() - 1);
+            }
+            buffer.add(line);
+            if (logCmdOutput) {
+                LOG.info(line);
+            }
+            if (lineConsumer != null) {
+                lineConsumer.accept(line);
+            }
+        }
+    }
+
+    /**
+     * Kills the process and all of its descendants, which a devops command usually has: ansible,
+     * ssh, kubectl. Killing only the process would leave them running.
+     */
+    static void killProcessTree(Process process) {
+        long pid = getPid(process);
+        if (pid > 0) {
+            List<Long> descendants = getDescendants(pid);
+            if (!descendants.isEmpty()) {
+                List<String> killCommand = new ArrayList<>();
+                killCommand.add("kill");
+                killCommand.add("-9");
+                for (long descendant : descendants) {
+                    killCommand.add(Long.toString(descendant));
+                }
+                try {
+                    new ProcessBuilder(killCommand).start().waitFor(10, TimeUnit.SECONDS);
+                } catch (IOException | InterruptedException e) {
+                    LOG.warn("Failed to kill the descendants of process {}: {}",
+                             pid, e.getMessage());
+                }
+            }
+        }
+        process.destroyForcibly();
+    }
+
+    private static long getPid(Process process) {
         try {
-            br = new BufferedReader(new InputStreamReader(inputStream));
-            String line = null;
-            while ((line = br.readLine()) != null) {
-                sb.append(line + System.lineSeparator());
-                if (logCmdOutput) {
-                    LOG.info(line);
+            // Process.pid() exists as of Java 9, older JDKs have a private field.
+            return (Long) Process.class.getMethod("pid").invoke(process);
+        } catch (ReflectiveOperationException e) {
+            try {
+                java.lang.reflect.Field field = process.getClass().getDeclaredField("pid");
+                field.setAccessible(true);
+                return field.getInt(process);
+            } catch (ReflectiveOperationException | RuntimeException e1) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Returns the descendants of the process, found through /proc. None where there's no /proc.
+     */
+    private static List<Long> getDescendants(long pid) {
+        Map<Long, List<Long>> children = new HashMap<>();
+        try (Stream<Path> procs = Files.list(Paths.get("/proc"))) {
+            procs.forEach(proc -> {
+                String name = proc.getFileName().toString();
+                if (!name.chars().allMatch(Character::isDigit)) {
+                    return;
                 }
+                try {
+                    // The parent pid is the second field after the command name, which is in
+                    // parentheses and may contain spaces.
+                    String stat = new String(Files.readAllBytes(proc.resolve("stat")),
+                                             StandardCharsets.UTF_8);
+                    String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+                    children.computeIfAbsent(Long.parseLong(fields[1]), k -> new ArrayList<>())
+                            .add(Long.parseLong(name));
+                } catch (IOException | RuntimeException e) {
+                    // The process exited in the meantime.
+                }
+            });
+        } catch (IOException e) {
+            return new ArrayList<>();
+        }
+        List<Long> descendants = new ArrayList<>();
+        Deque<Long> toVisit = new ArrayDeque<>();
+        toVisit.add(pid);
+        while (!toVisit.isEmpty()) {
+            for (long child : children.getOrDefault(toVisit.poll(), new ArrayList<>())) {
+                descendants.add(child);
+                toVisit.add(child);
+            }
+        }
+        return descendants;
+    }
+
+    /**
+     * Keeps the last lines of an output stream, up to a number of characters.
+     */
+    static class OutputBuffer {
+        private final int maxChars;
+        private final Deque<String> lines = new ArrayDeque<>();
+        private int numChars = 0;
+        private boolean truncated = false;
+
+        OutputBuffer(int maxChars) {
+            this.maxChars = maxChars;
+        }
+
+        synchronized void add(String line) {
+            lines.addLast(line);
+            numChars += line.length() + 1;
+            while (numChars > maxChars && lines.size() > 1) {
+                numChars -= lines.removeFirst().length() + 1;
+                truncated = true;
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            if (truncated) {
+                LOG.warn("Command output exceeded {} characters, only the last ones were kept.",
+                         maxChars);
             }
-        } finally {
-            br.close();
-            inputStream.close();
+            return String.join(System.lineSeparator(), lines).trim();
         }
-        return sb.toString().trim();
     }
 }
@@ -2,48 +2,289 @@
 
 package com.yugabyte.yw.common.services;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import play.inject.ApplicationLifecycle;
+
 import javax.inject.Singleton;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
 import org.yb.client.YBClient;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Hands out YBClients shared between all the callers that talk to the same masters.
+ *
+ * Clients are cached by master addresses and certificate file, and reference counted:
+ * getClient takes a reference and closeClient gives it back. A client nobody holds is closed
+ * once it has been idle for IDLE_TIMEOUT_MS. When a client is asked for a set of masters that
+ * overlaps the masters of a cached client without being the same, the masters of that universe
+ * changed, so the cached client is not handed out anymore and gets closed as soon as its last
+ * holder gives it back. The same goes for a client whose masters are about to be changed, see
+ * invalidateClient. Lookups don't take any global lock.
+ *
+ * The cached clients are closed when the application stops.
+ */
 @Singleton
 public class LocalYBClientService implements YBClientService {
   public static final Logger LOG = LoggerFactory.getLogger(LocalYBClientService.class);
 
+  static final long IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+  private static final long EVICTION_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+
+  private final Map<ClientKey, ClientEntry> clients = new ConcurrentHashMap<>();
+  private final Map<YBClient, ClientEntry> entriesByClient = new ConcurrentHashMap<>();
+
+  // Current time in milliseconds.
+  private final LongSupplier clock;
+  private final ScheduledExecutorService evictor;
+
+  @Inject
+  public LocalYBClientService(ApplicationLifecycle lifecycle) {
+    this(System::currentTimeMillis);
+    lifecycle.addStopHook(() -> {
+      shutdown();
+      return CompletableFuture.completedFuture(null);
+    });
+  }
+
+  @VisibleForTesting
+  LocalYBClientService(LongSupplier clock) {
+    this.clock = clock;
+    evictor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("YBClientEvictor-%d").setDaemon(true).build());
+    evictor.scheduleWithFixedDelay(() -> evictIdleClients(clock.getAsLong()),
+        EVICTION_INTERVAL_MS, EVICTION_INTERVAL_MS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops evicting idle clients and closes all the cached ones, held or not.
+   */
+  @VisibleForTesting
+  void shutdown() {
+    evictor.shutdownNow();
+    for (ClientEntry entry : clients.values()) {
+      entry.refs.set(ClientEntry.CLOSED);
+      clients.remove(entry.key, entry);
+      entriesByClient.remove(entry.client, entry);
+      closeQuietly(entry.client, entry.key.masterHostPorts);
+    }
+  }
+
   @Override
-  public synchronized YBClient getClient(String masterHostPorts) {
+  public YBClient getClient(String masterHostPorts) {
     return getClient(masterHostPorts, null);
   }
 
   @Override
-  public synchronized YBClient getClient(String masterHostPorts, String certFile) {
-    if (masterHostPorts != null) {
-      return getNewClient(masterHostPorts, certFile);
+  public YBClient getClient(String masterHostPorts, String certFile) {
+    if (masterHostPorts == null) {
+      return null;
+    }
+    ClientKey key = new ClientKey(masterHostPorts, certFile);
+    while (true) {
+      ClientEntry entry = clients.get(key);
+      if (entry == null) {
+        ClientEntry newEntry = new ClientEntry(key, clock.getAsLong());
+        entry = clients.putIfAbsent(key, newEntry);
+        if (entry == null) {
+          entry = newEntry;
+          entriesByClient.put(entry.client, entry);
+          invalidateOverlapping(key);
+        } else {
+          // Lost the race to another caller, use its client.
+          closeQuietly(newEntry.client, masterHostPorts);
+        }
+      }
+      if (entry.retain()) {
+        return entry.client;
+      }
+      // The entry was closed or went stale in the meantime, get rid of it and try again.
+      clients.remove(key, entry);
     }
-    return null;
   }
 
   @Override
-  public synchronized void closeClient(YBClient client, String masterHostPorts) {
-    if (client != null) {
-      LOG.info("Closing client masters={}.", masterHostPorts);
-      try {
-        client.close();
-      } catch (Exception e) {
-        LOG.warn("Closing client with masters={} hit error {}", masterHostPorts, e.getMessage());
-      }
-    } else {
+  public void closeClient(YBClient client, String masterHostPorts) {
+    if (client == null) {
       LOG.warn("Client for masters {} was null, cannot close", masterHostPorts);
+      return;
+    }
+    ClientEntry entry = entriesByClient.get(client);
+    if (entry == null) {
+      // Not one of ours, or already evicted: nobody else can be using it.
+      closeQuietly(client, masterHostPorts);
+      return;
+    }
+    if (entry.release(clock.getAsLong()) == 0 && entry.stale) {
+      tryClose(entry);
+    }
+  }
+
+  @Override
+  public void invalidateClient(YBClient client, String masterHostPorts) {
+    ClientEntry entry = client == null ? null : entriesByClient.get(client);
+    if (entry == null) {
+      return;
+    }
+    LOG.info("Masters of {} are changing, invalidating client.", masterHostPorts);
+    entry.stale = true;
+    if (entry.refs.get() == 0) {
+      tryClose(entry);
     }
   }
 
-  private YBClient getNewClient(String masterHPs, String certFile) {
+  /**
+   * Marks the cached clients whose masters overlap the given ones, but are not the same, as
+   * stale, and closes those that nobody holds.
+   */
+  private void invalidateOverlapping(ClientKey key) {
+    for (ClientEntry entry : clients.values()) {
+      if (!entry.key.equals(key) && entry.key.overlaps(key)) {
+        LOG.info("Masters changed from {} to {}, invalidating client.",
+                 entry.key.masterHostPorts, key.masterHostPorts);
+        entry.stale = true;
+        if (entry.refs.get() == 0) {
+          tryClose(entry);
+        }
+      }
+    }
+  }
+
+  @VisibleForTesting
+  void evictIdleClients(long nowMs) {
+    for (ClientEntry entry : clients.values()) {
+      if (entry.refs.get() == 0 &&
+          (entry.stale || nowMs - entry.lastReleaseMs >= IDLE_TIMEOUT_MS)) {
+        tryClose(entry);
+      }
+    }
+  }
+
+  @VisibleForTesting
+  int getNumCachedClients() {
+    return clients.size();
+  }
+
+  private void tryClose(ClientEntry entry) {
+    // Only succeeds while nobody holds the client, and only once.
+    if (!entry.refs.compareAndSet(0, ClientEntry.CLOSED)) {
+      return;
+    }
+    clients.remove(entry.key, entry);
+    entriesByClient.remove(entry.client, entry);
+    closeQuietly(entry.client, entry.key.masterHostPorts);
+  }
+
+  private void closeQuietly(YBClient client, String masterHostPorts) {
+    LOG.info("Closing client masters={}.", masterHostPorts);
+    try {
+      client.close();
+    } catch (Exception e) {
+      LOG.warn("Closing client with masters={} hit error {}", masterHostPorts, e.getMessage());
+    }
+  }
+
+  private static YBClient getNewClient(String masterHPs, String certFile) {
     return new YBClient.YBClientBuilder(masterHPs)
                        .defaultAdminOperationTimeoutMs(120000)
                        .sslCertFile(certFile)
                        .build();
   }
+
+  private static class ClientKey {
+    final String masterHostPorts;
+    final Set<String> masters;
+    final String certFile;
+
+    ClientKey(String masterHostPorts, String certFile) {
+      this.masterHostPorts = masterHostPorts;
+      Set<String> masters = new TreeSet<>();
+      for (String hostPort : masterHostPorts.split(",")) {
+        if (!hostPort.trim().isEmpty()) {
+          masters.add(hostPort.trim());
+        }
+      }
+      this.masters = masters;
+      this.certFile = certFile;
+    }
+
+    boolean overlaps(ClientKey other) {
+      return Objects.equals(certFile, other.certFile) &&
+             !Collections.disjoint(masters, other.masters);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof ClientKey)) {
+        return false;
+      }
+      ClientKey other = (ClientKey) o;
+      return masters.equals(other.masters) && Objects.equals(certFile, other.certFile);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(masters, certFile);
+    }
+  }
+
+  private static class ClientEntry {
+    // Value of refs once the client is closed. It can't be retained anymore.
+    static final int CLOSED = -1;
+
+    final ClientKey key;
+    final YBClient client;
+    final AtomicInteger refs = new AtomicInteger(0);
+    volatile long lastReleaseMs;
+    volatile boolean stale = false;
+
+    ClientEntry(ClientKey key, long nowMs) {
+      this.key = key;
+      this.client = getNewClient(key.masterHostPorts, key.certFile);
+      this.lastReleaseMs = nowMs;
+    }
+
+    boolean retain() {
+      while (true) {
+        int current = refs.get();
+        if (current == CLOSED || stale) {
+          return false;
+        }
+        if (refs.compareAndSet(current, current + 1)) {
+          return true;
+        }
+      }
+    }
+
+    int release(long nowMs) {
+      lastReleaseMs = nowMs;
+      while (true) {
+        int current = refs.get();
+        if (current <= 0) {
+          LOG.warn("Client for masters {} was closed more times than it was handed out.",
+                   key.masterHostPorts);
+          return current;
+        }
+        if (refs.compareAndSet(current, current - 1)) {
+          return current - 1;
+        }
+      }
+    }
+  }
 }
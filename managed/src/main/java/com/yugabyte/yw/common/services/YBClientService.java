@@ -7,5 +7,10 @@ import org.yb.client.YBClient;
 public interface YBClientService {
   YBClient getClient(String masterHostPorts);
   YBClient getClient(String masterHostPorts, String certFile);
+  // Gives back a client obtained from getClient. It must not be used afterwards, as it may be
+  // shared with other callers or closed.
   void closeClient(YBClient client, String masterHostPorts);
+  // Stops handing out a client obtained from getClient to other callers, before changing its
+  // master addresses. It is closed once every holder gave it back.
+  void invalidateClient(YBClient client, String masterHostPorts);
 }
@@ -0,0 +1,287 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Short lived cache of the responses to metric queries, so that the viewers of the same graph
+ * share the queries sent to the metrics store.
+ *
+ * Queries are identified by where they are sent, their expression and their step. Their time
+ * range is rounded down to a multiple of the step, so that queries sent within the same step
+ * share their response. Entries expire after a scrape interval, as nothing new can be found
+ * before that. Concurrent lookups of a query that is not cached wait for a single upstream query.
+ * Failed queries are not cached.
+ *
+ * Range queries, which graphs refresh with a window sliding forward in time, are handled
+ * incrementally: the series fetched for a query are kept for a while, and a refresh only fetches
+ * the points past those already known, plus a few recent ones that might have changed since.
+ * All the responses handed out are shared, callers must not modify them.
+ */
+public class MetricQueryCache {
+  public static final Logger LOG = LoggerFactory.getLogger(MetricQueryCache.class);
+
+  private static final int MAX_ENTRIES = 1000;
+
+  // How long the series of a range query are kept after they were last asked for.
+  private static final long RANGE_IDLE_TIMEOUT_MINS = 10;
+
+  private final long ttlSecs;
+
+  private final Cache<String, JsonNode> responses;
+
+  // Series of the range queries, by query and step.
+  private final Cache<String, RangeEntry> ranges;
+
+  public MetricQueryCache(long ttlSecs) {
+    this.ttlSecs = ttlSecs;
+    responses = CacheBuilder.newBuilder()
+                            .expireAfterWrite(ttlSecs, TimeUnit.SECONDS)
+                            .maximumSize(MAX_ENTRIES)
+                            .build();
+    ranges = CacheBuilder.newBuilder()
+                         .expireAfterAccess(RANGE_IDLE_TIMEOUT_MINS, TimeUnit.MINUTES)
+                         .maximumSize(MAX_ENTRIES)
+                         .build();
+  }
+
+  /**
+   * The series of a range query over [start, end], as of when they were fetched.
+   */
+  private static class RangeEntry {
+    long start;
+    long end;
+    long fetchTimeMs;
+    JsonNode response;
+  }
+
+  /**
+   * Returns the cached response to the query, or runs it.
+   *
+   * @param target where the query is sent, e.g. the metrics store URL
+   * @param queryParam the parameters of the query
+   * @param loader runs the query, returns null if it failed
+   * @return the response to the query, or null if it failed
+   */
+  public JsonNode get(String target, Map<String, String> queryParam, Callable<JsonNode> loader) {
+    String key = keyOf(target, queryParam);
+    try {
+      JsonNode response = responses.get(key, () -> {
+        JsonNode loaded = loader.call();
+        if (loaded == null || loaded.has("error")) {
+          // Not cached, but still handed to the caller that is waiting for it.
+          throw new UncachedResponseException(loaded);
+        }
+        return loaded;
+      });
+      return response;
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof UncachedResponseException) {
+        return ((UncachedResponseException) e.getCause()).response;
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    } catch (InvalidCacheLoadException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the response to a range query, fetching only what isn't known yet of its series.
+   * The start and end of the query are rounded down to a multiple of its step.
+   *
+   * @param target where the query is sent, e.g. the metrics store URL
+   * @param queryParam the parameters of the query, with its start, end and step
+   * @param fetcher runs the query with the given parameters, returns null if it failed
+   * @return the response to the query, or null if it failed
+   */
+  public JsonNode getRange(String target, Map<String, String> queryParam,
+                           Function<Map<String, String>, JsonNode> fetcher) {
+    long start, end, step;
+    try {
+      start = (long) Double.parseDouble(queryParam.get("start"));
+      end = (long) Double.parseDouble(queryParam.get("end"));
+      step = Long.parseLong(queryParam.get("step"));
+    } catch (NullPointerException | NumberFormatException e) {
+      return get(target, queryParam, () -> fetcher.apply(queryParam));
+    }
+    if (step <= 0 || end < start) {
+      return get(target, queryParam, () -> fetcher.apply(queryParam));
+    }
+    start -= Math.floorMod(start, step);
+    end -= Math.floorMod(end, step);
+
+    String key = target + '|' + queryParam.get("query") + '|' + step;
+    RangeEntry entry;
+    try {
+      entry = ranges.get(key, RangeEntry::new);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+    synchronized (entry) {
+      long nowMs = System.currentTimeMillis();
+      boolean known = entry.response != null && entry.start <= start && start <= entry.end;
+      if (known && end <= entry.end && nowMs - entry.fetchTimeMs < ttlSecs * 1000) {
+        // Nothing new can have been scraped since the series were fetched.
+        return trim(entry.response, start, end);
+      }
+      long fetchStart = start;
+      if (known && end >= entry.end) {
+        // The last points fetched may have been computed before all their samples were scraped,
+        // and rates are computed over a step plus two scrape intervals, so they are fetched again.
+        long refetchSecs = step + 2 * ttlSecs;
+        long refetchStart = entry.end - refetchSecs + Math.floorMod(refetchSecs, step) - step;
+        fetchStart = Math.max(start, refetchStart);
+      }
+      Map<String, String> params = new HashMap<>(queryParam);
+      params.put("start", Long.toString(fetchStart));
+      params.put("end", Long.toString(end));
+      JsonNode fetched = fetcher.apply(params);
+      if (!isMatrix(fetched)) {
+        return fetched;
+      }
+      JsonNode response = fetched;
+      if (fetchStart > start) {
+        response = merge(entry.response, fetched, start, fetchStart);
+      }
+      entry.start = start;
+      entry.end = end;
+      entry.fetchTimeMs = nowMs;
+      entry.response = response;
+      return response;
+    }
+  }
+
+  private static boolean isMatrix(JsonNode response) {
+    return response != null && !response.has("error") && response.has("data") &&
+        response.get("data").path("result").isArray();
+  }
+
+  /**
+   * Returns the points of the response between start and end.
+   */
+  private static JsonNode trim(JsonNode response, long start, long end) {
+    ArrayNode result = JsonNodeFactory.instance.arrayNode();
+    for (JsonNode series : response.get("data").get("result")) {
+      ArrayNode values = JsonNodeFactory.instance.arrayNode();
+      for (JsonNode point : series.path("values")) {
+        double timestamp = point.path(0).asDouble();
+        if (timestamp >= start && timestamp <= end) {
+          values.add(point);
+        }
+      }
+      if (values.size() > 0) {
+        result.add(withValues(series, values));
+      }
+    }
+    return withResult(response, result);
+  }
+
+  /**
+   * Merges the points of the cached response between start and fetchStart with the points of the
+   * response fetched from fetchStart on, series by series.
+   */
+  private static JsonNode merge(JsonNode cached, JsonNode fetched, long start, long fetchStart) {
+    Map<JsonNode, ArrayNode> valuesBySeries = new LinkedHashMap<>();
+    Map<JsonNode, JsonNode> seriesByLabels = new HashMap<>();
+    for (JsonNode series : cached.get("data").get("result")) {
+      ArrayNode values = JsonNodeFactory.instance.arrayNode();
+      for (JsonNode point : series.path("values")) {
+        double timestamp = point.path(0).asDouble();
+        if (timestamp >= start && timestamp < fetchStart) {
+          values.add(point);
+        }
+      }
+      valuesBySeries.put(series.path("metric"), values);
+      seriesByLabels.put(series.path("metric"), series);
+    }
+    for (JsonNode series : fetched.get("data").get("result")) {
+      ArrayNode values = valuesBySeries.computeIfAbsent(series.path("metric"),
+          labels -> JsonNodeFactory.instance.arrayNode());
+      for (JsonNode point : series.path("values")) {
+        values.add(point);
+      }
+      seriesByLabels.put(series.path("metric"), series);
+    }
+    ArrayNode result = JsonNodeFactory.instance.arrayNode();
+    for (Map.Entry<JsonNode, ArrayNode> entry : valuesBySeries.entrySet()) {
+      if (entry.getValue().size() > 0) {
+        result.add(withValues(seriesByLabels.get(entry.getKey()), entry.getValue()));
+      }
+    }
+    return withResult(fetched, result);
+  }
+
+  private static JsonNode withValues(JsonNode series, ArrayNode values) {
+    ObjectNode copy = ((ObjectNode) series).deepCopy();
+    copy.set("values", values);
+    return copy;
+  }
+
+  private static JsonNode withResult(JsonNode response, ArrayNode result) {
+    ObjectNode copy = JsonNodeFactory.instance.objectNode();
+    copy.setAll((ObjectNode) response);
+    ObjectNode data = JsonNodeFactory.instance.objectNode();
+    data.setAll((ObjectNode) response.get("data"));
+    data.set("result", result);
+    copy.set("data", data);
+    return copy;
+  }
+
+  static String keyOf(String target, Map<String, String> queryParam) {
+    long step = 0;
+    try {
+      step = Long.parseLong(queryParam.getOrDefault("step", "0"));
+    } catch (NumberFormatException e) {
+      LOG.debug("Invalid step {}, not aligning the query range.", queryParam.get("step"));
+    }
+    StringBuilder key = new StringBuilder(target);
+    key.append('|').append(queryParam.get("query"));
+    key.append('|').append(step);
+    for (String timeParam : new String[] {"start", "end", "time"}) {
+      key.append('|').append(align(queryParam.get(timeParam), step));
+    }
+    return key.toString();
+  }
+
+  private static String align(String timestamp, long step) {
+    if (timestamp == null || step <= 0) {
+      return timestamp;
+    }
+    try {
+      long secs = (long) Double.parseDouble(timestamp);
+      return Long.toString(secs - Math.floorMod(secs, step));
+    } catch (NumberFormatException e) {
+      return timestamp;
+    }
+  }
+
+  private static class UncachedResponseException extends RuntimeException {
+    final JsonNode response;
+
+    UncachedResponseException(JsonNode response) {
+      super(null, null, false, false);
+      this.response = response;
+    }
+  }
+}
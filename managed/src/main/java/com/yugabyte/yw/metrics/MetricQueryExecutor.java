@@ -24,6 +24,9 @@ public class MetricQueryExecutor implements Callable<JsonNode> {
   private play.Configuration appConfig;
   private YBMetricQueryComponent ybMetricQueryComponent;
 
+  // Responses shared with the other queries, or null to always query the metrics store.
+  private MetricQueryCache queryCache;
+
   private Map<String, String> queryParam = new HashMap<>();
   private Map<String, String> additionalFilters = new HashMap<>();
   private String queryUrl;
@@ -32,7 +35,15 @@ public class MetricQueryExecutor implements Callable<JsonNode> {
   public MetricQueryExecutor(play.Configuration appConfig, ApiHelper apiHelper,
                              Map<String, String> queryParam, Map<String, String> additionalFilters,
                              YBMetricQueryComponent ybMetricQueryComponent) {
+    this(appConfig, apiHelper, queryParam, additionalFilters, ybMetricQueryComponent, null);
+  }
+
+  public MetricQueryExecutor(play.Configuration appConfig, ApiHelper apiHelper,
+                             Map<String, String> queryParam, Map<String, String> additionalFilters,
+                             YBMetricQueryComponent ybMetricQueryComponent,
+                             MetricQueryCache queryCache) {
     this.apiHelper = apiHelper;
+    this.queryCache = queryCache;
     this.appConfig = appConfig;
     this.queryParam.putAll(queryParam);
     this.additionalFilters.putAll(additionalFilters);
@@ -75,7 +86,14 @@ public class MetricQueryExecutor implements Callable<JsonNode> {
   private JsonNode getMetrics() {
     boolean useNativeMetrics = appConfig.getBoolean("yb.metrics.useNative", false);
     if (useNativeMetrics) {
-      return ybMetricQueryComponent.query(queryParam);
+      if (queryCache == null) {
+        return ybMetricQueryComponent.query(queryParam);
+      }
+      Map<String, String> params = new HashMap<>(queryParam);
+      // Native queries ignore the PromQL expression, they are defined by their key and filters.
+      Map<String, String> keyParams = new HashMap<>(params);
+      keyParams.put("query", params.get("queryKey") + '|' + params.get("filters"));
+      return queryCache.get("native", keyParams, () -> ybMetricQueryComponent.query(params));
     } else {
         if (queryParam.containsKey("end")) {
         this.queryUrl = this.getMetricsUrl() + "/query_range";
@@ -84,7 +102,19 @@ public class MetricQueryExecutor implements Callable<JsonNode> {
       }
 
       //LOG.info("Executing metric query {}: {}", queryUrl, queryParam);
-      return apiHelper.getRequest(queryUrl, new HashMap<>(), queryParam);
+      if (queryCache == null) {
+        return apiHelper.getRequest(queryUrl, new HashMap<>(), queryParam);
+      }
+      String url = queryUrl;
+      Map<String, String> params = new HashMap<>(queryParam);
+      if (queryParam.containsKey("end")) {
+        // Graphs get refreshed over and over, only fetch what they don't have yet.
+        return queryCache.getRange(url, params,
+                                   rangeParams -> apiHelper.getRequest(url, new HashMap<>(),
+                                                                       rangeParams));
+      }
+      return queryCache.get(url, params,
+                            () -> apiHelper.getRequest(url, new HashMap<>(), params));
     }
   }
 
@@ -6,12 +6,14 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.yugabyte.yw.common.ApiHelper;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import io.prometheus.client.Histogram;
 import play.libs.Json;
 
 import java.io.IOException;
@@ -24,15 +26,46 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Singleton
 public class MetricQueryHelper {
 
   public static final Logger LOG = LoggerFactory.getLogger(MetricQueryHelper.class);
   public static final Integer STEP_SIZE =  100;
-  public static final Integer QUERY_EXECUTOR_THREAD_POOL = 5;
+  public static final Integer QUERY_EXECUTOR_THREAD_POOL = 16;
+  public static final Integer QUERY_EXECUTOR_QUEUE_SIZE = 1000;
+
+  // Runs the metric queries of all the requests. When it is saturated, the queries run on the
+  // thread of the request that sends them.
+  private static final ExecutorService queryExecutor;
+
+  private static Histogram queueWaitMetric = null;
+
+  static {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        QUERY_EXECUTOR_THREAD_POOL, QUERY_EXECUTOR_THREAD_POOL, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(QUERY_EXECUTOR_QUEUE_SIZE),
+        new ThreadFactoryBuilder().setNameFormat("MetricQuery-%d").setDaemon(true).build(),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    executor.allowCoreThreadTimeOut(true);
+    queryExecutor = executor;
+    try {
+      queueWaitMetric = Histogram.build("yb_metrics_query_queue_wait_seconds",
+          "Time metric queries spend waiting for a thread of the query executor").
+        register();
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Failed to build prometheus metric query metrics");
+    }
+  }
+
+  // Responses to the metric queries, created on first use, or null if not caching.
+  private MetricQueryCache queryCache = null;
+  private boolean queryCacheInitialized = false;
+
   @Inject
   play.Configuration appConfig;
 
@@ -103,7 +136,7 @@ public class MetricQueryHelper {
       return responseJson;
     }
 
-    ExecutorService threadPool = Executors.newFixedThreadPool(QUERY_EXECUTOR_THREAD_POOL);
+    MetricQueryCache cache = getQueryCache();
     Set<Future<JsonNode>> futures = new HashSet<Future<JsonNode>>();
     for (String metricKey : metricKeys) {
       Map<String, String> queryParams = params;
@@ -116,8 +149,14 @@ public class MetricQueryHelper {
 
       Callable<JsonNode> callable = new MetricQueryExecutor(appConfig, apiHelper,
                                                             queryParams, additionalFilters,
-                                                            ybMetricQueryComponent);
-      Future<JsonNode> future = threadPool.submit(callable);
+                                                            ybMetricQueryComponent, cache);
+      long submitNanos = System.nanoTime();
+      Future<JsonNode> future = queryExecutor.submit(() -> {
+        if (queueWaitMetric != null) {
+          queueWaitMetric.observe((System.nanoTime() - submitNanos) / 1e9);
+        }
+        return callable.call();
+      });
       futures.add(future);
     }
 
@@ -136,10 +175,24 @@ public class MetricQueryHelper {
 
       responseJson.set(response.get("queryKey").asText(), response);
     }
-    threadPool.shutdown();
     return responseJson;
   }
 
+  /**
+   * The cache of the metric query responses. Responses are kept for a scrape interval, there's no
+   * cache if it isn't set.
+   */
+  private synchronized MetricQueryCache getQueryCache() {
+    if (!queryCacheInitialized) {
+      int scrapeIntervalSecs = appConfig.getInt("yb.metrics.scrape_interval_secs", 10);
+      if (scrapeIntervalSecs > 0) {
+        queryCache = new MetricQueryCache(scrapeIntervalSecs);
+      }
+      queryCacheInitialized = true;
+    }
+    return queryCache;
+  }
+
 
 
   /**
@@ -0,0 +1,268 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Time series of metric values, stored as parallel arrays of timestamps (in seconds) and values,
+ * so that the series of a week across all the tservers can be aggregated without boxing points.
+ *
+ * Series are built by appending points, then sorted by time. The operations take sorted series
+ * and return new sorted ones: rates, sums and averages of several series, ratios of two series and
+ * downsampling. Equal timestamps are kept in the order they were added.
+ */
+public class TimeSeries {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private long[] timestamps;
+  private double[] values;
+  private int size = 0;
+
+  public TimeSeries() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public TimeSeries(int capacity) {
+    timestamps = new long[Math.max(capacity, 1)];
+    values = new double[Math.max(capacity, 1)];
+  }
+
+  public void add(long timestampSec, double value) {
+    if (size == timestamps.length) {
+      timestamps = Arrays.copyOf(timestamps, size * 2);
+      values = Arrays.copyOf(values, size * 2);
+    }
+    timestamps[size] = timestampSec;
+    values[size] = value;
+    size++;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public long getTimestamp(int i) {
+    return timestamps[i];
+  }
+
+  public double getValue(int i) {
+    return values[i];
+  }
+
+  /**
+   * Sorts the points by time, in place. Points with the same timestamp keep their order.
+   *
+   * @return this series
+   */
+  public TimeSeries sortByTime() {
+    boolean ascending = true;
+    boolean descending = true;
+    for (int i = 1; i < size && (ascending || descending); i++) {
+      ascending &= timestamps[i - 1] <= timestamps[i];
+      descending &= timestamps[i - 1] > timestamps[i];
+    }
+    if (ascending) {
+      return this;
+    }
+    if (descending) {
+      // Metrics are usually read newest first.
+      for (int i = 0, j = size - 1; i < j; i++, j--) {
+        long timestamp = timestamps[i];
+        timestamps[i] = timestamps[j];
+        timestamps[j] = timestamp;
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+      }
+      return this;
+    }
+    long[] tmpTimestamps = new long[size];
+    double[] tmpValues = new double[size];
+    for (int width = 1; width < size; width *= 2) {
+      for (int lo = 0; lo < size - width; lo += 2 * width) {
+        int mid = lo + width;
+        int hi = Math.min(lo + 2 * width, size);
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi) {
+          if (timestamps[j] < timestamps[i]) {
+            tmpTimestamps[k] = timestamps[j];
+            tmpValues[k++] = values[j++];
+          } else {
+            tmpTimestamps[k] = timestamps[i];
+            tmpValues[k++] = values[i++];
+          }
+        }
+        while (i < mid) {
+          tmpTimestamps[k] = timestamps[i];
+          tmpValues[k++] = values[i++];
+        }
+        while (j < hi) {
+          tmpTimestamps[k] = timestamps[j];
+          tmpValues[k++] = values[j++];
+        }
+        System.arraycopy(tmpTimestamps, lo, timestamps, lo, hi - lo);
+        System.arraycopy(tmpValues, lo, values, lo, hi - lo);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Rate of change of a counter: each point but the last gets the rate over the interval to the
+   * next point.
+   */
+  public TimeSeries rate() {
+    TimeSeries result = new TimeSeries(size);
+    for (int i = 0; i + 1 < size; i++) {
+      long interval = timestamps[i + 1] - timestamps[i];
+      if (interval != 0) {
+        result.add(timestamps[i], (values[i + 1] - values[i]) / interval);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Divides all the values by the given number.
+   */
+  public TimeSeries divide(double denom) {
+    TimeSeries result = new TimeSeries(size);
+    for (int i = 0; i < size; i++) {
+      result.add(timestamps[i], values[i] / denom);
+    }
+    return result;
+  }
+
+  /**
+   * Keeps only the last point of each timestamp.
+   */
+  public TimeSeries distinct() {
+    TimeSeries result = new TimeSeries(size);
+    for (int i = 0; i < size; i++) {
+      if (i + 1 == size || timestamps[i + 1] != timestamps[i]) {
+        result.add(timestamps[i], values[i]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Averages the points over steps of the given length, each step being timestamped by its start.
+   */
+  public TimeSeries downsample(long stepSecs) {
+    TimeSeries result = new TimeSeries();
+    int i = 0;
+    while (i < size) {
+      long stepStart = timestamps[i] - Math.floorMod(timestamps[i], stepSecs);
+      double sum = 0;
+      int count = 0;
+      for (; i < size && timestamps[i] < stepStart + stepSecs; i++) {
+        sum += values[i];
+        count++;
+      }
+      result.add(stepStart, sum / count);
+    }
+    return result;
+  }
+
+  /**
+   * Merges sorted series into one, keeping the points of the same timestamp in the order of their
+   * series in the list.
+   */
+  public static TimeSeries merge(List<TimeSeries> series) {
+    if (series.isEmpty()) {
+      return new TimeSeries();
+    }
+    TimeSeries[] merged = series.toArray(new TimeSeries[0]);
+    for (int width = 1; width < merged.length; width *= 2) {
+      for (int i = 0; i + width < merged.length; i += 2 * width) {
+        merged[i] = merge(merged[i], merged[i + width]);
+      }
+    }
+    return merged[0];
+  }
+
+  private static TimeSeries merge(TimeSeries first, TimeSeries second) {
+    TimeSeries result = new TimeSeries(first.size + second.size);
+    int i = 0, j = 0;
+    while (i < first.size && j < second.size) {
+      if (second.timestamps[j] < first.timestamps[i]) {
+        result.add(second.timestamps[j], second.values[j++]);
+      } else {
+        result.add(first.timestamps[i], first.values[i++]);
+      }
+    }
+    for (; i < first.size; i++) {
+      result.add(first.timestamps[i], first.values[i]);
+    }
+    for (; j < second.size; j++) {
+      result.add(second.timestamps[j], second.values[j]);
+    }
+    return result;
+  }
+
+  /**
+   * Adds up the points of sorted series that are close in time, as the same metric isn't
+   * collected at exactly the same time on every server. The points within windowSecs of the first
+   * point of a window are added, divided by the given number, to the value of that first point.
+   *
+   * @param series the sorted series to add up
+   * @param windowSecs how close in time the points added up must be
+   * @param denom what each value is divided by, e.g. the number of series for an average
+   */
+  public static TimeSeries sum(List<TimeSeries> series, long windowSecs, double denom) {
+    TimeSeries merged = merge(series);
+    TimeSeries result = new TimeSeries();
+    int i = 0;
+    while (i < merged.size) {
+      long windowStart = merged.timestamps[i];
+      double sum = 0.0;
+      for (; i < merged.size && merged.timestamps[i] - windowStart < windowSecs; i++) {
+        sum += merged.values[i] / denom;
+      }
+      result.add(windowStart, sum);
+    }
+    return result;
+  }
+
+  /**
+   * Divides each point of num by the last point of denom at or before it, if that point is less
+   * than windowSecs older. The result is timestamped as the points of denom.
+   */
+  public static TimeSeries divide(TimeSeries num, TimeSeries denom, long windowSecs) {
+    TimeSeries result = new TimeSeries(num.size);
+    int j = -1;
+    for (int i = 0; i < num.size; i++) {
+      long timestamp = num.timestamps[i];
+      while (j + 1 < denom.size && denom.timestamps[j + 1] <= timestamp) {
+        j++;
+      }
+      if (j < 0 || timestamp - denom.timestamps[j] >= windowSecs) {
+        continue;
+      }
+      double value = num.values[i] / denom.values[j];
+      if (!result.isEmpty() && result.timestamps[result.size - 1] == denom.timestamps[j]) {
+        result.values[result.size - 1] = value;
+      } else {
+        result.add(denom.timestamps[j], value);
+      }
+    }
+    return result;
+  }
+
+  public NavigableMap<Long, Double> toMap() {
+    NavigableMap<Long, Double> map = new TreeMap<>();
+    for (int i = 0; i < size; i++) {
+      map.put(timestamps[i], values[i]);
+    }
+    return map;
+  }
+}
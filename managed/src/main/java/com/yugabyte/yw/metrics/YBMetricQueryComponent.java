@@ -3,13 +3,16 @@ package com.yugabyte.yw.metrics;
 
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.JdkSSLOptions;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.SSLOptions;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import com.google.inject.Inject;
@@ -40,10 +43,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -73,41 +77,32 @@ public class YBMetricQueryComponent {
   private static final Integer TIMESTAMP_RANGE_SECS = 30;
 
 
-  // Each data entry needs to be of the format:
-  // [Timestamp, value]
-  private static final String DATA_ENTRY_FORMAT = "[%d,\"%f\"]";
-
-  // Each metric needs to be in the following format for each service method.
-  /*
-  {
-   "metric":{
-      "service_method": <method_name>
-   },
-   "values": List of DATA_ENTRY_FORMAT
-  }
-  */
-  private static final String SERVICE_METRIC_FORMAT = "{\"metric\":{\"service_method\":\"%s\"}," +
-                                                   "\"values\":%s}";
-  private static final String NODE_METRIC_FORMAT = "{\"metric\": {\"node_prefix\": \"%s:%d\"}," +
-                                                    "\"values\":%s} ";
-
-  // The final return format needs to be as follows:
+  // The response has the same format as the one of prometheus:
   /*
   {
      "status":"success",
      "data":{
         "resultType":"matrix",
-        "result": List of METRIC_DATA_FORMAT
+        "result": [
+          {
+            "metric": {"service_method": <method_name>} or {"node_prefix": <ip>:<port>},
+            "values": [[<timestamp>, "<value>"], ...]
+          },
+          ...
+        ]
      }
   }
   */
-  private static final String RESPONSE_FORMAT = "{\"status\":\"success\"," +
-                                                "\"data\":{\"resultType\":\"matrix\"," +
-                                                "\"result\":%s}}";
 
   private static final String METRICS_TABLE = "system.metrics";
-  private static final String QUERY_FORMAT = "select * from %s where metric = '%s' " +
-                                             "and node = '%s' and ts >= %d and ts < %d";
+  private static final String METRIC_QUERY = "select * from " + METRICS_TABLE +
+                                             " where metric = ? and node = ? and ts >= ? and ts < ?";
+
+  // Connections to a universe that weren't used for that long are closed.
+  private static final long CONNECTION_IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
+
+  // How long the tablet servers of a universe are cached, as long as the universe didn't change.
+  private static final long TSERVER_MAPPINGS_TTL_MS = TimeUnit.MINUTES.toMillis(1);
 
   // Array of metrics whose values should be retrieved from details column instead of value column.
   private static final List<String> METRICS_WITH_DETAILS_VALUE = Arrays.asList(
@@ -138,26 +133,101 @@ public class YBMetricQueryComponent {
   private class CassandraConnection {
     Cluster cluster = null;
     Session session = null;
+    PreparedStatement metricQuery = null;
+    // What the connection was made with, it is replaced when they change.
+    List<InetSocketAddress> addresses;
+    String certificate;
+    volatile long lastUsedMs = System.currentTimeMillis();
+
+    void close() {
+      if (session != null) session.closeAsync();
+      if (cluster != null) cluster.closeAsync();
+    }
+  }
+
+  private class CachedTServerMappings {
+    final int universeVersion;
+    final long fetchTimeMs;
+    final TServerMappings mappings;
+
+    CachedTServerMappings(int universeVersion, TServerMappings mappings) {
+      this.universeVersion = universeVersion;
+      this.fetchTimeMs = System.currentTimeMillis();
+      this.mappings = mappings;
+    }
   }
 
-  private CassandraConnection createCassandraConnection(UUID universeUUID) {
+  // Connections to the universes, shared by all the queries.
+  private final Map<UUID, CassandraConnection> connections = new ConcurrentHashMap<>();
+
+  // Tablet servers of the universes.
+  private final Map<UUID, CachedTServerMappings> tserverMappings = new ConcurrentHashMap<>();
+
+  private CassandraConnection createCassandraConnection(List<InetSocketAddress> addresses,
+                                                        String certificate) {
     CassandraConnection cc = new CassandraConnection();
-    List<InetSocketAddress> addresses = Util.getNodesAsInet(universeUUID);
+    cc.addresses = addresses;
+    cc.certificate = certificate;
     if (addresses.isEmpty()) {
       return cc;
     }
     Cluster.Builder builder = Cluster.builder()
                               .addContactPointsWithPorts(addresses);
-    String certificate = Universe.get(universeUUID).getCertificate();
     if (certificate != null) {
       builder.withSSL(SslHelper.getSSLOptions(certificate));
     }
     cc.cluster = builder.build();
 
-    cc.session = cc.cluster.connect();
+    try {
+      cc.session = cc.cluster.connect();
+      cc.metricQuery = cc.session.prepare(METRIC_QUERY);
+    } catch (RuntimeException e) {
+      cc.close();
+      throw e;
+    }
     return cc;
   }
 
+  /**
+   * Returns the connection to the universe, connecting first if there is none yet or if the
+   * nodes or certificate of the universe changed. Also closes the connections that are idle.
+   *
+   * @return the connection, or null if the universe has no nodes to connect to.
+   */
+  private CassandraConnection getConnection(Universe universe) {
+    long nowMs = System.currentTimeMillis();
+    for (Map.Entry<UUID, CassandraConnection> entry : connections.entrySet()) {
+      if (nowMs - entry.getValue().lastUsedMs > CONNECTION_IDLE_TIMEOUT_MS &&
+          connections.remove(entry.getKey(), entry.getValue())) {
+        entry.getValue().close();
+      }
+    }
+    List<InetSocketAddress> addresses = Util.getNodesAsInet(universe.universeUUID);
+    String certificate = universe.getCertificate();
+    CassandraConnection cc = connections.compute(universe.universeUUID, (uuid, current) -> {
+      if (current != null && current.addresses.equals(addresses) &&
+          Objects.equals(current.certificate, certificate)) {
+        return current;
+      }
+      if (current != null) {
+        current.close();
+      }
+      return createCassandraConnection(addresses, certificate);
+    });
+    cc.lastUsedMs = nowMs;
+    return cc.session == null ? null : cc;
+  }
+
+  /**
+   * Drops the connection to the universe after an error, the next query reconnects.
+   */
+  private void closeConnection(UUID universeUUID) {
+    CassandraConnection cc = connections.remove(universeUUID);
+    if (cc != null) {
+      cc.close();
+    }
+  }
+
   private Double getValue(Row r) {
     if (METRICS_WITH_DETAILS_VALUE.contains(r.getString("metric"))) {
       return Util.convertStringToJson(r.getString("details")).get("value").asDouble();
@@ -178,6 +248,20 @@ public class YBMetricQueryComponent {
   };
 
   private TServerMappings getTservers(Universe universe) {
+    CachedTServerMappings cached = tserverMappings.get(universe.universeUUID);
+    if (cached != null && cached.universeVersion == universe.version &&
+        System.currentTimeMillis() - cached.fetchTimeMs < TSERVER_MAPPINGS_TTL_MS) {
+      return cached.mappings;
+    }
+    TServerMappings mappings = fetchTservers(universe);
+    if (!mappings.nameToUUID.isEmpty()) {
+      tserverMappings.put(universe.universeUUID,
+                          new CachedTServerMappings(universe.version, mappings));
+    }
+    return mappings;
+  }
+
+  private TServerMappings fetchTservers(Universe universe) {
     YBClient client = null;
     Map<String, String> nameToUUID = new HashMap<>();
     Map<String, String> uuidToIP = new HashMap<>();
@@ -208,152 +292,109 @@ public class YBMetricQueryComponent {
     return new TServerMappings(nameToUUID, uuidToIP);
   }
 
-  private ResultSet cassandraTserverSelectQuery(String metric, String tserverUUID,
-                                                Session session, Universe universe,
-                                                long startMs, long endMs) {
-    int count = 0;
-    ResultSet rs = null;
-    String queryString = String.format(QUERY_FORMAT, METRICS_TABLE, metric,
-                                       tserverUUID.toString(), (startMs * 1000),
-                                       (endMs * 1000));
-    return session.execute(queryString);
+  private ResultSetFuture cassandraTserverSelectQuery(String metric, String tserverUUID,
+                                                      CassandraConnection cc,
+                                                      long startSecs, long endSecs) {
+    return cc.session.executeAsync(cc.metricQuery.bind(metric, tserverUUID,
+                                                       new Date(startSecs * 1000),
+                                                       new Date(endSecs * 1000)));
+  }
+
+  // A data point, in the required output format: [timestamp, "value"].
+  private static ArrayNode toDataEntry(long timestampSec, double value) {
+    ArrayNode entry = Json.newArray();
+    entry.add(timestampSec);
+    entry.add(String.format("%f", value));
+    return entry;
   }
 
-  // Convert the map to the required output format.
-  private List<String> mapToStringList(Map<Long, Double> metrics) {
-    List<String> vals = new ArrayList<>();
-    for (Entry<Long, Double> entry : metrics.entrySet()) {
-      vals.add(String.format(DATA_ENTRY_FORMAT, entry.getKey(), entry.getValue()));
+  // Convert the series to the required output format.
+  private static ArrayNode toValues(TimeSeries metrics) {
+    ArrayNode values = Json.newArray();
+    for (int i = 0; i < metrics.size(); i++) {
+      values.add(toDataEntry(metrics.getTimestamp(i), metrics.getValue(i)));
     }
-    return vals;
+    return values;
   }
 
-  private double compute(Function function, double initialVal, double valToUpdate, int count) {
+  // Reads the points of the result set, sorted by time.
+  private TimeSeries toTimeSeries(ResultSet rs) {
+    TimeSeries series = new TimeSeries(rs.getAvailableWithoutFetching());
+    Iterator<Row> rowIter = rs.iterator();
+    while (rowIter.hasNext()) {
+      Row row = rowIter.next();
+      series.add(row.getTimestamp("ts").getTime() / 1000, getValue(row));
+    }
+    return series.sortByTime();
+  }
+
+  public TimeSeries calculateRate(List<ResultSet> results, Function function,
+                                  int numTservers) {
+    List<TimeSeries> rates = new ArrayList<>(results.size());
+    for (ResultSet rs : results) {
+      rates.add(toTimeSeries(rs).rate());
+    }
     switch (function) {
       case Sum:
-        return initialVal + valToUpdate;
+        return TimeSeries.sum(rates, TIMESTAMP_RANGE_SECS, 1);
       case Average:
-        return initialVal + (valToUpdate / count);
+        return TimeSeries.sum(rates, TIMESTAMP_RANGE_SECS, numTservers);
       default:
         throw new RuntimeException("Function not supported.");
     }
   }
 
-  public NavigableMap<Long, Double> calculateRate(List<ResultSet> results, Function function,
-                                              int numTservers) {
-    NavigableMap<Long, Double> timeRangeMap = new TreeMap<>();
-    for (ResultSet rs : results) {
-      long currTimestampSec = 0;
-      long prevTimestampSec = 0;
-      double currRate;
-      double currVal = 0;
-      double prevVal = 0;
-      boolean start = true;
-      Iterator<Row> rowIter = rs.iterator();
-      while (rowIter.hasNext()) {
-        Row row = rowIter.next();
-        currTimestampSec = row.getTimestamp("ts").getTime() / 1000;
-        currVal = getValue(row);
-        if (start) {
-          if (!rowIter.hasNext()) {
-            return timeRangeMap;
-          }
-          row = rowIter.next();
-          prevVal = currVal;
-          prevTimestampSec = currTimestampSec;
-          currTimestampSec = row.getTimestamp("ts").getTime() / 1000;
-          currVal = getValue(row);
-          start = false;
-        }
-        if (!rowIter.hasNext()) {
-          break;
-        } else {
-          currRate = (prevVal - currVal) /
-                     (prevTimestampSec - currTimestampSec);
-        }
-        Entry<Long, Double> entry = timeRangeMap.floorEntry(currTimestampSec);
-        // In case there is no entry lower than that, or the entry lower than the key
-        // is older than the range for the same timestamped metric.
-        if (entry == null || currTimestampSec - entry.getKey() > TIMESTAMP_RANGE_SECS) {
-          double calcVal = compute(function, 0.0, currRate, numTservers);
-          timeRangeMap.put(currTimestampSec, calcVal);
-        } else {
-          double calcVal = compute(function, entry.getValue(), currRate, numTservers);
-          timeRangeMap.put(entry.getKey(), calcVal);
-        }
-        prevVal = currVal;
-        prevTimestampSec = currTimestampSec;
-      }
-    }
-    return timeRangeMap;
+  private TimeSeries metricDivide(TimeSeries metricsNum, TimeSeries metricsDenom) {
+    // Due to the metrics being written and read into/from a user table, we get
+    // some rpcs when no workload is running. This causes the latency
+    // graph to be jittery. Values could be marked only when the RPC count is
+    // significant (e.g. more than 10) to get rid of the jitters.
+    return TimeSeries.divide(metricsNum, metricsDenom, TIMESTAMP_RANGE_SECS);
   }
 
-  private TreeMap<Long, Double> metricDivide(NavigableMap<Long, Double> metricsNum,
-                                             NavigableMap<Long, Double> metricsDenom) {
-    TreeMap<Long, Double> timeToVal = new TreeMap<>();
-    for (Entry<Long, Double> entry : metricsNum.entrySet()) {
-      Entry<Long, Double> entry2 = metricsDenom.floorEntry(entry.getKey());
-      if (entry2 != null && Math.abs(entry.getKey() - entry2.getKey()) < TIMESTAMP_RANGE_SECS) {
-        Double val = entry.getValue() / entry2.getValue();
-        // Due to the metrics being written and read into/from a user table, we get
-        // some rpcs when no workload is running. This causes the latency
-        // graph to be jittery. The following code can be uncommented if we want
-        // to get rid of the jitters/mark the values only when the RPC count is
-        // significant.
-        /*
-        Double val = 0.0;
-        if (entry2.getValue() > 10) {
-          val = entry.getValue() / entry2.getValue();
-        }
-        */
-        timeToVal.put(entry2.getKey(), val);
-      }
-    }
-    return timeToVal;
-  }
-
-  private NavigableMap<Long, Double> convertToGb(List<ResultSet> results) {
+  private TimeSeries convertToGb(List<ResultSet> results) {
     return divideByConstant(results, BYTES_IN_GB);
   }
 
-  private NavigableMap<Long, Double> divideByConstant(List<ResultSet> results, double denom) {
-    NavigableMap<Long, Double> timeRangeMap = new TreeMap<>();
+  private TimeSeries divideByConstant(List<ResultSet> results, double denom) {
+    List<TimeSeries> series = new ArrayList<>(results.size());
     for (ResultSet rs : results) {
-      Iterator<Row> rowIter = rs.iterator();
-      while (rowIter.hasNext()) {
-        Row row = rowIter.next();
-        long timestampSec = row.getTimestamp("ts").getTime() / 1000;
-        double val = (double) getValue(row) / denom;
-        timeRangeMap.put(timestampSec, val);
-      }
+      series.add(toTimeSeries(rs));
     }
-    return timeRangeMap;
+    return TimeSeries.merge(series).distinct().divide(denom);
   }
 
-  private List<ResultSet> queryRunner(String metricName, Session session,
-                                      Map<String, String> tserverMap,
-                                      JsonNode params, Universe universe,
-                                      long start, long end) {
-    List<ResultSet> results = new ArrayList<>();
+  /**
+   * Sends the queries for the metric to all the tservers, or only to the one in the params, and
+   * returns without waiting for them.
+   */
+  private List<ResultSetFuture> queryRunner(String metricName, CassandraConnection cc,
+                                            Map<String, String> tserverMap,
+                                            JsonNode params, long start, long end) {
+    List<ResultSetFuture> futures = new ArrayList<>();
     // Check if metric needs to be reported for only a single tserver.
     if (params.has("exported_instance")) {
-      String tserverName = params.path("exported_instance").asText();
-      ResultSet rs = cassandraTserverSelectQuery(metricName,
-                                                 tserverMap.get(tserverName),
-                                                 session, universe,
-                                                 start, end);
-      if (rs != null && rs.iterator().hasNext()) {
-        results.add(rs);
+      String tserverUUID = tserverMap.get(params.path("exported_instance").asText());
+      if (tserverUUID != null) {
+        futures.add(cassandraTserverSelectQuery(metricName, tserverUUID, cc, start, end));
       }
     } else {
-      // TODO: Maybe query for all tservers and split here rather than make more
-      // database calls.
       for (Entry<String, String> entry : tserverMap.entrySet()) {
-        ResultSet rs = cassandraTserverSelectQuery(metricName, entry.getValue(),
-                                                   session, universe, start, end);
-        if (rs != null && rs.iterator().hasNext()) {
-          results.add(rs);
-        }
+        futures.add(cassandraTserverSelectQuery(metricName, entry.getValue(), cc, start, end));
+      }
+    }
+    return futures;
+  }
+
+  /**
+   * Waits for the queries, and returns the results that have rows.
+   */
+  private static List<ResultSet> getResults(List<ResultSetFuture> futures) {
+    List<ResultSet> results = new ArrayList<>();
+    for (ResultSetFuture future : futures) {
+      ResultSet rs = future.getUninterruptibly();
+      if (rs != null && rs.iterator().hasNext()) {
+        results.add(rs);
       }
     }
     return results;
@@ -362,13 +403,12 @@ public class YBMetricQueryComponent {
   /**
    * Utility function for inserting calculated metrics with the proper formatting.
    */
-  private void insertMetrics(List<String> totalMetrics, Map<Long, Double> newVals,
-                             String method) {
+  private static void insertMetrics(ArrayNode totalMetrics, TimeSeries newVals,
+                                    String method) {
     if (!newVals.isEmpty()) {
-      totalMetrics.add(String.format(SERVICE_METRIC_FORMAT, method,
-                                      mapToStringList(newVals)));
-      // Note that we are passing a List<String> to the %s parameter and expecting
-      // it to be serialized as [ s1, s2 ], which also matches the json array format
+      ObjectNode metric = totalMetrics.addObject();
+      metric.putObject("metric").put("service_method", method);
+      metric.set("values", toValues(newVals));
     }
   }
 
@@ -385,7 +425,7 @@ public class YBMetricQueryComponent {
     // total_rpcs_per_sec
     // tserver_ops_latency
     JsonNode responseJson = null;
-    List<String> metricResults = new ArrayList<>();
+    ArrayNode metricResults = Json.newArray();
     String queryKey = queryParam.get("queryKey");
     Date date = new Date();
     Long startTime = Long.parseLong(queryParam.getOrDefault("start", "0"));
@@ -409,179 +449,140 @@ public class YBMetricQueryComponent {
       TServerMappings tserverMaps = getTservers(universe);
       CassandraConnection cc = null;
 
-      switch (queryKey) {
-        case "total_rpcs_per_sec":
-          cc = createCassandraConnection(universe.universeUUID);
-          if (cc.session == null) {
-            return responseJson;
-          }
-          for (String method : serviceMethods) {
-            String metricName = String.format(COUNT_METRIC_STRING, method);
-            List<ResultSet> results = queryRunner(
-              metricName,
-              cc.session,
-              tserverMaps.nameToUUID,
-              params,
-              universe,
-              startTime,
-              endTime
-            );
-            NavigableMap<Long, Double> metricsVals = calculateRate(results, Function.Sum,
-                                                                   results.size());
-            insertMetrics(metricResults, metricsVals, method);
-          }
-          break;
-        case "tserver_ops_latency":
-          cc = createCassandraConnection(universe.universeUUID);
-          if (cc.session == null) {
-            return responseJson;
-          }
-          for (String method : serviceMethods) {
-            String metricCount = String.format(COUNT_METRIC_STRING, method);
-            String metricSum = String.format(SUM_METRIC_STRING, method);
-            List<ResultSet> resultCount = queryRunner(
-              metricCount,
-              cc.session,
-              tserverMaps.nameToUUID,
-              params,
-              universe,
-              startTime,
-              endTime
-            );
-            List<ResultSet> resultSum = queryRunner(
-              metricSum,
-              cc.session,
-              tserverMaps.nameToUUID,
-              params,
-              universe,
-              startTime,
-              endTime
-            );
-            NavigableMap<Long, Double> metricsCount = calculateRate(resultCount, Function.Average,
-                                                                    resultCount.size());
-            NavigableMap<Long, Double> metricsSum = calculateRate(resultSum, Function.Average,
-                                                                  resultSum.size());
-            TreeMap<Long, Double> metricsVals = metricDivide(metricsSum, metricsCount);
-            insertMetrics(metricResults, metricsVals, method);
+      try {
+        switch (queryKey) {
+          case "total_rpcs_per_sec": {
+            cc = getConnection(universe);
+            if (cc == null) {
+              return responseJson;
+            }
+            // Send the queries of all the methods before waiting for any.
+            Map<String, List<ResultSetFuture>> futures = new HashMap<>();
+            for (String method : serviceMethods) {
+              String metricName = String.format(COUNT_METRIC_STRING, method);
+              futures.put(method, queryRunner(metricName, cc, tserverMaps.nameToUUID, params,
+                                              startTime, endTime));
+            }
+            for (String method : serviceMethods) {
+              List<ResultSet> results = getResults(futures.get(method));
+              TimeSeries metricsVals = calculateRate(results, Function.Sum,
+                                                     results.size());
+              insertMetrics(metricResults, metricsVals, method);
+            }
+            break;
           }
-          break;
-        case "disk_usage":
-          cc = createCassandraConnection(universe.universeUUID);
-          if (cc.session == null) {
-            return responseJson;
+          case "tserver_ops_latency": {
+            cc = getConnection(universe);
+            if (cc == null) {
+              return responseJson;
+            }
+            Map<String, List<ResultSetFuture>> countFutures = new HashMap<>();
+            Map<String, List<ResultSetFuture>> sumFutures = new HashMap<>();
+            for (String method : serviceMethods) {
+              String metricCount = String.format(COUNT_METRIC_STRING, method);
+              String metricSum = String.format(SUM_METRIC_STRING, method);
+              countFutures.put(method, queryRunner(metricCount, cc, tserverMaps.nameToUUID,
+                                                   params, startTime, endTime));
+              sumFutures.put(method, queryRunner(metricSum, cc, tserverMaps.nameToUUID,
+                                                 params, startTime, endTime));
+            }
+            for (String method : serviceMethods) {
+              List<ResultSet> resultCount = getResults(countFutures.get(method));
+              List<ResultSet> resultSum = getResults(sumFutures.get(method));
+              TimeSeries metricsCount = calculateRate(resultCount, Function.Average,
+                                                      resultCount.size());
+              TimeSeries metricsSum = calculateRate(resultSum, Function.Average,
+                                                    resultSum.size());
+              TimeSeries metricsVals = metricDivide(metricsSum, metricsCount);
+              insertMetrics(metricResults, metricsVals, method);
+            }
+            break;
           }
-          List<ResultSet> totalDiskRaw = queryRunner(
-            TOTAL_DISK_STRING,
-            cc.session,
-            tserverMaps.nameToUUID,
-            params,
-            universe,
-            startTime,
-            endTime
-          );
-          List<ResultSet> freeDiskRaw = queryRunner(
-            FREE_DISK_STRING,
-            cc.session,
-            tserverMaps.nameToUUID,
-            params,
-            universe,
-            startTime,
-            endTime
-          );
-          NavigableMap<Long, Double> totalDiskMetrics = convertToGb(totalDiskRaw);
-          NavigableMap<Long, Double> freeDiskMetrics = convertToGb(freeDiskRaw);
-          insertMetrics(metricResults, totalDiskMetrics, "size");
-          insertMetrics(metricResults, freeDiskMetrics, "free");
-          break;
-        case "cpu_usage":
-          cc = createCassandraConnection(universe.universeUUID);
-          if (cc.session == null) {
-            return responseJson;
+          case "disk_usage": {
+            cc = getConnection(universe);
+            if (cc == null) {
+              return responseJson;
+            }
+            List<ResultSetFuture> totalDiskFutures = queryRunner(
+              TOTAL_DISK_STRING, cc, tserverMaps.nameToUUID, params, startTime, endTime);
+            List<ResultSetFuture> freeDiskFutures = queryRunner(
+              FREE_DISK_STRING, cc, tserverMaps.nameToUUID, params, startTime, endTime);
+            TimeSeries totalDiskMetrics = convertToGb(
+              getResults(totalDiskFutures));
+            TimeSeries freeDiskMetrics = convertToGb(getResults(freeDiskFutures));
+            insertMetrics(metricResults, totalDiskMetrics, "size");
+            insertMetrics(metricResults, freeDiskMetrics, "free");
+            break;
           }
-          List<ResultSet> userCpuRaw = queryRunner(
-            CPU_USAGE_USER_STRING,
-            cc.session,
-            tserverMaps.nameToUUID,
-            params,
-            universe,
-            startTime,
-            endTime
-          );
-          List<ResultSet> systemCpuRaw = queryRunner(
-            CPU_USAGE_SYSTEM_STRING,
-            cc.session,
-            tserverMaps.nameToUUID,
-            params,
-            universe,
-            startTime,
-            endTime
-          );
-          NavigableMap<Long, Double> userCpuMetrics = divideByConstant(userCpuRaw, 0.01);
-          NavigableMap<Long, Double> systemCpuMetrics = divideByConstant(systemCpuRaw, 0.01);
-          insertMetrics(metricResults, userCpuMetrics, "user");
-          insertMetrics(metricResults, systemCpuMetrics, "system");
-          break;
-        case "node_up":
-          cc = createCassandraConnection(universe.universeUUID);
-          if (cc.session == null) {
-            return responseJson;
+          case "cpu_usage": {
+            cc = getConnection(universe);
+            if (cc == null) {
+              return responseJson;
+            }
+            List<ResultSetFuture> userCpuFutures = queryRunner(
+              CPU_USAGE_USER_STRING, cc, tserverMaps.nameToUUID, params, startTime, endTime);
+            List<ResultSetFuture> systemCpuFutures = queryRunner(
+              CPU_USAGE_SYSTEM_STRING, cc, tserverMaps.nameToUUID, params, startTime, endTime);
+            TimeSeries userCpuMetrics = divideByConstant(
+              getResults(userCpuFutures), 0.01);
+            TimeSeries systemCpuMetrics = divideByConstant(
+              getResults(systemCpuFutures), 0.01);
+            insertMetrics(metricResults, userCpuMetrics, "user");
+            insertMetrics(metricResults, systemCpuMetrics, "system");
+            break;
           }
-          List<ResultSet> results = queryRunner(
-            "node_up",
-            cc.session,
-            tserverMaps.nameToUUID,
-            params,
-            universe,
-            startTime,
-            endTime
-          );
-          Map<String, List<String>> nodeUpMetrics = new HashMap<>();
-          for (ResultSet rs : results) {
-            Iterator<Row> rowIter = rs.iterator();
-            while (rowIter.hasNext()) {
-              Row row = rowIter.next();
-              String nodeIP = tserverMaps.uuidToIP.get(row.getString("node"));
-
-              if (null != nodeIP) {
-                long timestampSec = row.getTimestamp("ts").getTime() / 1000;
-                double val = (double) getValue(row);
-                String valStr = String.format(DATA_ENTRY_FORMAT, timestampSec, val);
-
-                if (null == nodeUpMetrics.get(nodeIP)) {
-                  nodeUpMetrics.put(nodeIP, new ArrayList<String>());
+          case "node_up": {
+            cc = getConnection(universe);
+            if (cc == null) {
+              return responseJson;
+            }
+            List<ResultSet> results = getResults(queryRunner(
+              "node_up", cc, tserverMaps.nameToUUID, params, startTime, endTime));
+            Map<String, ArrayNode> nodeUpMetrics = new HashMap<>();
+            for (ResultSet rs : results) {
+              Iterator<Row> rowIter = rs.iterator();
+              while (rowIter.hasNext()) {
+                Row row = rowIter.next();
+                String nodeIP = tserverMaps.uuidToIP.get(row.getString("node"));
+
+                if (null != nodeIP) {
+                  long timestampSec = row.getTimestamp("ts").getTime() / 1000;
+                  double val = (double) getValue(row);
+                  nodeUpMetrics.computeIfAbsent(nodeIP, ip -> Json.newArray())
+                               .add(toDataEntry(timestampSec, val));
                 }
-                nodeUpMetrics.get(nodeIP).add(valStr);
               }
             }
-          }
 
-          for (Entry<String, List<String>> nodeUpMetric : nodeUpMetrics.entrySet()) {
-            metricResults.add(String.format(
-              NODE_METRIC_FORMAT,
-              nodeUpMetric.getKey(),
+            int[] ports = {
               universe.getUniverseDetails().communicationPorts.masterHttpPort,
-              nodeUpMetric.getValue()
-            ));
-            metricResults.add(String.format(
-              NODE_METRIC_FORMAT,
-              nodeUpMetric.getKey(),
-              universe.getUniverseDetails().communicationPorts.tserverHttpPort,
-              nodeUpMetric.getValue()
-            ));
-            // Note that we are passing a List<String> to the %s parameter and expecting
-            // it to be serialized as [ s1, s2 ], which also matches the json array format
+              universe.getUniverseDetails().communicationPorts.tserverHttpPort
+            };
+            for (Entry<String, ArrayNode> nodeUpMetric : nodeUpMetrics.entrySet()) {
+              for (int port : ports) {
+                ObjectNode metric = metricResults.addObject();
+                metric.putObject("metric")
+                      .put("node_prefix", nodeUpMetric.getKey() + ":" + port);
+                metric.set("values", nodeUpMetric.getValue().deepCopy());
+              }
+            }
+            break;
           }
-          break;
-        default:
-          LOG.warn("Query: " + queryKey + " not supported.");
-      }
-      if (cc != null) {
-        if (cc.session != null) cc.session.close();
-        if (cc.cluster != null) cc.cluster.close();
+          default:
+            LOG.warn("Query: " + queryKey + " not supported.");
+        }
+      } catch (RuntimeException e) {
+        // The connection may be broken, don't reuse it.
+        closeConnection(universe.universeUUID);
+        throw e;
       }
-      if (!metricResults.isEmpty()) {
-        String returnJson = String.format(RESPONSE_FORMAT, metricResults);
-        responseJson = Util.convertStringToJson(returnJson);
+      if (metricResults.size() > 0) {
+        ObjectNode response = Json.newObject();
+        response.put("status", "success");
+        ObjectNode data = response.putObject("data");
+        data.put("resultType", "matrix");
+        data.set("result", metricResults);
+        responseJson = response;
       }
     }
     return responseJson;
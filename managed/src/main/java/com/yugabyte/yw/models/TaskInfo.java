@@ -2,6 +2,8 @@
 
 package com.yugabyte.yw.models;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -187,6 +189,66 @@ public class TaskInfo extends Model {
     return find.byId(taskUUID);
   }
 
+  // Upper bound on the number of task UUIDs bound in a single statement.
+  public static final int MAX_TASKS_PER_STATEMENT = 500;
+
+  /**
+   * Inserts all the given tasks using JDBC batches, in a single transaction.
+   */
+  public static void insertAll(Collection<TaskInfo> taskInfos) {
+    if (taskInfos.isEmpty()) {
+      return;
+    }
+    Transaction transaction = Ebean.beginTransaction();
+    try {
+      transaction.setBatchMode(true);
+      transaction.setBatchSize(MAX_TASKS_PER_STATEMENT);
+      Ebean.saveAll(taskInfos);
+      Ebean.commitTransaction();
+    } finally {
+      Ebean.endTransaction();
+    }
+  }
+
+  /**
+   * Applies the same update to all the given tasks, with one statement per
+   * MAX_TASKS_PER_STATEMENT tasks, and also sets their update time to now.
+   *
+   * @param taskUUIDs the tasks to update
+   * @param setClause the columns to set, e.g. "task_state = :state"
+   * @param params the values of the named parameters of setClause
+   * @return the number of rows updated
+   */
+  public static int updateAll(Collection<UUID> taskUUIDs, String setClause,
+                              Map<String, Object> params) {
+    List<UUID> uuids = new ArrayList<>(taskUUIDs);
+    Date now = new Date();
+    int numRows = 0;
+    for (int start = 0; start < uuids.size(); start += MAX_TASKS_PER_STATEMENT) {
+      List<UUID> chunk = uuids.subList(
+          start, Math.min(start + MAX_TASKS_PER_STATEMENT, uuids.size()));
+      StringBuilder query = new StringBuilder("UPDATE task_info SET update_time = :now");
+      if (setClause != null && !setClause.isEmpty()) {
+        query.append(", ").append(setClause);
+      }
+      query.append(" WHERE uuid IN (");
+      for (int i = 0; i < chunk.size(); i++) {
+        query.append(i == 0 ? ":uuid" : ", :uuid").append(i);
+      }
+      query.append(")");
+      SqlUpdate update = Ebean.createSqlUpdate(query.toString());
+      update.setParameter("now", now);
+      for (Map.Entry<String, Object> param : params.entrySet()) {
+        update.setParameter(param.getKey(), param.getValue());
+      }
+      for (int i = 0; i < chunk.size(); i++) {
+        update.setParameter("uuid" + i, chunk.get(i));
+      }
+      numRows += Ebean.execute(update);
+    }
+    return numRows;
+  }
+
   public List<TaskInfo> getSubTasks() {
     Query<TaskInfo> subTaskQuery = TaskInfo.find.query().where()
         .eq("parent_uuid", getTaskUUID())
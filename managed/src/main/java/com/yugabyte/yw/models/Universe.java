@@ -3,7 +3,9 @@
 package com.yugabyte.yw.models;
 
 import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.Striped;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -16,6 +18,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 import javax.persistence.Column;
@@ -34,11 +39,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.ebean.*;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
 import io.ebean.annotation.DbJson;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.yugabyte.yw.commissioner.tasks.UniverseDefinitionTaskBase.ServerType;
 import com.yugabyte.yw.forms.UniverseDefinitionTaskParams;
 import com.yugabyte.yw.forms.UniverseDefinitionTaskParams.Cluster;
@@ -217,6 +225,28 @@ public class Universe extends Model {
   public static final Finder<UUID, Universe> find = new Finder<UUID, Universe>(Universe.class) {
   };
 
+  // All the columns but the universe details, which make up the bulk of the row.
+  private static final String SUMMARY_PROPERTIES =
+      "universeUUID, version, creationDate, name, customerId, config";
+
+  /**
+   * The deserialized details of a universe, as of the given version.
+   */
+  private static class CachedDetails {
+    final int version;
+    final UniverseDefinitionTaskParams details;
+
+    CachedDetails(int version, UniverseDefinitionTaskParams details) {
+      this.version = version;
+      this.details = details;
+    }
+  }
+
+  // Details of the universes read so far, by universe UUID. The details only change through
+  // compareAndSwap, which bumps the version, so an entry is valid as long as its version is the
+  // current one. The cached objects are never handed out, callers get copies of them.
+  private static final Map<UUID, CachedDetails> detailsCache = new ConcurrentHashMap<>();
+
   // Prefix added to read only node.
   public static final String READONLY = "-readonly";
 
@@ -249,6 +279,8 @@ public class Universe extends Model {
         universe.universeUUID, universe.universeDetailsJson, universe.name);
     // Save the object.
     universe.save();
+    // Forget anything read about a previous universe with the same UUID.
+    detailsCache.remove(universe.universeUUID);
     return universe;
   }
 
@@ -277,14 +309,73 @@ public class Universe extends Model {
    * @return the universe object
    */
   public static Universe get(UUID universeUUID) {
-    // Find the universe.
-    Universe universe = find.byId(universeUUID);
-    if (universe == null) {
-      throw new RuntimeException("Cannot find universe " + universeUUID);
+    while (true) {
+      // Find the universe, without its details.
+      Universe universe = find.query().select(SUMMARY_PROPERTIES)
+                              .where().idEq(universeUUID).findOne();
+      if (universe == null) {
+        throw new RuntimeException("Cannot find universe " + universeUUID);
+      }
+      // The details are only missing if the universe was updated in the meantime.
+      if (universe.loadDetails()) {
+        return universe;
+      }
     }
+  }
 
-    JsonNode detailsJson = Json.parse(universe.universeDetailsJson);
-    universe.universeDetails = Json.fromJson(detailsJson, UniverseDefinitionTaskParams.class);
+  public static Set<Universe> get(Set<UUID> universeUUIDs) {
+    Set<Universe> universes = new HashSet<Universe>();
+    if (universeUUIDs.isEmpty()) {
+      return universes;
+    }
+    List<Universe> found = find.query().select(SUMMARY_PROPERTIES)
+                               .where().idIn(new ArrayList<>(universeUUIDs)).findList();
+    for (Universe universe : found) {
+      universes.add(universe.loadDetails() ? universe : Universe.get(universe.universeUUID));
+    }
+    if (found.size() < universeUUIDs.size()) {
+      Set<UUID> missing = new HashSet<>(universeUUIDs);
+      for (Universe universe : found) {
+        missing.remove(universe.universeUUID);
+      }
+      throw new RuntimeException("Cannot find universe " + missing.iterator().next());
+    }
+    return universes;
+  }
+
+  /**
+   * Sets the details of this universe to a copy of the cached details for its version, reading
+   * them from the DB first if they are not cached yet.
+   *
+   * @return false if the details in the DB are not at the version of this object anymore.
+   */
+  private boolean loadDetails() {
+    CachedDetails cached = detailsCache.get(universeUUID);
+    if (cached == null || cached.version != version) {
+      SqlRow row = Ebean.createSqlQuery(
+          "SELECT version, universe_details_json FROM universe WHERE universe_uuid = :universeUUID")
+          .setParameter("universeUUID", universeUUID)
+          .findOne();
+      if (row == null) {
+        throw new RuntimeException("Cannot find universe " + universeUUID);
+      }
+      cached = new CachedDetails(row.getInteger("version"),
+                                 parseDetails(row.getString("universe_details_json")));
+      // Keep whichever is the most recent, in case of concurrent reads.
+      detailsCache.merge(universeUUID, cached,
+                         (current, loaded) -> loaded.version >= current.version ? loaded : current);
+      if (cached.version != version) {
+        return false;
+      }
+    }
+    universeDetails = copyDetails(cached.details);
+    return true;
+  }
+
+  private static UniverseDefinitionTaskParams parseDetails(String universeDetailsJson) {
+    JsonNode detailsJson = Json.parse(universeDetailsJson);
+    UniverseDefinitionTaskParams details =
+        Json.fromJson(detailsJson, UniverseDefinitionTaskParams.class);
 
     // For backwards compatibility from {universeDetails: {"userIntent": <foo>, "placementInfo": <bar>}}
     // to {universeDetails: {clusters: [{"userIntent": <foo>, "placementInfo": <bar>},...]}}
@@ -292,19 +383,23 @@ public class Universe extends Model {
         (!detailsJson.has("clusters") || detailsJson.get("clusters").size() == 0)) {
       UserIntent userIntent = Json.fromJson(detailsJson.get("userIntent"), UserIntent.class);
       PlacementInfo placementInfo = Json.fromJson(detailsJson.get("placementInfo"), PlacementInfo.class);
-      universe.universeDetails.upsertPrimaryCluster(userIntent, placementInfo);
+      details.upsertPrimaryCluster(userIntent, placementInfo);
     }
-
-    // Return the universe object.
-    return universe;
+    return details;
   }
 
-  public static Set<Universe> get(Set<UUID> universeUUIDs) {
-    Set<Universe> universes = new HashSet<Universe>();
-    for (UUID universeUUID : universeUUIDs) {
-      universes.add(Universe.get(universeUUID));
+  /**
+   * Deep copy of the details, through a token buffer rather than a JSON string so that no
+   * text has to be written or parsed.
+   */
+  private static UniverseDefinitionTaskParams copyDetails(UniverseDefinitionTaskParams details) {
+    try {
+      TokenBuffer buffer = new TokenBuffer(Json.mapper(), false);
+      Json.mapper().writeValue(buffer, details);
+      return Json.mapper().readValue(buffer.asParser(), UniverseDefinitionTaskParams.class);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to copy the details of universe", e);
     }
-    return universes;
   }
 
   public static Universe getUniverseByName(String universeName) {
@@ -322,17 +417,50 @@ public class Universe extends Model {
     void run(Universe universe);
   }
 
+  // Serializes the updates of a universe within this process. Updates of universes that hash to
+  // different stripes don't wait for each other.
+  private static final Striped<Lock> updateLocks = Striped.lock(256);
+
+  // Bounds of the randomized sleep between two attempts to save the details after a conflict.
+  private static final long MIN_RETRY_SLEEP_MS = 20;
+  private static final long MAX_RETRY_SLEEP_MS = 2000;
+
+  private static Histogram updateLockWaitMetric = null;
+  private static Counter updateConflictsMetric = null;
+
+  static {
+    try {
+      updateLockWaitMetric = Histogram.build("yb_universe_update_lock_wait_seconds",
+          "Time spent waiting for the update lock of a universe").
+        register();
+      updateConflictsMetric = Counter.build("yb_universe_update_conflicts_total",
+          "Number of universe updates that had to be retried because of a version conflict").
+        register();
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Failed to build prometheus universe update metrics");
+    }
+  }
+
   // Helper api to make an atomic read of universe version, and compare and swap the
   // updated version to disk.
-  private static synchronized Universe readModifyWrite(UUID universeUUID,
-                                                       UniverseUpdater updater)
+  private static Universe readModifyWrite(UUID universeUUID, UniverseUpdater updater)
       throws ConcurrentModificationException {
-    Universe universe = Universe.get(universeUUID);
-    // Update the universe object which is supplied as a lambda function.
-    updater.run(universe);
-    // Save the universe object by doing a compare and swap.
-    universe.compareAndSwap();
-    return universe;
+    Lock lock = updateLocks.get(universeUUID);
+    long startNanos = System.nanoTime();
+    lock.lock();
+    try {
+      if (updateLockWaitMetric != null) {
+        updateLockWaitMetric.observe((System.nanoTime() - startNanos) / 1e9);
+      }
+      Universe universe = Universe.get(universeUUID);
+      // Update the universe object which is supplied as a lambda function.
+      updater.run(universe);
+      // Save the universe object by doing a compare and swap.
+      universe.compareAndSwap();
+      return universe;
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
@@ -344,7 +472,7 @@ public class Universe extends Model {
    */
   public static Universe saveDetails(UUID universeUUID, UniverseUpdater updater) {
     int numRetriesLeft = 10;
-    long sleepTimeMillis = 100;
+    long sleepTimeMillis = MIN_RETRY_SLEEP_MS;
     // Try the read and update for a few times till it succeeds.
     Universe universe = null;
     while (numRetriesLeft > 0) {
@@ -352,13 +480,19 @@ public class Universe extends Model {
         universe = readModifyWrite(universeUUID, updater);
         break;
       } catch (ConcurrentModificationException e) {
+        if (updateConflictsMetric != null) {
+          updateConflictsMetric.inc();
+        }
         // Decrement retries.
         numRetriesLeft--;
         // If we are out of retries, fail the task.
         if (numRetriesLeft == 0) {
           throw e;
         }
-        // If we have more retries left, wait and retry.
+        // If we have more retries left, wait and retry. The sleep grows exponentially, and is
+        // randomized so that the conflicting writers don't retry in lockstep.
+        sleepTimeMillis = Math.min(MAX_RETRY_SLEEP_MS,
+            ThreadLocalRandom.current().nextLong(MIN_RETRY_SLEEP_MS, sleepTimeMillis * 3 + 1));
         try {
           Thread.sleep(sleepTimeMillis);
         } catch (InterruptedException e1) {
@@ -383,6 +517,7 @@ public class Universe extends Model {
     // Delete the universe.
     LOG.info("Deleting universe " + universe.name + ":" + universeUUID);
     universe.delete();
+    detailsCache.remove(universeUUID);
   }
 
   /**
@@ -633,8 +768,9 @@ public class Universe extends Model {
    * @return the new version number after the update if successful, or throws a RuntimeException.
    */
   private int compareAndSwap() {
-    // Update the universe details json.
-    universeDetailsJson = Json.stringify(Json.toJson(universeDetails));
+    // Serialize the universe details. The field is left alone, universes read through get() don't
+    // load it.
+    String universeDetailsJson = Json.stringify(Json.toJson(universeDetails));
 
     // Create the new version number.
     int newVersion = this.version + 1;
@@ -356,6 +356,17 @@ public class HealthCheckerTest extends FakeDBApplication {
     verifyHealthManager(univ2, null);
   }
 
+  @Test
+  public void testUniverseCheckDurationMetric() {
+    setupUniverse("univ1");
+    setupUniverse("univ2");
+    setupAlertingData(null, false, false);
+    healthChecker.checkAllUniverses(defaultCustomer, customerConfig, true, null);
+    Double count = testRegistry.getSampleValue(
+        HealthChecker.kUnivCheckDurationMetricName + "_count");
+    assertEquals(2, count.intValue());
+  }
+
   @Test
   public void testNoUniverse() {
     validateNoDevopsCall();
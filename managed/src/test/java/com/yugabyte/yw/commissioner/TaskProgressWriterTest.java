@@ -0,0 +1,85 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import com.yugabyte.yw.common.FakeDBApplication;
+import com.yugabyte.yw.models.TaskInfo;
+import com.yugabyte.yw.models.helpers.TaskType;
+import io.prometheus.client.CollectorRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TaskProgressWriterTest extends FakeDBApplication {
+  private CollectorRegistry testRegistry;
+  private TaskProgressWriter writer;
+
+  @Before
+  public void setUp() {
+    testRegistry = new CollectorRegistry();
+    writer = new TaskProgressWriter(testRegistry);
+  }
+
+  private TaskInfo createTask() {
+    TaskInfo taskInfo = new TaskInfo(TaskType.CreateUniverse);
+    taskInfo.setTaskDetails(Json.newObject());
+    taskInfo.setOwner("test-host");
+    taskInfo.save();
+    return taskInfo;
+  }
+
+  @Test
+  public void testHeartbeatsAndProgressInOneFlush() throws InterruptedException {
+    List<TaskInfo> tasks = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      tasks.add(createTask());
+    }
+    Date created = TaskInfo.get(tasks.get(0).getTaskUUID()).getLastUpdateTime();
+    Thread.sleep(10);
+
+    writer.heartbeat(tasks.get(0).getTaskUUID());
+    writer.heartbeat(tasks.get(1).getTaskUUID());
+    writer.updatePercentDone(tasks.get(1).getTaskUUID(), 50);
+    writer.updatePercentDone(tasks.get(2).getTaskUUID(), 50);
+    assertEquals(3, writer.getNumPending());
+    writer.flush();
+    assertEquals(0, writer.getNumPending());
+
+    for (TaskInfo task : tasks) {
+      TaskInfo updated = TaskInfo.get(task.getTaskUUID());
+      assertTrue(updated.getLastUpdateTime().after(created));
+    }
+    assertEquals(0, TaskInfo.get(tasks.get(0).getTaskUUID()).getPercentDone());
+    assertEquals(50, TaskInfo.get(tasks.get(1).getTaskUUID()).getPercentDone());
+    assertEquals(50, TaskInfo.get(tasks.get(2).getTaskUUID()).getPercentDone());
+    assertEquals(3, testRegistry.getSampleValue(
+        TaskProgressWriter.kRowsWrittenMetricName).intValue());
+    assertEquals(1, testRegistry.getSampleValue(
+        TaskProgressWriter.kWriteDurationMetricName + "_count").intValue());
+  }
+
+  @Test
+  public void testFlushWithNothingPending() {
+    writer.flush();
+    assertEquals(0, testRegistry.getSampleValue(
+        TaskProgressWriter.kWriteDurationMetricName + "_count").intValue());
+  }
+
+  @Test
+  public void testManyTasks() {
+    int numTasks = TaskInfo.MAX_TASKS_PER_STATEMENT + 1;
+    for (int i = 0; i < numTasks; i++) {
+      writer.heartbeat(createTask().getTaskUUID());
+    }
+    writer.flush();
+    assertEquals(numTasks, testRegistry.getSampleValue(
+        TaskProgressWriter.kRowsWrittenMetricName).intValue());
+  }
+}
@@ -15,11 +15,14 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.when;
 
@@ -74,6 +77,49 @@ public class ShellProcessHandlerTest {
         assertThat(response.message, allOf(notNullValue(), equalTo("error")));
     }
 
+    @Test
+    public void testRunAsyncWithOutputLineConsumer() throws Exception {
+        List<String> lines = new ArrayList<>();
+        ShellProcessHandler.ShellResponse response = shellProcessHandler.runAsync(
+            Arrays.asList("sh", "-c", "echo foo; echo bar"), new HashMap<>(), false,
+            0 /* timeoutMs */, lines::add).get(10, TimeUnit.SECONDS);
+        assertEquals(0, response.code);
+        assertEquals("foo" + System.lineSeparator() + "bar", response.message);
+        assertEquals(Arrays.asList("foo", "bar"), lines);
+    }
+
+    @Test
+    public void testRunAsyncKilledAfterTimeout() throws Exception {
+        long startMs = System.currentTimeMillis();
+        ShellProcessHandler.ShellResponse response = shellProcessHandler.runAsync(
+            Arrays.asList("sh", "-c", "sleep 60 & sleep 60"), new HashMap<>(), false,
+            200 /* timeoutMs */, null).get(30, TimeUnit.SECONDS);
+        assertEquals(-1, response.code);
+        assertThat(response.message, containsString("timed out"));
+        assertTrue(System.currentTimeMillis() - startMs < 30000);
+    }
+
+    @Test
+    public void testRunAsyncDoesNotWaitForBackgroundProcess() throws Exception {
+        long startMs = System.currentTimeMillis();
+        ShellProcessHandler.ShellResponse response = shellProcessHandler.runAsync(
+            Arrays.asList("sh", "-c", "echo done; sleep 60 &"), new HashMap<>(), false,
+            0 /* timeoutMs */, null).get(30, TimeUnit.SECONDS);
+        assertEquals(0, response.code);
+        assertEquals("done", response.message);
+        // The background sleep inherited the output of the command, it doesn't hold it up.
+        assertTrue(System.currentTimeMillis() - startMs < 5000);
+    }
+
+    @Test
+    public void testOutputBufferKeepsLastLines() {
+        ShellProcessHandler.OutputBuffer buffer = new ShellProcessHandler.OutputBuffer(8);
+        buffer.add("one");
+        buffer.add("two");
+        buffer.add("three");
+        assertEquals("three", buffer.toString());
+    }
+
     private String createTestShellScript() throws IOException {
         String fileName = TMP_STORAGE_PATH + "/test.sh";
         FileWriter fw = new FileWriter(fileName);
@@ -0,0 +1,98 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.common.services;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.yb.client.YBClient;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class LocalYBClientServiceTest {
+  private final AtomicLong nowMs = new AtomicLong(1000);
+  private LocalYBClientService service;
+
+  @Before
+  public void setUp() {
+    service = new LocalYBClientService(nowMs::get);
+  }
+
+  @After
+  public void tearDown() {
+    service.shutdown();
+  }
+
+  @Test
+  public void testNullMasters() {
+    assertNull(service.getClient(null));
+  }
+
+  @Test
+  public void testSameMastersShareClient() {
+    YBClient client1 = service.getClient("host1:7100,host2:7100");
+    YBClient client2 = service.getClient("host2:7100, host1:7100");
+    assertSame(client1, client2);
+    YBClient client3 = service.getClient("host1:7100,host2:7100", "/path/to/cert");
+    assertNotSame(client1, client3);
+    assertEquals(2, service.getNumCachedClients());
+  }
+
+  @Test
+  public void testIdleClientEviction() {
+    String masters = "host1:7100";
+    YBClient client = service.getClient(masters);
+    // Still held, so not evicted.
+    service.evictIdleClients(nowMs.get() + LocalYBClientService.IDLE_TIMEOUT_MS);
+    assertSame(client, service.getClient(masters));
+    nowMs.addAndGet(10);
+    service.closeClient(client, masters);
+    service.closeClient(client, masters);
+    // Released, but not idle for long enough.
+    service.evictIdleClients(nowMs.get() + LocalYBClientService.IDLE_TIMEOUT_MS - 1);
+    assertEquals(1, service.getNumCachedClients());
+    service.evictIdleClients(nowMs.get() + LocalYBClientService.IDLE_TIMEOUT_MS);
+    assertEquals(0, service.getNumCachedClients());
+    assertNotSame(client, service.getClient(masters));
+  }
+
+  @Test
+  public void testMasterChangeInvalidatesClient() {
+    String oldMasters = "host1:7100,host2:7100,host3:7100";
+    String newMasters = "host1:7100,host2:7100,host4:7100";
+    YBClient oldClient = service.getClient(oldMasters);
+    YBClient newClient = service.getClient(newMasters);
+    assertNotSame(oldClient, newClient);
+    // The old client is still held, but not handed out anymore.
+    assertEquals(2, service.getNumCachedClients());
+    service.closeClient(oldClient, oldMasters);
+    assertEquals(1, service.getNumCachedClients());
+    assertSame(newClient, service.getClient(newMasters));
+  }
+
+  @Test
+  public void testInvalidatedClientIsNotShared() {
+    String masters = "host1:7100,host2:7100";
+    YBClient client = service.getClient(masters);
+    service.invalidateClient(client, masters);
+    YBClient other = service.getClient(masters);
+    assertNotSame(client, other);
+    // Closed once given back, leaving only the new client.
+    service.closeClient(client, masters);
+    assertEquals(1, service.getNumCachedClients());
+    assertSame(other, service.getClient(masters));
+  }
+
+  @Test
+  public void testShutdownClosesClients() {
+    service.getClient("host1:7100");
+    service.getClient("host2:7100");
+    service.shutdown();
+    assertEquals(0, service.getNumCachedClients());
+  }
+}
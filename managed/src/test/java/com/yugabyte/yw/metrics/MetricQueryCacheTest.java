@@ -0,0 +1,168 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricQueryCacheTest {
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private Map<String, String> rangeQuery(String query, long start, long end, long step) {
+    Map<String, String> params = new HashMap<>();
+    params.put("query", query);
+    params.put("start", Long.toString(start));
+    params.put("end", Long.toString(end));
+    params.put("step", Long.toString(step));
+    return params;
+  }
+
+  private ObjectNode response() {
+    return mapper.createObjectNode().put("status", "success");
+  }
+
+  @Test
+  public void testQueriesWithinSameStepShareResponse() {
+    MetricQueryCache cache = new MetricQueryCache(60);
+    AtomicInteger numQueries = new AtomicInteger();
+    JsonNode first = cache.get("url", rangeQuery("up", 1000, 2000, 60), () -> {
+      numQueries.incrementAndGet();
+      return response();
+    });
+    JsonNode second = cache.get("url", rangeQuery("up", 1010, 2010, 60), () -> {
+      numQueries.incrementAndGet();
+      return response();
+    });
+    assertSame(first, second);
+    assertEquals(1, numQueries.get());
+  }
+
+  @Test
+  public void testDifferentQueriesDontShareResponse() {
+    Map<String, String> params = rangeQuery("up", 1000, 2000, 60);
+    String key = MetricQueryCache.keyOf("url", params);
+    assertNotEquals(key, MetricQueryCache.keyOf("other_url", params));
+    assertNotEquals(key, MetricQueryCache.keyOf("url", rangeQuery("down", 1000, 2000, 60)));
+    assertNotEquals(key, MetricQueryCache.keyOf("url", rangeQuery("up", 1000, 2000, 30)));
+    assertNotEquals(key, MetricQueryCache.keyOf("url", rangeQuery("up", 1000, 2100, 60)));
+  }
+
+  @Test
+  public void testFailedQueriesAreNotCached() {
+    MetricQueryCache cache = new MetricQueryCache(60);
+    Map<String, String> params = rangeQuery("up", 1000, 2000, 60);
+    AtomicInteger numQueries = new AtomicInteger();
+    ObjectNode error = mapper.createObjectNode().put("error", "bad query");
+    assertSame(error, cache.get("url", params, () -> {
+      numQueries.incrementAndGet();
+      return error;
+    }));
+    assertNull(cache.get("url", params, () -> {
+      numQueries.incrementAndGet();
+      return null;
+    }));
+    cache.get("url", params, () -> {
+      numQueries.incrementAndGet();
+      return response();
+    });
+    assertEquals(3, numQueries.get());
+  }
+
+  // Matrix response with one point per step in [start, end] for each node.
+  private JsonNode matrix(long start, long end, long step, String... nodes) {
+    ObjectNode response = response();
+    ObjectNode data = response.putObject("data");
+    data.put("resultType", "matrix");
+    ArrayNode result = data.putArray("result");
+    for (String node : nodes) {
+      ObjectNode series = result.addObject();
+      series.putObject("metric").put("node_prefix", node);
+      ArrayNode values = series.putArray("values");
+      for (long timestamp = start; timestamp <= end; timestamp += step) {
+        values.addArray().add(timestamp).add(Long.toString(timestamp));
+      }
+    }
+    return response;
+  }
+
+  private List<Long> timestamps(JsonNode response, int series) {
+    List<Long> timestamps = new ArrayList<>();
+    for (JsonNode point : response.get("data").get("result").get(series).get("values")) {
+      timestamps.add(point.get(0).asLong());
+    }
+    return timestamps;
+  }
+
+  @Test
+  public void testRangeQueryFetchesOnlyTail() {
+    MetricQueryCache cache = new MetricQueryCache(10);
+    List<Map<String, String>> fetches = new ArrayList<>();
+    Function<Map<String, String>, JsonNode> fetcher = params -> {
+      fetches.add(params);
+      return matrix(Long.parseLong(params.get("start")), Long.parseLong(params.get("end")), 60,
+                    "node-1");
+    };
+    JsonNode first = cache.getRange("url", rangeQuery("up", 6000, 12000, 60), fetcher);
+    assertEquals(101, timestamps(first, 0).size());
+
+    // The window moved forward by 10 minutes, so did the start and end of the query.
+    JsonNode second = cache.getRange("url", rangeQuery("up", 6630, 12630, 60), fetcher);
+    assertEquals(2, fetches.size());
+    long tailStart = Long.parseLong(fetches.get(1).get("start"));
+    assertTrue(tailStart > 6600);
+    assertTrue(tailStart < 12000);
+    assertEquals("12600", fetches.get(1).get("end"));
+    List<Long> expected = new ArrayList<>();
+    for (long timestamp = 6600; timestamp <= 12600; timestamp += 60) {
+      expected.add(timestamp);
+    }
+    assertEquals(expected, timestamps(second, 0));
+  }
+
+  @Test
+  public void testRangeQueryWithinTtlIsNotFetchedAgain() {
+    MetricQueryCache cache = new MetricQueryCache(60);
+    AtomicInteger numQueries = new AtomicInteger();
+    Function<Map<String, String>, JsonNode> fetcher = params -> {
+      numQueries.incrementAndGet();
+      return matrix(Long.parseLong(params.get("start")), Long.parseLong(params.get("end")), 60,
+                    "node-1", "node-2");
+    };
+    cache.getRange("url", rangeQuery("up", 6000, 12000, 60), fetcher);
+    JsonNode second = cache.getRange("url", rangeQuery("up", 6010, 12010, 60), fetcher);
+    assertEquals(1, numQueries.get());
+    assertEquals(2, second.get("data").get("result").size());
+    assertEquals(101, timestamps(second, 1).size());
+  }
+
+  @Test
+  public void testRangeQueryErrorIsNotMerged() {
+    MetricQueryCache cache = new MetricQueryCache(10);
+    cache.getRange("url", rangeQuery("up", 6000, 12000, 60),
+                   params -> matrix(6000, 12000, 60, "node-1"));
+    ObjectNode error = mapper.createObjectNode().put("error", "bad query");
+    assertSame(error, cache.getRange("url", rangeQuery("up", 6600, 12600, 60), params -> error));
+    JsonNode retried = cache.getRange("url", rangeQuery("up", 6600, 12600, 60),
+        params -> matrix(Long.parseLong(params.get("start")), 12600, 60, "node-1"));
+    assertFalse(retried.has("error"));
+    assertEquals(101, timestamps(retried, 0).size());
+  }
+}
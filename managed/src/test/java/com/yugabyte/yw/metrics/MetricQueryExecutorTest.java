@@ -28,6 +28,7 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.when;
 
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -289,4 +290,23 @@ public class MetricQueryExecutorTest extends FakeDBApplication {
       AllOf.allOf(IsNull.notNullValue(), IsEqual.equalTo("date"))
     );
   }
+
+  @Test
+  public void testNativeMetricsCachedPerFilters() throws Exception {
+    when(mockAppConfig.getBoolean(eq("yb.metrics.useNative"), eq(false))).thenReturn(true);
+    when(mockYBMetricQueryComponent.query(anyMap())).thenReturn(Json.parse(
+        "{\"status\":\"success\",\"data\":{\"resultType\":\"matrix\",\"result\":[]}}"));
+    MetricQueryCache cache = new MetricQueryCache(60);
+    for (String nodePrefix : new String[] {"yb-c-u1", "yb-c-u2", "yb-c-u1"}) {
+      HashMap<String, String> params = new HashMap<>();
+      params.put("start", "1479281737");
+      params.put("step", "60");
+      params.put("queryKey", "valid_metric");
+      params.put("filters", "{\"node_prefix\":\"" + nodePrefix + "\"}");
+      new MetricQueryExecutor(mockAppConfig, mockApiHelper, params, new HashMap<>(),
+                              mockYBMetricQueryComponent, cache).call();
+    }
+    // The query of the second universe doesn't get the response of the first one.
+    verify(mockYBMetricQueryComponent, times(2)).query(anyMap());
+  }
 }
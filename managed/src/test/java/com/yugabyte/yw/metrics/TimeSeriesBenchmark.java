@@ -0,0 +1,127 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Compares the rate and latency computations of the native metrics done with TimeSeries to the
+ * same computations done with TreeMaps of boxed points, as they used to be.
+ *
+ * Run with: TimeSeriesBenchmark [numTservers] [numDays] [iterations]
+ */
+public class TimeSeriesBenchmark {
+  private static final long WINDOW_SECS = 30;
+  private static final long SCRAPE_INTERVAL_SECS = 30;
+
+  // Counters of every tserver, newest first like the rows read from the metrics table.
+  private static List<TimeSeries> generate(int numTservers, int numDays, Random random) {
+    long end = System.currentTimeMillis() / 1000;
+    int numPoints = (int) (numDays * 24 * 3600 / SCRAPE_INTERVAL_SECS);
+    List<TimeSeries> counters = new ArrayList<>();
+    for (int tserver = 0; tserver < numTservers; tserver++) {
+      TimeSeries counter = new TimeSeries(numPoints);
+      double value = 1e9;
+      for (int i = 0; i < numPoints; i++) {
+        counter.add(end - i * SCRAPE_INTERVAL_SECS - random.nextInt(5), value);
+        value -= random.nextInt(1000);
+      }
+      counters.add(counter);
+    }
+    return counters;
+  }
+
+  private static TimeSeries copy(TimeSeries series) {
+    TimeSeries copy = new TimeSeries(series.size());
+    for (int i = 0; i < series.size(); i++) {
+      copy.add(series.getTimestamp(i), series.getValue(i));
+    }
+    return copy;
+  }
+
+  private static TimeSeries latency(List<TimeSeries> counts, List<TimeSeries> sums) {
+    List<TimeSeries> countRates = new ArrayList<>();
+    List<TimeSeries> sumRates = new ArrayList<>();
+    for (int i = 0; i < counts.size(); i++) {
+      countRates.add(copy(counts.get(i)).sortByTime().rate());
+      sumRates.add(copy(sums.get(i)).sortByTime().rate());
+    }
+    return TimeSeries.divide(TimeSeries.sum(sumRates, WINDOW_SECS, sums.size()),
+                             TimeSeries.sum(countRates, WINDOW_SECS, counts.size()),
+                             WINDOW_SECS);
+  }
+
+  private static NavigableMap<Long, Double> treeMapRate(List<TimeSeries> counters,
+                                                        int numTservers) {
+    NavigableMap<Long, Double> timeRangeMap = new TreeMap<>();
+    for (TimeSeries counter : counters) {
+      // Boxed like the rows read from the metrics table.
+      List<Long> timestamps = new ArrayList<>();
+      List<Double> values = new ArrayList<>();
+      for (int i = 0; i < counter.size(); i++) {
+        timestamps.add(counter.getTimestamp(i));
+        values.add(counter.getValue(i));
+      }
+      for (int i = 1; i < timestamps.size(); i++) {
+        long currTimestampSec = timestamps.get(i);
+        double currRate = (values.get(i - 1) - values.get(i)) /
+                          (timestamps.get(i - 1) - currTimestampSec);
+        Entry<Long, Double> entry = timeRangeMap.floorEntry(currTimestampSec);
+        if (entry == null || currTimestampSec - entry.getKey() > WINDOW_SECS) {
+          timeRangeMap.put(currTimestampSec, currRate / numTservers);
+        } else {
+          timeRangeMap.put(entry.getKey(), entry.getValue() + currRate / numTservers);
+        }
+      }
+    }
+    return timeRangeMap;
+  }
+
+  private static NavigableMap<Long, Double> treeMapLatency(List<TimeSeries> counts,
+                                                           List<TimeSeries> sums) {
+    NavigableMap<Long, Double> metricsCount = treeMapRate(counts, counts.size());
+    NavigableMap<Long, Double> metricsSum = treeMapRate(sums, sums.size());
+    TreeMap<Long, Double> timeToVal = new TreeMap<>();
+    for (Entry<Long, Double> entry : metricsSum.entrySet()) {
+      Entry<Long, Double> entry2 = metricsCount.floorEntry(entry.getKey());
+      if (entry2 != null && Math.abs(entry.getKey() - entry2.getKey()) < WINDOW_SECS) {
+        timeToVal.put(entry2.getKey(), entry.getValue() / entry2.getValue());
+      }
+    }
+    return timeToVal;
+  }
+
+  public static void main(String[] args) {
+    int numTservers = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+    int numDays = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+    int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+    Random random = new Random(0);
+    List<TimeSeries> counts = generate(numTservers, numDays, random);
+    List<TimeSeries> sums = generate(numTservers, numDays, random);
+    System.out.printf("%d tservers, %d points each%n", numTservers, counts.get(0).size());
+
+    // The first half of the iterations warms up the JIT.
+    long timeSeriesNanos = 0;
+    long treeMapNanos = 0;
+    long checksum = 0;
+    for (int i = 0; i < 2 * iterations; i++) {
+      long startNanos = System.nanoTime();
+      checksum += latency(counts, sums).size();
+      long timeSeriesEndNanos = System.nanoTime();
+      checksum += treeMapLatency(counts, sums).size();
+      long treeMapEndNanos = System.nanoTime();
+      if (i >= iterations) {
+        timeSeriesNanos += timeSeriesEndNanos - startNanos;
+        treeMapNanos += treeMapEndNanos - timeSeriesEndNanos;
+      }
+    }
+    System.out.printf("TimeSeries: %.1f ms/op%n", timeSeriesNanos / 1e6 / iterations);
+    System.out.printf("TreeMap:    %.1f ms/op%n", treeMapNanos / 1e6 / iterations);
+    System.out.println("(checksum " + checksum + ")");
+  }
+}
@@ -0,0 +1,80 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.metrics;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimeSeriesTest {
+
+  private TimeSeries series(long... timestampsAndValues) {
+    TimeSeries series = new TimeSeries(1);
+    for (int i = 0; i < timestampsAndValues.length; i += 2) {
+      series.add(timestampsAndValues[i], timestampsAndValues[i + 1]);
+    }
+    return series;
+  }
+
+  @Test
+  public void testSortByTime() {
+    assertEquals(ImmutableMap.of(10L, 1.0, 20L, 2.0, 30L, 3.0),
+                 series(30, 3, 20, 2, 10, 1).sortByTime().toMap());
+    TimeSeries unordered = series(20, 2, 40, 4, 10, 1, 30, 3, 20, 5).sortByTime();
+    long[] expectedTimestamps = {10, 20, 20, 30, 40};
+    double[] expectedValues = {1, 2, 5, 3, 4};
+    for (int i = 0; i < unordered.size(); i++) {
+      assertEquals(expectedTimestamps[i], unordered.getTimestamp(i));
+      assertEquals(expectedValues[i], unordered.getValue(i), 0);
+    }
+  }
+
+  @Test
+  public void testRate() {
+    assertEquals(ImmutableMap.of(0L, 1.0, 10L, 3.0),
+                 series(0, 100, 10, 110, 20, 140).rate().toMap());
+    assertTrue(series(0, 100).rate().isEmpty());
+  }
+
+  @Test
+  public void testSumAddsUpPointsCloseInTime() {
+    TimeSeries first = series(0, 1, 30, 2, 60, 3);
+    TimeSeries second = series(5, 10, 35, 20, 65, 30, 95, 40);
+    assertEquals(ImmutableMap.of(0L, 11.0, 30L, 22.0, 60L, 33.0, 95L, 40.0),
+                 TimeSeries.sum(Arrays.asList(first, second), 30, 1).toMap());
+    assertEquals(ImmutableMap.of(0L, 5.5, 30L, 11.0, 60L, 16.5, 95L, 20.0),
+                 TimeSeries.sum(Arrays.asList(first, second), 30, 2).toMap());
+  }
+
+  @Test
+  public void testDivide() {
+    TimeSeries num = series(10, 100, 40, 300, 100, 50);
+    TimeSeries denom = series(5, 10, 35, 20, 60, 5);
+    // The last point of num is too far from the last point of denom.
+    assertEquals(ImmutableMap.of(5L, 10.0, 35L, 15.0),
+                 TimeSeries.divide(num, denom, 30).toMap());
+    assertEquals(ImmutableMap.of(5L, 2.0),
+                 series(5, 10, 5, 20).divide(10).distinct().toMap());
+  }
+
+  @Test
+  public void testMergeKeepsLastPointOfTimestamp() {
+    TimeSeries first = series(0, 1, 30, 2);
+    TimeSeries second = series(30, 3, 60, 4);
+    TimeSeries third = series(0, 5);
+    assertEquals(ImmutableMap.of(0L, 5.0, 30L, 3.0, 60L, 4.0),
+                 TimeSeries.merge(Arrays.asList(first, second, third)).distinct().toMap());
+    assertTrue(TimeSeries.merge(Collections.emptyList()).isEmpty());
+  }
+
+  @Test
+  public void testDownsample() {
+    assertEquals(ImmutableMap.of(0L, 2.0, 60L, 5.0, 180L, 7.0),
+                 series(0, 1, 30, 3, 60, 4, 90, 6, 200, 7).downsample(60).toMap());
+  }
+}
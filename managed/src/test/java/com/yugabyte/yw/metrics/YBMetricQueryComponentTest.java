@@ -59,8 +59,8 @@ public class YBMetricQueryComponentTest extends FakeDBApplication {
   }
 
   // Takes a MockResultSet that contains the information to mock the iterator's
-  // next values. MockResultSet.hasNexts is expected to have 2x + 1 the values of the
-  // other members since it is queried twice in each call (three times in the first iteration).
+  // next values. MockResultSet.hasNexts is expected to have one more value than the
+  // other members, since it is queried once per row and once at the end.
   public List<ResultSet> setupCalculate(List<MockResultSet> mockResultSet) {
     List<ResultSet> allRS = new ArrayList<>();
     ResultSet rs1 = Mockito.mock(ResultSet.class);
@@ -139,8 +139,7 @@ public class YBMetricQueryComponentTest extends FakeDBApplication {
                                         new Date(timeVal - interval * 3),
                                         new Date(timeVal - interval * 4));
     mockResultSet.values = Arrays.asList(16000L, 12000L, 10000L, 7000L, 5000L);
-    mockResultSet.hasNexts = Arrays.asList(true, true, true, true, true,
-                                          true, true, true, true, false);
+    mockResultSet.hasNexts = Arrays.asList(true, true, true, true, true, false);
 
     List<ResultSet> allRS = setupCalculate(Arrays.asList(mockResultSet, mockResultSet,
                                                          mockResultSet));
@@ -149,7 +148,7 @@ public class YBMetricQueryComponentTest extends FakeDBApplication {
                                                        2323193L, (300.0 / 3) * 3,
                                                        2323223L, (200.0 / 3) * 3,
                                                        2323253L, (400.0 / 3) * 3);
-    assertEquals(expectedValues, ybMetricQueryComponent.calculateRate(allRS, Sum, 3));
+    assertEquals(expectedValues, ybMetricQueryComponent.calculateRate(allRS, Sum, 3).toMap());
   }
 
   @Test
@@ -163,8 +162,7 @@ public class YBMetricQueryComponentTest extends FakeDBApplication {
                                         new Date(timeVal - interval * 3),
                                         new Date(timeVal - interval * 4));
     mockResultSet.values = Arrays.asList(16000L, 12000L, 10000L, 7000L, 5000L);
-    mockResultSet.hasNexts = Arrays.asList(true, true, true, true, true,
-                                          true, true, true, true, false);
+    mockResultSet.hasNexts = Arrays.asList(true, true, true, true, true, false);
 
     List<ResultSet> allRS = setupCalculate(Arrays.asList(mockResultSet, mockResultSet,
                                                          mockResultSet));
@@ -173,7 +171,7 @@ public class YBMetricQueryComponentTest extends FakeDBApplication {
                                                        2323193L, 300.0 / 3,
                                                        2323223L, 200.0 / 3,
                                                        2323253L, 400.0 / 3);
-    assertEquals(expectedValues, ybMetricQueryComponent.calculateRate(allRS, Average, 3));
+    assertEquals(expectedValues, ybMetricQueryComponent.calculateRate(allRS, Average, 3).toMap());
   }
 
   @Test
@@ -195,10 +193,8 @@ public class YBMetricQueryComponentTest extends FakeDBApplication {
     mockResultSet.values = Arrays.asList(16000L, 12000L, 10000L, 7000L, 5000L);
     mockResultSetMissing.values = Arrays.asList(16000L, 12000L, 7000L, 5000L);
 
-    mockResultSet.hasNexts = Arrays.asList(true, true, true, true, true,
-                                          true, true, true, true, false);
-    mockResultSetMissing.hasNexts = Arrays.asList(true, true, true, true,
-                                                 true, true, true, false);
+    mockResultSet.hasNexts = Arrays.asList(true, true, true, true, true, false);
+    mockResultSetMissing.hasNexts = Arrays.asList(true, true, true, true, false);
 
     List<ResultSet> allRS = setupCalculate(Arrays.asList(mockResultSet, mockResultSet,
                                                          mockResultSetMissing));
@@ -207,6 +203,6 @@ public class YBMetricQueryComponentTest extends FakeDBApplication {
                                                        2323193L, (300.0 / 3) * 2 + (500.0 / 6),
                                                        2323223L, (200.0 / 3) * 2,
                                                        2323253L, (400.0 / 3) * 3);
-    assertEquals(expectedValues, ybMetricQueryComponent.calculateRate(allRS, Sum, 3));
+    assertEquals(expectedValues, ybMetricQueryComponent.calculateRate(allRS, Sum, 3).toMap());
   }
 }
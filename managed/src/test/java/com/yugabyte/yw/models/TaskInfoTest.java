@@ -0,0 +1,70 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.models;
+
+import com.yugabyte.yw.common.FakeDBApplication;
+import com.yugabyte.yw.models.helpers.TaskType;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class TaskInfoTest extends FakeDBApplication {
+
+  private List<TaskInfo> newTaskInfos(int numTasks) {
+    List<TaskInfo> taskInfos = new ArrayList<>();
+    for (int i = 0; i < numTasks; i++) {
+      TaskInfo taskInfo = new TaskInfo(TaskType.AnsibleSetupServer);
+      taskInfo.setTaskDetails(Json.newObject());
+      taskInfo.setOwner("test-host");
+      taskInfos.add(taskInfo);
+    }
+    return taskInfos;
+  }
+
+  @Test
+  public void testInsertAll() {
+    List<TaskInfo> taskInfos = newTaskInfos(3);
+    TaskInfo.insertAll(taskInfos);
+    for (TaskInfo taskInfo : taskInfos) {
+      assertNotNull(taskInfo.getTaskUUID());
+      TaskInfo saved = TaskInfo.get(taskInfo.getTaskUUID());
+      assertNotNull(saved);
+      assertEquals(TaskInfo.State.Created, saved.getTaskState());
+    }
+  }
+
+  @Test
+  public void testUpdateAll() {
+    int numTasks = TaskInfo.MAX_TASKS_PER_STATEMENT + 1;
+    List<TaskInfo> taskInfos = newTaskInfos(numTasks);
+    TaskInfo.insertAll(taskInfos);
+    List<UUID> taskUUIDs = new ArrayList<>();
+    for (TaskInfo taskInfo : taskInfos) {
+      taskUUIDs.add(taskInfo.getTaskUUID());
+    }
+    UUID parentUUID = UUID.randomUUID();
+    Map<String, Object> params = new HashMap<>();
+    params.put("position", 2);
+    params.put("parentUuid", parentUUID);
+    assertEquals(numTasks, TaskInfo.updateAll(
+        taskUUIDs, "position = :position, parent_uuid = :parentUuid", params));
+    assertEquals(numTasks, TaskInfo.updateAll(
+        taskUUIDs, "task_state = :state",
+        Collections.singletonMap("state", TaskInfo.State.Running.name())));
+    for (UUID taskUUID : taskUUIDs) {
+      TaskInfo saved = TaskInfo.get(taskUUID);
+      assertEquals(2, saved.getPosition());
+      assertEquals(parentUUID, saved.getParentUUID());
+      assertEquals(TaskInfo.State.Running, saved.getTaskState());
+    }
+  }
+}
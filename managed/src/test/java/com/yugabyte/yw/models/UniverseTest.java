@@ -113,6 +113,29 @@ public class UniverseTest extends FakeDBApplication {
     Universe u = Universe.get(unknownUUID);
   }
 
+  @Test
+  public void testGetReturnsCopyOfCachedDetails() {
+    Universe u = createUniverse(defaultCustomer.getCustomerId());
+    Universe first = Universe.get(u.universeUUID);
+    first.getUniverseDetails().nodePrefix = "modified";
+    Universe second = Universe.get(u.universeUUID);
+    assertNotSame(first.getUniverseDetails(), second.getUniverseDetails());
+    assertEquals(u.getUniverseDetails().nodePrefix, second.getUniverseDetails().nodePrefix);
+  }
+
+  @Test
+  public void testGetAfterSaveDetails() {
+    Universe u = createUniverse(defaultCustomer.getCustomerId());
+    assertEquals(1, Universe.get(u.universeUUID).version);
+    Universe.saveDetails(u.universeUUID,
+        universe -> universe.getUniverseDetails().nodePrefix = "updated");
+    Universe fetched = Universe.get(u.universeUUID);
+    assertEquals(2, fetched.version);
+    assertEquals("updated", fetched.getUniverseDetails().nodePrefix);
+    Set<Universe> universes = Universe.get(Sets.newHashSet(u.universeUUID));
+    assertEquals("updated", universes.iterator().next().getUniverseDetails().nodePrefix);
+  }
+
   @Test
   public void testParallelSaveDetails() {
     int numNodes = 100;